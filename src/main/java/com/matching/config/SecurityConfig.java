@@ -1,10 +1,23 @@
 package com.matching.config;
 
+import com.matching.user.security.TokenAuthenticationFilter;
+import com.matching.user.service.TokenService;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * 安全配置
@@ -12,30 +25,76 @@ import org.springframework.security.web.SecurityFilterChain;
 @Configuration
 public class SecurityConfig {
 
+    /**
+     * 无需 Token 即可访问的接口
+     */
+    private static final String[] PUBLIC_PATHS = {
+        "/health",
+        "/ready",
+        "/",
+        "/actuator/health/**",
+        "/user/login",
+        "/user/register",
+        "/user/verify/send",
+        "/user/reset-password",
+        "/user/username/check"
+    };
+
+    /**
+     * 密码加密器
+     */
+    @Bean
+    public BCryptPasswordEncoder passwordEncoder(@Value("${password.bcrypt-strength:12}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+
     /**
      * 测试环境安全配置 - 允许所有请求
      */
     @Bean
     @Profile("test")
-    public SecurityFilterChain testSecurityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain testSecurityFilterChain(HttpSecurity http, TokenService tokenService,
+                                                       @Value("${admin.user-ids:}") List<Long> adminUserIds) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService, adminUserIds), UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
         return http.build();
     }
 
     /**
-     * 生产环境安全配置
+     * 生产环境安全配置 - 无状态 Bearer Token 认证
      */
     @Bean
     @Profile("!test")
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, TokenService tokenService,
+                                                   @Value("${admin.user-ids:}") List<Long> adminUserIds) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .requestCache(cache -> cache.disable())
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService, adminUserIds), UsernamePasswordAuthenticationFilter.class)
+            .exceptionHandling(ex -> ex
+                .authenticationEntryPoint((request, response, authException) ->
+                    writeError(response, 401, "未授权"))
+                .accessDeniedHandler((request, response, accessDeniedException) ->
+                    writeError(response, 403, "无权限")))
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/health", "/").permitAll()
+                // 异步响应（如 JFR 录制下载）的再次分派不携带 Token，原始请求已完成鉴权
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                .requestMatchers(PUBLIC_PATHS).permitAll()
+                // 运维接口：admin.user-ids 中的用户
+                .requestMatchers("/admin/**").hasAuthority(TokenAuthenticationFilter.ADMIN_AUTHORITY)
                 .anyRequest().authenticated()
             );
         return http.build();
     }
+
+    private static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
 }
@@ -0,0 +1,33 @@
+package com.matching.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 启动耗时统计 - 记录 JVM 启动到应用就绪的时间，并与基线比较
+ */
+@Slf4j
+@Component
+public class StartupTimeReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Value("${startup.max-ready-millis:0}")
+    private long maxReadyMillis;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        long contextMillis = event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1;
+
+        if (maxReadyMillis > 0 && readyMillis > maxReadyMillis) {
+            log.warn("Startup slower than baseline: timeToReady={}ms, context={}ms, baseline={}ms",
+                    readyMillis, contextMillis, maxReadyMillis);
+        } else {
+            log.info("Startup completed: timeToReady={}ms, context={}ms", readyMillis, contextMillis);
+        }
+    }
+}
@@ -26,12 +26,25 @@ public class TestProfileConfig {
             }
 
             @Override
-            public com.matching.user.entity.User login(com.matching.user.dto.LoginRequest request, com.matching.user.dto.DeviceInfo deviceInfo) {
+            public com.matching.user.dto.UserCredential login(com.matching.user.dto.LoginRequest request, com.matching.user.dto.DeviceInfo deviceInfo) {
                 // 模拟登录成功
-                com.matching.user.entity.User user = new com.matching.user.entity.User();
-                user.setUserId(1L);
-                user.setUsername(request.getUsername());
-                return user;
+                return new com.matching.user.dto.UserCredential(1L, null,
+                        com.matching.user.entity.UserStatus.ACTIVE, request.getUsername(), null);
+            }
+
+            @Override
+            public java.util.Map<String, Object> getUserInfo(Long userId) {
+                return java.util.Map.of("userId", userId.toString(), "username", "test");
+            }
+
+            @Override
+            public void resetPassword(String email, String code, String newPassword) {
+                // 模拟重置成功
+            }
+
+            @Override
+            public void logout(Long userId, String token) {
+                // 测试环境无实际操作
             }
 
             @Override
@@ -81,7 +94,7 @@ public class TestProfileConfig {
             }
 
             @Override
-            public void revokeToken(String token) {
+            public void revokeToken(Long userId, String token) {
                 // 测试环境无实际操作
             }
         };
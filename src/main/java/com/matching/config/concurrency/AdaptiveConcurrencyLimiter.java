@@ -0,0 +1,108 @@
+package com.matching.config.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发上限（梯度算法）
+ * <p>
+ * 以请求延迟判断排队：每个采样窗口取平均延迟作为短期值，与指数平均的长期基线比较，
+ * gradient = clamp(基线 × tolerance / 短期, 0.5, 1)；新上限 = 上限 × gradient + sqrt(上限)，
+ * 再与旧值平滑。延迟不涨时上限按 sqrt 缓慢增长，排队导致延迟上涨时按比例收缩。
+ * 实际并发不到上限一半时不增长，避免空闲期把上限推到无意义的高度。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Priority {
+        CRITICAL, NORMAL, SHEDDABLE
+    }
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+
+    private double longRttNanos;
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInflight;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    /**
+     * 尝试占用一个并发名额；CRITICAL 总是放行，SHEDDABLE 只能使用上限的一部分
+     */
+    public boolean tryAcquire(Priority priority) {
+        if (priority == Priority.CRITICAL) {
+            inflight.incrementAndGet();
+            return true;
+        }
+        int cap = priority == Priority.SHEDDABLE
+                ? Math.max(1, (int) (limit * properties.getSheddableShare()))
+                : (int) limit;
+        while (true) {
+            int current = inflight.get();
+            if (current >= cap) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放名额并记录延迟样本
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        sample(rttNanos, current);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private synchronized void sample(long rttNanos, int inflightAtRelease) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInflight = Math.max(windowMaxInflight, inflightAtRelease);
+        long now = System.nanoTime();
+        if (windowSamples < properties.getMinWindowSamples()
+                || now - windowStart < properties.getMinWindowMillis() * 1_000_000L) {
+            return;
+        }
+        double shortRtt = (double) windowRttSum / windowSamples;
+        int maxInflight = windowMaxInflight;
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInflight = 0;
+
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+            return;
+        }
+        double alpha = 2.0 / (properties.getLongWindow() + 1);
+        longRttNanos = longRttNanos * (1 - alpha) + shortRtt * alpha;
+        // 负载回落后基线会高于短期值，逐步衰减以便重新探测
+        if (longRttNanos / shortRtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        if (maxInflight < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRttNanos / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - properties.getSmoothing()) + target * properties.getSmoothing();
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), next));
+    }
+}
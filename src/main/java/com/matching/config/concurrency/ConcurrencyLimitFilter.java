@@ -0,0 +1,89 @@
+package com.matching.config.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 并发限制过滤器 - 位于安全过滤链之前，超出名额的请求直接 503，不进入 Tomcat 后续处理
+ * <p>
+ * 健康检查始终放行；登录、注册、发送验证码等可丢弃请求最先被拒绝；其余（需 Token 校验的）请求次之。
+ * 指标：http.concurrency.limit、http.concurrency.inflight、http.concurrency.shed{priority}。
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final byte[] SHED_BODY = "{\"error\":\"服务繁忙，请稍后重试\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ConcurrencyLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<AdaptiveConcurrencyLimiter.Priority, Counter> shedCounters =
+            new EnumMap<>(AdaptiveConcurrencyLimiter.Priority.class);
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, ConcurrencyLimitProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.properties = properties;
+        meterRegistry.gauge("http.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("http.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight);
+        for (AdaptiveConcurrencyLimiter.Priority priority : AdaptiveConcurrencyLimiter.Priority.values()) {
+            shedCounters.put(priority, meterRegistry.counter("http.concurrency.shed",
+                    "priority", priority.name().toLowerCase()));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter.Priority priority = classify(request.getRequestURI());
+        if (!limiter.tryAcquire(priority)) {
+            shedCounters.get(priority).increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(SHED_BODY);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        for (String pattern : properties.getExcludedPaths()) {
+            if (pathMatcher.match(pattern, request.getRequestURI())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AdaptiveConcurrencyLimiter.Priority classify(String path) {
+        for (String pattern : properties.getCriticalPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return AdaptiveConcurrencyLimiter.Priority.CRITICAL;
+            }
+        }
+        for (String pattern : properties.getSheddablePaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return AdaptiveConcurrencyLimiter.Priority.SHEDDABLE;
+            }
+        }
+        return AdaptiveConcurrencyLimiter.Priority.NORMAL;
+    }
+}
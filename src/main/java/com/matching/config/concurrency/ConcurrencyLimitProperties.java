@@ -0,0 +1,67 @@
+package com.matching.config.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP 自适应并发限制配置
+ */
+@Data
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 初始、最小、最大并发上限
+     */
+    private int initialLimit = 50;
+    private int minLimit = 10;
+    private int maxLimit = 400;
+
+    /**
+     * 可容忍的延迟膨胀倍数，短期延迟低于 长期基线 × tolerance 时上限不下降
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * 上限调整的平滑系数（0-1）
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * 长期延迟基线的样本窗口（指数平均的等效样本数）
+     */
+    private int longWindow = 600;
+
+    /**
+     * 每次调整至少收集的样本数与时间
+     */
+    private int minWindowSamples = 10;
+    private long minWindowMillis = 100;
+
+    /**
+     * 可丢弃请求最多占用上限的比例，超过即快速 503，为受保护请求留出余量
+     */
+    private double sheddableShare = 0.7;
+
+    /**
+     * 关键路径：始终放行（健康检查、就绪探针）
+     */
+    private List<String> criticalPaths = new ArrayList<>(List.of("/health", "/ready", "/actuator/health/**"));
+
+    /**
+     * 可丢弃路径：过载时最先拒绝
+     */
+    private List<String> sheddablePaths = new ArrayList<>(List.of(
+            "/user/login", "/user/register", "/user/verify/send", "/user/reset-password",
+            "/user/username/check"));
+
+    /**
+     * 不经过限流、也不参与延迟采样的路径（如长时间保持的流式调用）
+     */
+    private List<String> excludedPaths = new ArrayList<>();
+}
@@ -0,0 +1,44 @@
+package com.matching.config.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置
+ */
+@Data
+@ConfigurationProperties(prefix = "datasource.routing")
+public class DataSourceRoutingProperties {
+
+    /**
+     * 是否开启读写分离
+     */
+    private boolean enabled = false;
+
+    /**
+     * 从库连接失败后暂停使用的时间（毫秒）
+     */
+    private long replicaRetryIntervalMs = 30000;
+
+    /**
+     * 用户数据写入后，该用户的读取固定走主库的时长（毫秒），应大于从库的最大复制延迟
+     */
+    private long readYourWritesMs = 5000;
+
+    /**
+     * 从库列表
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+    }
+}
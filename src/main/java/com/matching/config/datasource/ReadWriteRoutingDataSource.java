@@ -0,0 +1,111 @@
+package com.matching.config.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离数据源 - 只读事务轮询分发到从库，其余请求走主库
+ * <p>
+ * 需包裹在 LazyConnectionDataSourceProxy 中使用，保证事务的 readOnly 标记在获取连接前已生效。
+ * 从库获取连接失败时暂停使用该从库并回退到主库。
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaKeys;
+    private final long retryIntervalMs;
+    private final AtomicInteger counter = new AtomicInteger();
+    private final Map<String, Long> downUntil = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long retryIntervalMs) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.replicaKeys = List.copyOf(replicas.keySet());
+        this.retryIntervalMs = retryIntervalMs;
+    }
+
+    /**
+     * 构造完成后再登记主从数据源，由容器在初始化阶段调用
+     */
+    @Override
+    public void afterPropertiesSet() {
+        Map<Object, Object> targets = new ConcurrentHashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        super.afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaKeys.isEmpty()
+                || DataSourceRoutingContext.isPrimaryForced()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(counter.getAndIncrement(), replicaKeys.size());
+        for (int i = 0; i < replicaKeys.size(); i++) {
+            String key = replicaKeys.get((start + i) % replicaKeys.size());
+            Long until = downUntil.get(key);
+            if (until == null || until <= now) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        DataSource target = getResolvedDataSources().get(key);
+        if (PRIMARY.equals(key)) {
+            return target.getConnection();
+        }
+        try {
+            Connection connection = target.getConnection();
+            downUntil.remove(key);
+            return connection;
+        } catch (SQLException e) {
+            markDown((String) key, e);
+            return getResolvedDataSources().get(PRIMARY).getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * 关闭从库连接池，主库连接池由容器管理
+     */
+    @Override
+    public void destroy() throws Exception {
+        for (String key : replicaKeys) {
+            if (getResolvedDataSources().get(key) instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private void markDown(String key, SQLException e) {
+        downUntil.put(key, System.currentTimeMillis() + retryIntervalMs);
+        log.warn("Replica {} unavailable, falling back to primary for {}ms: {}", key, retryIntervalMs, e.getMessage());
+    }
+}
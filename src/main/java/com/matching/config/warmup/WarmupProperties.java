@@ -0,0 +1,50 @@
+package com.matching.config.warmup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 启动预热配置
+ */
+@Data
+@ConfigurationProperties(prefix = "warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 进程内调用登录、Token 校验、密码策略与 JSON 序列化的轮数
+     */
+    private int iterations = 300;
+
+    /**
+     * 登录成功路径（签发/校验/吊销 Token、设备记录、用户信息缓存写入、Outbox 读取）的轮数；
+     * 使用合成 userId，每轮的 Token 在结束时吊销，黑名单条目随 Access Token 有效期过期
+     */
+    private int successIterations = 50;
+
+    /**
+     * BCrypt 校验次数；单次即有数千轮内循环，少量调用足以触发 C2 编译
+     */
+    private int bcryptIterations = 5;
+
+    /**
+     * 经本机回环发送的 HTTP 请求轮数（登录 + 用户信息），覆盖 Tomcat、安全过滤链与 MVC
+     */
+    private int httpRequests = 100;
+
+    /**
+     * 预热总时长上限，超时后跳过剩余步骤直接就绪
+     */
+    private long maxDurationMs = 30000;
+
+    /**
+     * 是否把泄露密码过滤器的映射文件读入页缓存
+     */
+    private boolean preloadBreachedFilter = true;
+
+    /**
+     * 按最近登录（Outbox 中的 USER_LOGGED_IN，保留期内）预加载到用户信息缓存的用户数上限，0 表示不预加载
+     */
+    private int preloadActiveUsers = 1000;
+}
@@ -0,0 +1,331 @@
+package com.matching.config.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matching.config.datasource.ReadWriteRoutingDataSource;
+import com.matching.user.dto.DeviceInfo;
+import com.matching.user.dto.LoginRequest;
+import com.matching.user.dto.RegisterRequest;
+import com.matching.user.entity.UserStatus;
+import com.matching.user.password.PasswordPolicy;
+import com.matching.user.repository.OutboxEventRepository;
+import com.matching.user.repository.shard.ShardedUserStore;
+import com.matching.user.service.AuthService;
+import com.matching.user.service.OutboxService;
+import com.matching.user.service.RedisKeys;
+import com.matching.user.service.TokenService;
+import com.matching.user.service.UserInfoCache;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 启动预热 - 在就绪状态切换为 ACCEPTING_TRAFFIC 之前执行
+ * <p>
+ * Spring Boot 在 ApplicationReadyEvent 的监听器全部返回后才发布 ReadinessState.ACCEPTING_TRAFFIC，
+ * 因此这里同步执行预热，期间 /ready 与 /actuator/health/readiness 返回 503，/health 仍为 UP。
+ * 预热只使用合成数据（不存在的用户名、随机 Token、负数 userId），不写入任何业务数据：登录成功路径的 Outbox 只做单行读取
+ * （回滚的插入会消耗自增 id、给 relay 留下空洞），产生的 Redis Key 在步骤结束时删除；用户信息缓存按最近登录的真实用户预加载（只读数据库、回填缓存）。
+ * 合成用户名带注册校验不允许的连字符前缀，预热期间这些登录不写审计日志（见 {@link #isSyntheticLogin}）。
+ * 任一步骤失败只记录日志，不阻止就绪。
+ */
+@Slf4j
+@Component
+@Profile("!test")
+@EnableConfigurationProperties(WarmupProperties.class)
+public class WarmupRunner implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String SYNTHETIC_PASSWORD = "Warmup-Passw0rd";
+    private static final String SYNTHETIC_PREFIX = "__warmup-";
+    private static final long SYNTHETIC_USER_ID = -1L;
+    private static final int PRELOAD_BATCH = 100;
+
+    @Autowired
+    private WarmupProperties properties;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private PasswordPolicy passwordPolicy;
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserInfoCache userInfoCache;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ObjectProvider<DataSource> dataSources;
+
+    @Autowired
+    private ObjectProvider<ShardedUserStore> shardedUserStore;
+
+    private volatile boolean running;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + properties.getMaxDurationMs();
+
+        running = true;
+        try {
+            step("connection pools", () -> prefillPools());
+            step("hot caches", () -> preloadCaches(deadline));
+            step("auth paths", () -> exerciseAuthPaths(deadline));
+            step("login success", () -> exerciseLoginSuccess(deadline));
+            step("bcrypt", () -> exerciseBcrypt(deadline));
+            step("http", () -> exerciseHttp(event.getApplicationContext(), deadline));
+        } finally {
+            running = false;
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        if (elapsed > properties.getMaxDurationMs()) {
+            log.warn("Warm-up hit max duration: {}ms, remaining steps were cut short", elapsed);
+        } else {
+            log.info("Warm-up completed in {}ms, marking service ready", elapsed);
+        }
+    }
+
+    private void step(String name, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+            log.info("Warm-up step '{}' finished in {}ms", name, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Warm-up step '{}' failed, continuing: {}", name, e.toString());
+        }
+    }
+
+    /**
+     * 同时借出每个 Hikari 池 minimumIdle 个连接，迫使连接池在接流量前建满；
+     * Redis 发一次 PING 建立 Lettuce 共享连接
+     */
+    private void prefillPools() {
+        for (HikariDataSource pool : hikariPools()) {
+            int target = Math.max(pool.getMinimumIdle(), 1);
+            List<Connection> borrowed = new ArrayList<>(target);
+            try {
+                for (int i = 0; i < target; i++) {
+                    Connection connection = pool.getConnection();
+                    borrowed.add(connection);
+                    connection.isValid(2);
+                }
+            } catch (Exception e) {
+                log.warn("Warm-up could not fill pool {}: {}", pool.getPoolName(), e.toString());
+            } finally {
+                for (Connection connection : borrowed) {
+                    try {
+                        connection.close();
+                    } catch (Exception ignored) {
+                    }
+                }
+            }
+            log.info("Warm-up filled pool {} with {} connections", pool.getPoolName(), borrowed.size());
+        }
+        redisTemplate.execute(connection -> connection.ping(), true);
+    }
+
+    private Set<HikariDataSource> hikariPools() {
+        Set<HikariDataSource> pools = new LinkedHashSet<>();
+        dataSources.orderedStream().forEach(dataSource -> {
+            if (dataSource instanceof HikariDataSource hikari) {
+                pools.add(hikari);
+            } else if (dataSource instanceof ReadWriteRoutingDataSource routing) {
+                routing.getResolvedDataSources().values().forEach(target -> {
+                    if (target instanceof HikariDataSource hikari) {
+                        pools.add(hikari);
+                    }
+                });
+            }
+        });
+        ShardedUserStore sharded = shardedUserStore.getIfAvailable();
+        if (sharded != null) {
+            pools.addAll(sharded.getShardDataSources());
+        }
+        return pools;
+    }
+
+    /**
+     * 泄露密码过滤器读入页缓存；最近登录的用户（Outbox 保留期内的 USER_LOGGED_IN，按时间倒序去重）
+     * 经批量读取回填用户信息缓存，已在缓存中的只是一次命中
+     */
+    private void preloadCaches(long deadline) {
+        if (properties.isPreloadBreachedFilter()) {
+            long bytes = passwordPolicy.preloadBreachedFilter();
+            log.info("Warm-up loaded breached password filter: {} bytes", bytes);
+        }
+        int limit = properties.getPreloadActiveUsers();
+        if (limit <= 0) {
+            return;
+        }
+        Set<Long> recent = new LinkedHashSet<>(outboxEventRepository.findRecentUserIds(
+                OutboxService.USER_LOGGED_IN, PageRequest.of(0, limit * 4)));
+        List<Long> userIds = new ArrayList<>(recent).subList(0, Math.min(limit, recent.size()));
+        int loaded = 0;
+        for (int from = 0; from < userIds.size() && System.currentTimeMillis() < deadline; from += PRELOAD_BATCH) {
+            loaded += userInfoCache.getAll(userIds.subList(from, Math.min(from + PRELOAD_BATCH, userIds.size()))).size();
+        }
+        log.info("Warm-up preloaded user info cache: {} of {} recently active users", loaded, userIds.size());
+    }
+
+    /**
+     * 登录（不存在的用户名，走 Redis 失败计数读取与凭证查询）、Token 校验（随机 Token）、
+     * 密码策略与请求/响应 JSON 序列化
+     */
+    private void exerciseAuthPaths(long deadline) {
+        for (int i = 0; i < properties.getIterations() && System.currentTimeMillis() < deadline; i++) {
+            LoginRequest login = new LoginRequest();
+            login.setUsername(syntheticUsername());
+            login.setPassword(SYNTHETIC_PASSWORD);
+            try {
+                authService.login(login, null);
+            } catch (RuntimeException expected) {
+                // 合成用户不存在
+            }
+
+            tokenService.verifyToken(UUID.randomUUID().toString().replace("-", ""));
+            try {
+                passwordPolicy.validate(SYNTHETIC_PASSWORD + i);
+            } catch (RuntimeException ignored) {
+                // 只为执行校验路径，结果无关
+            }
+
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(login);
+                objectMapper.readValue(json, LoginRequest.class);
+                RegisterRequest register = new RegisterRequest();
+                register.setUsername(login.getUsername());
+                register.setEmail(login.getUsername() + "@warmup.invalid");
+                register.setPassword(SYNTHETIC_PASSWORD);
+                objectMapper.readValue(objectMapper.writeValueAsBytes(register), RegisterRequest.class);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("token", UUID.randomUUID().toString());
+                response.put("userId", (long) i);
+                response.put("username", login.getUsername());
+                objectMapper.writeValueAsBytes(response);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 登录成功后的各步骤（合成 userId）：签发并校验 Access/Refresh Token、记录设备、按登录时的字段写入用户信息缓存、
+     * 按 relay 的查询读取一行 Outbox、登出吊销；结束时吊销剩余 Token 并删除设备与缓存 Key。
+     * 不计入活跃用户统计
+     */
+    private void exerciseLoginSuccess(long deadline) {
+        String username = syntheticUsername();
+        DeviceInfo device = new DeviceInfo();
+        device.setDeviceId(username);
+        try {
+            for (int i = 0; i < properties.getSuccessIterations() && System.currentTimeMillis() < deadline; i++) {
+                String accessToken = tokenService.generateAccessToken(SYNTHETIC_USER_ID, username);
+                String refreshToken = tokenService.generateRefreshToken(SYNTHETIC_USER_ID);
+                tokenService.verifyToken(accessToken);
+                tokenService.verifyToken(refreshToken);
+
+                authService.recordDevice(SYNTHETIC_USER_ID, device);
+                userInfoCache.put(SYNTHETIC_USER_ID, UserInfoCache.fields(SYNTHETIC_USER_ID, username,
+                        username + "@warmup.invalid", UserStatus.ACTIVE, System.currentTimeMillis()));
+
+                outboxEventRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1));
+
+                tokenService.revokeToken(SYNTHETIC_USER_ID, accessToken);
+            }
+        } finally {
+            tokenService.revokeAllTokens(SYNTHETIC_USER_ID);
+            userInfoCache.evict(SYNTHETIC_USER_ID);
+            redisTemplate.delete(List.of(RedisKeys.userDevices(SYNTHETIC_USER_ID), RedisKeys.device(device.getDeviceId())));
+        }
+    }
+
+    private void exerciseBcrypt(long deadline) {
+        String hash = passwordEncoder.encode(SYNTHETIC_PASSWORD);
+        for (int i = 0; i < properties.getBcryptIterations() && System.currentTimeMillis() < deadline; i++) {
+            passwordEncoder.matches(SYNTHETIC_PASSWORD, hash);
+        }
+    }
+
+    /**
+     * 经本机回环请求登录与用户信息接口，两者均以 401 结束
+     */
+    private void exerciseHttp(ApplicationContext context, long deadline) {
+        if (properties.getHttpRequests() <= 0 || !(context instanceof WebServerApplicationContext web)) {
+            return;
+        }
+        String base = "http://127.0.0.1:" + web.getWebServer().getPort();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        try {
+            for (int i = 0; i < properties.getHttpRequests() && System.currentTimeMillis() < deadline; i++) {
+                String body = "{\"username\":\"" + syntheticUsername() + "\",\"password\":\"" + SYNTHETIC_PASSWORD + "\"}";
+                client.send(HttpRequest.newBuilder(URI.create(base + "/user/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                client.send(HttpRequest.newBuilder(URI.create(base + "/user/info"))
+                        .header("Authorization", "Bearer " + UUID.randomUUID().toString().replace("-", ""))
+                        .GET()
+                        .build(), HttpResponse.BodyHandlers.discarding());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 预热进行中且用户名为合成用户名；预热结束后恒为 false，同名的外部登录照常审计
+     */
+    public boolean isSyntheticLogin(String username) {
+        return running && username != null && username.startsWith(SYNTHETIC_PREFIX);
+    }
+
+    private static String syntheticUsername() {
+        return SYNTHETIC_PREFIX + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,130 @@
+package com.matching.user.analytics;
+
+import com.matching.user.event.UserRegisteredEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 活跃用户统计 - 每天每个指标一个 HyperLogLog（analytics:{hll}:<metric>:<yyyyMMdd>）
+ * <p>
+ * 登录成功写入 active，注册提交后写入 signup。每个 Key 最多约 12KB，任意日期区间的去重数
+ * 由 PFCOUNT 对多个 Key 求并集得到，标准误差约 0.81%，适合看板而不适合计费。
+ * 所有 Key 共用 hash tag {hll}，Redis Cluster 下落在同一 slot，多 Key 的 PFCOUNT 不会 CROSSSLOT。
+ * 写入失败只记日志，不影响登录与注册。
+ */
+@Slf4j
+@Service
+@Profile("!test")
+public class ActiveUserAnalytics {
+
+    public static final String ACTIVE = "active";
+    public static final String SIGNUP = "signup";
+    public static final Set<String> METRICS = Set.of(ACTIVE, SIGNUP);
+
+    private static final String KEY_PREFIX = "analytics:{hll}:";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int WEEK_DAYS = 7;
+    private static final int MONTH_DAYS = 30;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${analytics.zone:Asia/Shanghai}")
+    private ZoneId zone;
+
+    @Value("${analytics.retention-days:400}")
+    private int retentionDays;
+
+    /**
+     * 指标 → 本节点已设置过期的当天 Key
+     */
+    private final Map<String, String> expiringKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 登录成功时调用
+     */
+    public void recordLogin(Long userId) {
+        record(ACTIVE, userId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        record(SIGNUP, event.userId());
+    }
+
+    /**
+     * 当天（统计时区）
+     */
+    public LocalDate today() {
+        return LocalDate.now(zone);
+    }
+
+    /**
+     * [from, to] 闭区间内的去重用户数
+     */
+    public long count(String metric, LocalDate from, LocalDate to) {
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        String[] keys = new String[days];
+        for (int i = 0; i < days; i++) {
+            keys[i] = key(metric, from.plusDays(i));
+        }
+        Long count = stringRedisTemplate.opsForHyperLogLog().size(keys);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * 截至 date（含）的日、周（7 天）、月（30 天）活跃与注册数
+     */
+    public Map<String, Object> summary(LocalDate date) {
+        Map<String, Object> active = new LinkedHashMap<>();
+        active.put("dau", count(ACTIVE, date, date));
+        active.put("wau", count(ACTIVE, date.minusDays(WEEK_DAYS - 1), date));
+        active.put("mau", count(ACTIVE, date.minusDays(MONTH_DAYS - 1), date));
+
+        Map<String, Object> signups = new LinkedHashMap<>();
+        signups.put("day", count(SIGNUP, date, date));
+        signups.put("week", count(SIGNUP, date.minusDays(WEEK_DAYS - 1), date));
+        signups.put("month", count(SIGNUP, date.minusDays(MONTH_DAYS - 1), date));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("date", date.toString());
+        summary.put("active", active);
+        summary.put("signups", signups);
+        return summary;
+    }
+
+    private void record(String metric, Long userId) {
+        String key = key(metric, today());
+        try {
+            // PFADD 只要有寄存器变化就返回 1（当天每个新用户几乎都会），不能据此判断 Key 是否新建；
+            // 按本节点记录的当天 Key 只在第一次写入后设置过期，每个节点每天每个指标一次 EXPIRE
+            stringRedisTemplate.opsForHyperLogLog().add(key, userId.toString());
+            if (!key.equals(expiringKeys.get(metric))) {
+                stringRedisTemplate.expire(key, Duration.ofDays(retentionDays));
+                expiringKeys.put(metric, key);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to record {} for userId={}", metric, userId, e);
+        }
+    }
+
+    private static String key(String metric, LocalDate day) {
+        return KEY_PREFIX + metric + ":" + DAY_FORMAT.format(day);
+    }
+}
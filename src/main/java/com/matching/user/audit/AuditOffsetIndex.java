@@ -0,0 +1,93 @@
+package com.matching.user.audit;
+
+/**
+ * 用户名哈希 → 最新一条审计记录偏移，开放寻址的原始类型哈希表（线性探测，键 0 表示空槽）
+ * <p>
+ * 不装箱，负载因子保持在 0.25-0.5，每个用户 32-64 字节。非线程安全，由 {@link LoginAuditLog} 加锁访问。
+ */
+class AuditOffsetIndex {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private long[] offsets = new long[MIN_CAPACITY];
+    private int size;
+
+    /**
+     * 不存在时返回 -1
+     */
+    long get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = spread(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return offsets[slot];
+            }
+            if (keys[slot] == 0) {
+                return -1;
+            }
+        }
+    }
+
+    void put(long key, long offset) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = spread(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        offsets[slot] = offset;
+    }
+
+    /**
+     * 删除最新记录已不在保留范围内的用户（重建整张表，只在删除日志段时调用）
+     */
+    void removeBelow(long oldestOffset) {
+        long[] oldKeys = keys;
+        long[] oldOffsets = offsets;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldOffsets[i] >= oldestOffset) {
+                live++;
+            }
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < live * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        offsets = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldOffsets[i] >= oldestOffset) {
+                put(oldKeys[i], oldOffsets[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldOffsets = offsets;
+        keys = new long[capacity];
+        offsets = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldOffsets[i]);
+            }
+        }
+    }
+
+    private static int spread(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
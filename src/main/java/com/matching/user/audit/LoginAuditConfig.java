@@ -0,0 +1,36 @@
+package com.matching.user.audit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+/**
+ * 登录审计日志配置 - audit.login.enabled=false 时不创建，登录流程跳过审计
+ */
+@Configuration
+@Profile("!test")
+@EnableConfigurationProperties(LoginAuditProperties.class)
+public class LoginAuditConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "audit.login", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public LoginAuditLog loginAuditLog(LoginAuditProperties properties, MeterRegistry meterRegistry) throws IOException {
+        LoginAuditLog auditLog = LoginAuditLog.open(properties);
+        FunctionCounter.builder("user.audit.login.appended", auditLog, LoginAuditLog::appendCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("user.audit.login.syncs", auditLog, LoginAuditLog::syncCount)
+                .register(meterRegistry);
+        Gauge.builder("user.audit.login.indexed-users", auditLog, LoginAuditLog::indexedUsers)
+                .register(meterRegistry);
+        Gauge.builder("user.audit.login.segments", auditLog, LoginAuditLog::segmentCount)
+                .register(meterRegistry);
+        return auditLog;
+    }
+}
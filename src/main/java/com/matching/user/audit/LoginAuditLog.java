@@ -0,0 +1,549 @@
+package com.matching.user.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 登录审计日志 - 本地磁盘上的分段追加日志，经内存映射写入
+ * <p>
+ * 记录格式（大端）：体长度、体 CRC32，体为时间戳、同一用户名上一条记录的偏移、userId，
+ * 以及结果、用户名、IP、设备号、User-Agent（各以 2 字节长度前缀，-1 表示 null）。
+ * 偏移是全局字节位置（段起始偏移 + 段内位置），段文件名即起始偏移。内存中只保存用户名哈希到最新一条记录偏移的
+ * 映射（{@link AuditOffsetIndex}），"最近 N 次"沿记录中的反向指针在映射区上回溯；用户名不存在的尝试不进索引。
+ * <p>
+ * 写入只是一次内存拷贝；后台线程合并刷盘（group commit），syncOnWrite 时调用方等待覆盖自己记录的那次 force，
+ * 同时到达的写入共用一次 fsync。段写满或写入超过 rollInterval 时封存（刷盘并截断到实际长度），
+ * 按保留时长与总大小删除最旧的封存段。启动时顺序扫描全部段、校验 CRC 重建索引，遇到不完整的记录即视为该段末尾。
+ */
+@Slf4j
+public class LoginAuditLog implements AutoCloseable {
+
+    static final String FILE_PREFIX = "login-audit-";
+    static final String FILE_SUFFIX = ".log";
+
+    private static final int HEADER_BYTES = 8;
+    private static final int PREV_OFFSET_POSITION = 8;
+    private static final int FIXED_BODY_BYTES = 24;
+    private static final int MAX_FIELD_CHARS = 256;
+    private static final int MAX_SEGMENT_MB = 1024;
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    private static final int TAIL_CLEAR_BYTES = 64 * 1024;
+    private static final long RETENTION_CHECK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String NOT_FOUND = "NOT_FOUND";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long rollIntervalMillis;
+    private final long retentionMillis;
+    private final long maxTotalBytes;
+    private final boolean syncOnWrite;
+    private final long syncIntervalMillis;
+    private final long syncTimeoutMillis;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    // 以下字段由 this 保护
+    private final AuditOffsetIndex index = new AuditOffsetIndex();
+    private Segment active;
+    private long nextOffset;
+
+    // 刷盘状态由 syncLock 保护
+    private final Object syncLock = new Object();
+    private boolean syncRequested;
+    private volatile long syncedOffset;
+
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private volatile boolean running = true;
+    private final Thread syncThread;
+
+    private LoginAuditLog(LoginAuditProperties properties) {
+        if (properties.getSegmentSizeMb() < 1 || properties.getSegmentSizeMb() > MAX_SEGMENT_MB) {
+            throw new IllegalArgumentException("audit.login.segment-size-mb 取值范围 1-" + MAX_SEGMENT_MB);
+        }
+        this.directory = Path.of(properties.getDirectory());
+        this.segmentBytes = Math.max(properties.getSegmentSizeMb() << 20, MIN_SEGMENT_BYTES);
+        this.rollIntervalMillis = TimeUnit.MINUTES.toMillis(properties.getRollIntervalMinutes());
+        this.retentionMillis = TimeUnit.DAYS.toMillis(properties.getRetentionDays());
+        this.maxTotalBytes = properties.getMaxTotalMb() << 20;
+        this.syncOnWrite = properties.isSyncOnWrite();
+        this.syncIntervalMillis = Math.max(1, properties.getSyncIntervalMs());
+        this.syncTimeoutMillis = properties.getSyncTimeoutMs();
+        this.syncThread = new Thread(this::syncLoop, "login-audit-sync");
+        this.syncThread.setDaemon(true);
+    }
+
+    /**
+     * 打开（或新建）日志目录，扫描已有段重建索引后启动刷盘线程
+     */
+    public static LoginAuditLog open(LoginAuditProperties properties) throws IOException {
+        LoginAuditLog auditLog = new LoginAuditLog(properties);
+        auditLog.recover();
+        auditLog.syncThread.start();
+        return auditLog;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 追加一条记录；syncOnWrite 时返回前记录已刷盘
+     */
+    public void append(LoginAuditRecord record) throws IOException {
+        byte[] body = encode(record);
+        boolean indexed = record.username() != null && !NOT_FOUND.equals(record.outcome());
+        long key = indexed ? key(record.username()) : 0;
+        long end;
+        synchronized (this) {
+            if (!running) {
+                throw new IOException("Login audit log is closed");
+            }
+            long now = System.currentTimeMillis();
+            int size = HEADER_BYTES + body.length;
+            if (active.used + size > active.capacity
+                    || (active.used > 0 && now - active.createdMillis >= rollIntervalMillis)) {
+                roll(now);
+            }
+            if (indexed) {
+                ByteBuffer.wrap(body).putLong(PREV_OFFSET_POSITION, index.get(key));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            int position = active.used;
+            // 长度最后写入，进程在写入中途退出时该记录长度为 0，恢复时视为末尾
+            active.buffer.put(position + HEADER_BYTES, body);
+            active.buffer.putInt(position + 4, (int) crc.getValue());
+            active.buffer.putInt(position, body.length);
+            active.used = position + size;
+            nextOffset = active.base + active.used;
+            if (indexed) {
+                index.put(key, active.base + position);
+            }
+            end = nextOffset;
+        }
+        appends.incrementAndGet();
+        if (syncOnWrite) {
+            awaitSynced(end);
+        }
+    }
+
+    private void awaitSynced(long offset) throws IOException {
+        long deadline = System.currentTimeMillis() + syncTimeoutMillis;
+        synchronized (syncLock) {
+            syncRequested = true;
+            syncLock.notifyAll();
+            try {
+                while (syncedOffset < offset) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0 || !running) {
+                        throw new IOException("Login audit sync timed out at offset " + offset);
+                    }
+                    syncLock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for login audit sync", e);
+            }
+        }
+    }
+
+    /**
+     * 刷盘线程：有等待者时立即刷盘，否则每 syncInterval 检查一次；刷盘期间到达的写入由下一次 force 一并覆盖
+     */
+    private void syncLoop() {
+        long lastRetentionCheck = System.currentTimeMillis();
+        while (running) {
+            synchronized (syncLock) {
+                if (!syncRequested) {
+                    try {
+                        syncLock.wait(syncIntervalMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                syncRequested = false;
+            }
+            syncNow();
+            long now = System.currentTimeMillis();
+            if (now - lastRetentionCheck >= RETENTION_CHECK_MILLIS) {
+                lastRetentionCheck = now;
+                synchronized (this) {
+                    applyRetention(now);
+                }
+            }
+        }
+    }
+
+    private void syncNow() {
+        Segment segment;
+        int from;
+        int to;
+        long target;
+        synchronized (this) {
+            target = nextOffset;
+            if (target <= syncedOffset) {
+                return;
+            }
+            segment = active;
+            from = (int) Math.max(0, syncedOffset - segment.base);
+            to = segment.used;
+        }
+        try {
+            // 封存的段在封存时已刷盘，这里只需覆盖活动段中上次刷盘之后的部分
+            if (to > from) {
+                segment.buffer.force(from, to - from);
+            }
+            syncs.incrementAndGet();
+            advanceSynced(target);
+        } catch (UncheckedIOException e) {
+            log.error("Login audit sync failed", e);
+        }
+    }
+
+    private void advanceSynced(long offset) {
+        synchronized (syncLock) {
+            if (offset > syncedOffset) {
+                syncedOffset = offset;
+            }
+            syncLock.notifyAll();
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 用户名（忽略大小写）最近 limit 次登录尝试，新的在前；不含已过保留期的记录
+     */
+    public List<LoginAuditRecord> recent(String username, int limit) {
+        long offset;
+        synchronized (this) {
+            offset = index.get(key(username));
+        }
+        List<LoginAuditRecord> result = new ArrayList<>();
+        while (offset >= 0 && result.size() < limit) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(offset);
+            if (entry == null) {
+                break;
+            }
+            Segment segment = entry.getValue();
+            int position = (int) (offset - segment.base);
+            byte[] body = new byte[segment.buffer.getInt(position)];
+            segment.buffer.get(position + HEADER_BYTES, body);
+            LoginAuditRecord record = decode(body);
+            // 哈希冲突时链上会混入其他用户名的记录
+            if (username.equalsIgnoreCase(record.username())) {
+                result.add(record);
+            }
+            offset = ByteBuffer.wrap(body).getLong(PREV_OFFSET_POSITION);
+        }
+        return result;
+    }
+
+    public long appendCount() {
+        return appends.get();
+    }
+
+    public long syncCount() {
+        return syncs.get();
+    }
+
+    public synchronized int indexedUsers() {
+        return index.size();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 当前写入位置（全部段的累计字节数，含已删除的段）
+     */
+    public synchronized long endOffset() {
+        return nextOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        synchronized (syncLock) {
+            syncLock.notifyAll();
+        }
+        try {
+            syncThread.join(syncTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            active.buffer.force();
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    // ==================== 段管理 ====================
+
+    /**
+     * 封存活动段并新建下一个段；调用方持有 this
+     */
+    private void roll(long now) throws IOException {
+        Segment sealed = active;
+        sealed.seal(now);
+        advanceSynced(sealed.base + sealed.used);
+        active = Segment.create(segmentPath(sealed.base + sealed.used), sealed.base + sealed.used, segmentBytes, now);
+        segments.put(active.base, active);
+        nextOffset = active.base;
+        applyRetention(now);
+    }
+
+    /**
+     * 从最旧的封存段开始删除，直到总大小与保留时长都满足；调用方持有 this
+     */
+    private void applyRetention(long now) {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.used;
+        }
+        boolean removed = false;
+        for (Segment segment : segments.values()) {
+            if (segment == active || (total <= maxTotalBytes && now - segment.sealedMillis <= retentionMillis)) {
+                break;
+            }
+            segments.remove(segment.base);
+            total -= segment.used;
+            removed = true;
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Failed to delete login audit segment {}", segment.path, e);
+            }
+        }
+        if (removed) {
+            index.removeBelow(segments.firstKey());
+        }
+    }
+
+    private synchronized void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().startsWith(FILE_PREFIX)
+                            && path.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < files.size(); i++) {
+            Path path = files.get(i);
+            String name = path.getFileName().toString();
+            long base = Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+            boolean last = i == files.size() - 1;
+            Segment segment = Segment.open(path, base, last ? segmentBytes : 0);
+            segment.used = scan(segment);
+            if (last) {
+                segment.clearTail();
+                active = segment;
+            } else {
+                segment.sealed = true;
+            }
+            segments.put(base, segment);
+        }
+        if (active == null) {
+            active = Segment.create(segmentPath(0), 0, segmentBytes, now);
+            segments.put(0L, active);
+        }
+        nextOffset = active.base + active.used;
+        syncedOffset = nextOffset;
+        log.info("Login audit log opened: dir={}, segments={}, bytes={}, indexedUsers={}",
+                directory, segments.size(), nextOffset - segments.firstKey(), index.size());
+    }
+
+    /**
+     * 校验并索引段内记录，返回有效数据的长度
+     */
+    private int scan(Segment segment) {
+        int position = 0;
+        while (position + HEADER_BYTES <= segment.capacity) {
+            int length = segment.buffer.getInt(position);
+            if (length < FIXED_BODY_BYTES || position + HEADER_BYTES + length > segment.capacity) {
+                break;
+            }
+            byte[] body = new byte[length];
+            segment.buffer.get(position + HEADER_BYTES, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                log.warn("Login audit segment {} truncated at {}: checksum mismatch", segment.path, position);
+                break;
+            }
+            LoginAuditRecord record = decode(body);
+            if (record.username() != null && !NOT_FOUND.equals(record.outcome())) {
+                index.put(key(record.username()), segment.base + position);
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%s%020d%s", FILE_PREFIX, base, FILE_SUFFIX));
+    }
+
+    // ==================== 编解码 ====================
+
+    private static byte[] encode(LoginAuditRecord record) {
+        byte[][] fields = {utf8(record.outcome()), utf8(record.username()), utf8(record.ip()),
+                utf8(record.deviceId()), utf8(record.userAgent())};
+        int size = FIXED_BODY_BYTES;
+        for (byte[] field : fields) {
+            size += 2 + (field == null ? 0 : field.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(record.timestamp());
+        buffer.putLong(-1L);
+        buffer.putLong(record.userId() == null ? 0L : record.userId());
+        for (byte[] field : fields) {
+            if (field == null) {
+                buffer.putShort((short) -1);
+            } else {
+                buffer.putShort((short) field.length);
+                buffer.put(field);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static LoginAuditRecord decode(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        long timestamp = buffer.getLong();
+        buffer.getLong();
+        long userId = buffer.getLong();
+        String[] fields = new String[5];
+        for (int i = 0; i < fields.length; i++) {
+            short length = buffer.getShort();
+            if (length >= 0) {
+                fields[i] = new String(body, buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            }
+        }
+        return new LoginAuditRecord(timestamp, userId == 0 ? null : userId,
+                fields[1], fields[0], fields[2], fields[3], fields[4]);
+    }
+
+    /**
+     * 超长字段按字符截断，不拆开代理对
+     */
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() > MAX_FIELD_CHARS) {
+            int end = Character.isHighSurrogate(value.charAt(MAX_FIELD_CHARS - 1)) ? MAX_FIELD_CHARS - 1 : MAX_FIELD_CHARS;
+            value = value.substring(0, end);
+        }
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 用户名转小写后的 64 位哈希（FNV-1a + fmix64），0 保留给空槽
+     */
+    static long key(String username) {
+        String normalized = username.toLowerCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash = (hash ^ normalized.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * 一个段文件：活动段按 segmentBytes 整段映射（文件随之扩展为稀疏文件），封存后截断到实际长度
+     */
+    private static final class Segment {
+        final long base;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final long createdMillis;
+        int used;
+        boolean sealed;
+        long sealedMillis;
+
+        private Segment(long base, Path path, FileChannel channel, MappedByteBuffer buffer, long createdMillis) {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+            this.createdMillis = createdMillis;
+            this.sealedMillis = createdMillis;
+        }
+
+        static Segment create(Path path, long base, int capacity, long now) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(base, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), now);
+        }
+
+        /**
+         * minCapacity 大于 0 时以读写方式映射并扩展到该大小（作为活动段继续写入），否则只读映射现有内容
+         */
+        static Segment open(Path path, long base, int minCapacity) throws IOException {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (minCapacity > 0) {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                int capacity = (int) Math.max(channel.size(), minCapacity);
+                return new Segment(base, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), modified);
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            return new Segment(base, path, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), modified);
+        }
+
+        /**
+         * 清掉上次写入中断可能留下的残余字节，避免新记录之后被误读为有效数据
+         */
+        void clearTail() {
+            int end = Math.min(capacity, used + TAIL_CLEAR_BYTES);
+            for (int i = used; i < end; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        void seal(long now) throws IOException {
+            buffer.force();
+            channel.truncate(used);
+            sealed = true;
+            sealedMillis = now;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.matching.user.audit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 登录审计日志配置
+ */
+@Data
+@ConfigurationProperties(prefix = "audit.login")
+public class LoginAuditProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 段文件目录（本地磁盘，每个实例独立）
+     */
+    private String directory = "logs/login-audit";
+
+    /**
+     * 单个段的大小上限（MB，整段预先映射，最大 1024）
+     */
+    private int segmentSizeMb = 64;
+
+    /**
+     * 段最长写入时长，超过即封存并开始新段
+     */
+    private long rollIntervalMinutes = 1440;
+
+    /**
+     * 封存段的保留时长与全部段的总大小上限，任一超出即删除最旧的封存段
+     */
+    private long retentionDays = 90;
+    private long maxTotalMb = 4096;
+
+    /**
+     * true 时登录请求等待覆盖自己记录的那次刷盘（同时到达的写入共用一次 fsync）；
+     * false 时只写入映射内存，由后台按 sync-interval-ms 刷盘，进程崩溃不丢、掉电最多丢一个间隔
+     */
+    private boolean syncOnWrite = true;
+
+    /**
+     * 无写入请求等待时的后台刷盘间隔
+     */
+    private long syncIntervalMs = 200;
+
+    /**
+     * 等待刷盘的最长时间，超时记错误日志但不影响登录结果
+     */
+    private long syncTimeoutMs = 2000;
+}
@@ -0,0 +1,12 @@
+package com.matching.user.audit;
+
+/**
+ * 一次登录尝试
+ *
+ * @param timestamp 毫秒时间戳
+ * @param userId    用户不存在或在查询用户前被拒绝（如已锁定）时为 null
+ * @param outcome   与 LoginEvent 相同：SUCCESS / BAD_PASSWORD / LOCKED_OUT / NOT_FOUND / INACTIVE / ERROR
+ */
+public record LoginAuditRecord(long timestamp, Long userId, String username, String outcome,
+                               String ip, String deviceId, String userAgent) {
+}
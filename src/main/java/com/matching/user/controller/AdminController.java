@@ -0,0 +1,132 @@
+package com.matching.user.controller;
+
+import com.matching.user.entity.UserStatus;
+import com.matching.user.jfr.JfrRecordingService;
+import com.matching.user.security.AuthenticatedUser;
+import com.matching.user.service.AuthService;
+import com.matching.user.service.ReferralService;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 运维接口 - /admin/** 仅管理员（admin.user-ids）可调用，由 SecurityConfig 统一校验
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final Set<String> JFR_SETTINGS = Set.of("default", "profile");
+
+    @Autowired
+    private JfrRecordingService jfrRecordingService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private ReferralService referralService;
+
+    @Value("${admin.jfr.max-seconds:300}")
+    private int maxRecordingSeconds;
+
+    /**
+     * 录制指定时长的 JFR 并以 .jfr 文件返回（异步输出，不占用请求线程）
+     */
+    @PostMapping("/jfr/recording")
+    public ResponseEntity<StreamingResponseBody> jfrRecording(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(defaultValue = "30") int seconds,
+            @RequestParam(defaultValue = "profile") String settings) {
+        if (seconds < 1 || seconds > maxRecordingSeconds) {
+            return error(400, "seconds 取值范围 1-" + maxRecordingSeconds);
+        }
+        if (!JFR_SETTINGS.contains(settings)) {
+            return error(400, "settings 仅支持 default / profile");
+        }
+
+        Recording recording;
+        try {
+            recording = jfrRecordingService.start(settings);
+        } catch (IllegalStateException e) {
+            return error(409, e.getMessage());
+        } catch (Exception e) {
+            log.error("JFR recording start failed", e);
+            return error(500, "服务器错误");
+        }
+        log.info("JFR recording requested by userId={}, seconds={}", principal.userId(), seconds);
+
+        StreamingResponseBody body = out -> jfrRecordingService.finish(recording, Duration.ofSeconds(seconds), out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + recording.getName() + ".jfr\"")
+                .body(body);
+    }
+
+    /**
+     * 变更用户状态（禁用、锁定、恢复等）- 写入 USER_STATUS_CHANGED 事件，非 ACTIVE 时吊销该用户全部 Token
+     */
+    @PutMapping("/users/{userId}/status")
+    public ResponseEntity<?> changeStatus(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable Long userId,
+            @RequestBody Map<String, String> request) {
+        UserStatus status;
+        try {
+            status = UserStatus.valueOf(String.valueOf(request.get("status")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", "status 取值为 " + Arrays.toString(UserStatus.values())));
+        }
+        try {
+            authService.changeStatus(userId, status);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        }
+        log.info("User status change requested by userId={}: target={}, status={}", principal.userId(), userId, status);
+        return ResponseEntity.ok(Map.of("userId", userId, "status", status.name()));
+    }
+
+    /**
+     * 按注册顺序从数据库重放推荐关系，补上 Redis 中缺失的推荐计数（同步执行，已登记的注册跳过）
+     */
+    @PostMapping("/referral/rebuild")
+    public ResponseEntity<?> rebuildReferrals(@AuthenticationPrincipal AuthenticatedUser principal) {
+        log.info("Referral rebuild requested by userId={}", principal.userId());
+        try {
+            return ResponseEntity.ok(Map.of("recorded", referralService.rebuild()));
+        } catch (RuntimeException e) {
+            log.error("Referral rebuild failed", e);
+            return ResponseEntity.status(500).body(Map.of("error", "服务器错误"));
+        }
+    }
+
+    /**
+     * 返回类型须为 ResponseEntity<StreamingResponseBody> 才会走异步输出，错误响应同样以 JSON 字节写出
+     */
+    private static ResponseEntity<StreamingResponseBody> error(int status, String message) {
+        byte[] body = ("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(body));
+    }
+}
@@ -0,0 +1,82 @@
+package com.matching.user.controller;
+
+import com.matching.user.analytics.ActiveUserAnalytics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 活跃用户统计接口 - 仅管理员（admin.user-ids）可调用，日期格式 yyyy-MM-dd（analytics.zone 时区）
+ */
+@RestController
+@RequestMapping("/admin/analytics")
+@Profile("!test")
+public class AnalyticsController {
+
+    @Autowired
+    private ActiveUserAnalytics activeUserAnalytics;
+
+    @Value("${analytics.max-range-days:366}")
+    private int maxRangeDays;
+
+    /**
+     * 截至 date（默认今天）的 DAU / WAU / MAU 与日、周、月注册数
+     */
+    @GetMapping("/active-users")
+    public ResponseEntity<?> activeUsers(
+            @RequestParam(required = false) String date) {
+        LocalDate day;
+        try {
+            day = date == null ? activeUserAnalytics.today() : LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.status(400).body(Map.of("error", "日期格式应为 yyyy-MM-dd"));
+        }
+        return ResponseEntity.ok(activeUserAnalytics.summary(day));
+    }
+
+    /**
+     * 任意日期区间 [from, to] 的去重用户数
+     *
+     * @param metric active 登录活跃，signup 注册
+     */
+    @GetMapping("/range")
+    public ResponseEntity<?> range(
+            @RequestParam(defaultValue = ActiveUserAnalytics.ACTIVE) String metric,
+            @RequestParam String from,
+            @RequestParam String to) {
+        if (!ActiveUserAnalytics.METRICS.contains(metric)) {
+            return ResponseEntity.status(400).body(Map.of("error", "metric 仅支持 active / signup"));
+        }
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = LocalDate.parse(from);
+            end = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.status(400).body(Map.of("error", "日期格式应为 yyyy-MM-dd"));
+        }
+        long days = ChronoUnit.DAYS.between(start, end) + 1;
+        if (days < 1 || days > maxRangeDays) {
+            return ResponseEntity.status(400).body(Map.of("error", "日期区间须为 1-" + maxRangeDays + " 天"));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("metric", metric);
+        response.put("from", start.toString());
+        response.put("to", end.toString());
+        response.put("days", days);
+        response.put("count", activeUserAnalytics.count(metric, start, end));
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,70 @@
+package com.matching.user.controller;
+
+import com.matching.user.audit.LoginAuditLog;
+import com.matching.user.audit.LoginAuditRecord;
+import com.matching.user.entity.User;
+import com.matching.user.repository.UserStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 登录审计查询接口 - 仅管理员（admin.user-ids）可调用；只查询本实例磁盘上的审计日志
+ */
+@RestController
+@RequestMapping("/admin/audit")
+@Profile("!test")
+public class AuditController {
+
+    private static final int MAX_LIMIT = 200;
+
+    @Autowired
+    private ObjectProvider<LoginAuditLog> loginAuditLog;
+
+    @Autowired
+    private UserStore userStore;
+
+    /**
+     * 某用户最近 limit 次登录尝试（含失败），新的在前；按 userId 查询时取其当前用户名
+     */
+    @GetMapping("/logins")
+    public ResponseEntity<?> logins(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String username,
+            @RequestParam(defaultValue = "20") int limit) {
+        LoginAuditLog auditLog = loginAuditLog.getIfAvailable();
+        if (auditLog == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "登录审计未开启"));
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.status(400).body(Map.of("error", "limit 取值范围 1-" + MAX_LIMIT));
+        }
+        if (username == null || username.isBlank()) {
+            if (userId == null) {
+                return ResponseEntity.status(400).body(Map.of("error", "需提供 userId 或 username"));
+            }
+            Optional<User> user = userStore.findByUserId(userId);
+            if (user.isEmpty()) {
+                return ResponseEntity.status(404).body(Map.of("error", "用户不存在"));
+            }
+            username = user.get().getUsername();
+        }
+
+        List<LoginAuditRecord> records = auditLog.recent(username, limit);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("username", username);
+        response.put("count", records.size());
+        response.put("records", records);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,5 +1,9 @@
 package com.matching.user.controller;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -8,10 +12,15 @@ import java.util.Map;
 
 /**
  * 健康检查控制器
+ * <p>
+ * /health 为存活检查，进程启动即 UP；/ready 为就绪检查，启动预热完成前返回 503，负载均衡据此接入流量。
  */
 @RestController
 public class HealthController {
 
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
     @GetMapping("/health")
     public Map<String, Object> health() {
         Map<String, Object> response = new HashMap<>();
@@ -22,12 +31,22 @@ public class HealthController {
         return response;
     }
 
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", state == ReadinessState.ACCEPTING_TRAFFIC ? "READY" : "NOT_READY");
+        response.put("service", "user-service");
+        return ResponseEntity.status(state == ReadinessState.ACCEPTING_TRAFFIC ? 200 : 503).body(response);
+    }
+
     @GetMapping("/")
     public Map<String, Object> home() {
         Map<String, Object> response = new HashMap<>();
         response.put("message", "User Service is running");
         response.put("endpoints", new String[]{
             "/health",
+            "/ready",
             "/register",
             "/login",
             "/refresh",
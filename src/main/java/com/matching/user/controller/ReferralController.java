@@ -0,0 +1,68 @@
+package com.matching.user.controller;
+
+import com.matching.user.security.AuthenticatedUser;
+import com.matching.user.service.ReferralService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 推荐关系控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/user/referral")
+@Profile("!test")
+public class ReferralController {
+
+    private static final int MAX_TOP_LIMIT = 100;
+
+    @Autowired
+    private ReferralService referralService;
+
+    /**
+     * 当前用户的邀请码与各级下线数
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats(@AuthenticationPrincipal AuthenticatedUser principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token 无效或已过期"));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("userId", principal.userId());
+        try {
+            response.put("inviteCode", referralService.getInviteCode(principal.userId()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(503).body(Map.of("error", e.getMessage()));
+        }
+        response.put("counts", referralService.getCounts(principal.userId()));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 推荐排行榜
+     *
+     * @param by direct 按直推数，total 按下线总数
+     */
+    @GetMapping("/top")
+    public ResponseEntity<?> top(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "direct") String by) {
+        if (limit < 1 || limit > MAX_TOP_LIMIT) {
+            return ResponseEntity.status(400).body(Map.of("error", "limit 取值范围 1-" + MAX_TOP_LIMIT));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("by", by);
+        response.put("referrers", referralService.getTopReferrers(limit, "total".equals(by)));
+        return ResponseEntity.ok(response);
+    }
+}
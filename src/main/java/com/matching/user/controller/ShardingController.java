@@ -0,0 +1,62 @@
+package com.matching.user.controller;
+
+import com.matching.user.repository.shard.ShardedUserStore;
+import com.matching.user.security.AuthenticatedUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 分片运维接口 - 仅管理员（admin.user-ids）可调用；未开启分片时返回 404
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/sharding")
+@Profile("!test")
+public class ShardingController {
+
+    @Autowired
+    private ObjectProvider<ShardedUserStore> shardedUserStore;
+
+    /**
+     * 拓扑版本、各分片状态与本节点的扩容进度
+     */
+    @GetMapping
+    public ResponseEntity<?> status() {
+        ShardedUserStore store = shardedUserStore.getIfAvailable();
+        if (store == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "未开启分片"));
+        }
+        return ResponseEntity.ok(store.status());
+    }
+
+    /**
+     * 在线加入已配置的分片，后台迁移，进度见 GET /admin/sharding
+     */
+    @PostMapping("/shards/{name}")
+    public ResponseEntity<?> addShard(@AuthenticationPrincipal AuthenticatedUser principal, @PathVariable String name) {
+        ShardedUserStore store = shardedUserStore.getIfAvailable();
+        if (store == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "未开启分片"));
+        }
+        try {
+            store.startAddShard(name);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+        log.info("Shard expansion requested by userId={}, shard={}", principal.userId(), name);
+        return ResponseEntity.status(202).body(Map.of("message", "扩容已开始", "shard", name));
+    }
+}
@@ -1,14 +1,18 @@
 package com.matching.user.controller;
 
+import com.matching.user.dto.DeviceInfo;
 import com.matching.user.dto.LoginRequest;
 import com.matching.user.dto.RegisterRequest;
 import com.matching.user.dto.SendCodeResponse;
-import com.matching.user.entity.User;
+import com.matching.user.dto.UserCredential;
+import com.matching.user.security.AuthenticatedUser;
 import com.matching.user.service.AuthService;
-import com.matching.user.service.TokenService;
+import com.matching.user.throttle.AbuseThrottle;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -26,24 +30,27 @@ public class UserController {
     private AuthService authService;
 
     @Autowired
-    private TokenService tokenService;
+    private AbuseThrottle abuseThrottle;
 
     /**
-     * 用户登录
+     * 用户登录 - IP 与 User-Agent 以服务端看到的为准，覆盖客户端上报的值
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
         try {
-            User user = authService.login(request, null);
-            String accessToken = authService.generateAccessToken(user.getUserId(), user.getUsername());
-            String refreshToken = authService.generateRefreshToken(user.getUserId());
+            DeviceInfo deviceInfo = request.getDeviceInfo() != null ? request.getDeviceInfo() : new DeviceInfo();
+            deviceInfo.setIpAddress(abuseThrottle.clientIp(httpRequest));
+            deviceInfo.setUserAgent(httpRequest.getHeader("User-Agent"));
+            UserCredential user = authService.login(request, deviceInfo);
+            String accessToken = authService.generateAccessToken(user.userId(), user.username());
+            String refreshToken = authService.generateRefreshToken(user.userId());
 
             Map<String, Object> response = new HashMap<>();
             response.put("token", accessToken);
             response.put("refreshToken", refreshToken);
-            response.put("userId", user.getUserId());
-            response.put("username", user.getUsername());
-            response.put("email", user.getEmail());
+            response.put("userId", user.userId());
+            response.put("username", user.username());
+            response.put("email", user.email());
 
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
@@ -57,7 +64,12 @@ public class UserController {
      * 用户注册
      */
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest request) {
+    public ResponseEntity<?> register(@RequestBody RegisterRequest request, HttpServletRequest httpRequest) {
+        if (!abuseThrottle.tryAcquireRegister(abuseThrottle.clientIp(httpRequest), request.getEmail())) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "注册请求过于频繁，请稍后再试");
+            return ResponseEntity.status(429).body(response);
+        }
         try {
             authService.register(request);
             Map<String, Object> response = new HashMap<>();
@@ -76,7 +88,14 @@ public class UserController {
     @PostMapping("/verify/send")
     public ResponseEntity<?> sendVerificationCode(
             @RequestParam String type,
-            @RequestParam String destination) {
+            @RequestParam String destination,
+            HttpServletRequest httpRequest) {
+        if (!abuseThrottle.tryAcquireSend(abuseThrottle.clientIp(httpRequest))) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "发送频率过快，请稍后再试");
+            response.put("success", false);
+            return ResponseEntity.status(429).body(response);
+        }
         try {
             authService.sendVerificationCode(type, destination);
             Map<String, Object> response = new HashMap<>();
@@ -100,22 +119,14 @@ public class UserController {
             @RequestParam String code,
             @RequestParam String newPassword) {
         try {
-            boolean verified = authService.verifyCode("email", email, code);
-            if (!verified) {
-                Map<String, Object> response = new HashMap<>();
-                response.put("error", "验证码错误或已过期");
-                return ResponseEntity.status(400).body(response);
-            }
-
-            // 这里应该实现重置密码的逻辑
-            // 简化处理：直接返回成功
+            authService.resetPassword(email, code, newPassword);
             Map<String, Object> response = new HashMap<>();
             response.put("message", "密码重置成功");
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("error", e.getMessage());
-            return ResponseEntity.status(500).body(response);
+            return ResponseEntity.status(400).body(response);
         }
     }
 
@@ -123,21 +134,20 @@ public class UserController {
      * 获取用户信息
      */
     @GetMapping("/info")
-    public ResponseEntity<?> getUserInfo(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getUserInfo(@AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                return ResponseEntity.status(401).body(Map.of("error", "未授权"));
+            // Token 已由 TokenAuthenticationFilter 校验
+            if (principal == null) {
+                return ResponseEntity.status(401).body(Map.of("error", "Token 无效或已过期"));
             }
 
-            String token = authHeader.substring(7);
-            Long userId = authService.verifyToken(token);
-
-            if (userId == null) {
-                return ResponseEntity.status(401).body(Map.of("error", "Token 无效或已过期"));
+            Map<String, Object> info = authService.getUserInfo(principal.userId());
+            if (info == null) {
+                return ResponseEntity.status(404).body(Map.of("error", "用户不存在"));
             }
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("userId", userId);
+            Map<String, Object> response = new HashMap<>(info);
+            response.put("userId", principal.userId());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             log.error("Get user info error", e);
@@ -149,11 +159,10 @@ public class UserController {
      * 用户登出
      */
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> logout(@AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                String token = authHeader.substring(7);
-                tokenService.revokeToken(token);
+            if (principal != null) {
+                authService.logout(principal.userId(), principal.token());
             }
 
             Map<String, Object> response = new HashMap<>();
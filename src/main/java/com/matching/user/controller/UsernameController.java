@@ -0,0 +1,49 @@
+package com.matching.user.controller;
+
+import com.matching.user.username.UsernameIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 用户名可用性控制器 - 注册页逐键调用，由内存索引直接应答
+ */
+@RestController
+@RequestMapping("/user/username")
+@Profile("!test")
+public class UsernameController {
+
+    private static final Pattern USERNAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_]{3,32}$");
+    private static final int MAX_SUGGESTIONS = 10;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    /**
+     * 检查用户名是否可用，已被占用时给出候选
+     */
+    @GetMapping("/check")
+    public ResponseEntity<?> check(@RequestParam String username,
+                                   @RequestParam(defaultValue = "3") int suggest) {
+        if (!USERNAME_PATTERN.matcher(username).matches()) {
+            return ResponseEntity.status(400).body(Map.of("error", "用户名长度3-32，只能包含字母、数字、下划线"));
+        }
+        boolean available = !usernameIndex.isTaken(username);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("username", username);
+        response.put("available", available);
+        if (!available) {
+            response.put("suggestions", usernameIndex.suggest(username, Math.min(Math.max(suggest, 0), MAX_SUGGESTIONS)));
+        }
+        return ResponseEntity.ok(response);
+    }
+}
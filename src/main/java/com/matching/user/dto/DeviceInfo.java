@@ -3,12 +3,14 @@ package com.matching.user.dto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * 设备信息
  */
 @Data
 @Builder
+@NoArgsConstructor
 @AllArgsConstructor
 public class DeviceInfo {
     private String deviceId;       // 设备唯一标识
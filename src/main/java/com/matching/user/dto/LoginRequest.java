@@ -4,12 +4,14 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * 登录请求
  */
 @Data
 @Builder
+@NoArgsConstructor
 @AllArgsConstructor
 public class LoginRequest {
 
@@ -7,12 +7,14 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * 注册请求
  */
 @Data
 @Builder
+@NoArgsConstructor
 @AllArgsConstructor
 public class RegisterRequest {
 
@@ -38,7 +40,7 @@ public class RegisterRequest {
     @Pattern(regexp = "^1[3-9]{6}$", message = "验证码格式不正确")
     private String phoneVerificationCode;  // 手机验证码
 
-    private String referralCode;  // 推荐码
+    private String referralCode;  // 推荐码（推荐人的邀请码）
 
     private String phone;  // 手机号
 
@@ -0,0 +1,15 @@
+package com.matching.user.dto;
+
+import com.matching.user.entity.UserStatus;
+
+/**
+ * 登录凭证投影 - 只读查询结果，不进入持久化上下文
+ */
+public record UserCredential(
+        Long userId,
+        String passwordHash,
+        UserStatus status,
+        String username,
+        String email
+) {
+}
@@ -16,7 +16,12 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        // 登录凭证查询的覆盖索引，避免回表
+        @Index(name = "idx_users_credential", columnList = "username, user_id, password_hash, status, email"),
+        @Index(name = "uk_users_invite_code", columnList = "invite_code", unique = true),
+        @Index(name = "idx_users_user_id", columnList = "user_id", unique = true)
+})
 public class User {
 
     @Id
@@ -38,7 +43,7 @@ public class User {
     @Column(length = 64)
     private String salt;
 
-    @Column(nullable = false, length = 32)
+    @Column(length = 32)
     private String phone;
 
     @Column(name = "phone_verified")
@@ -51,9 +56,18 @@ public class User {
     @Enumerated(EnumType.STRING)
     private UserStatus status = UserStatus.ACTIVE;
 
+    /**
+     * 注册时填写的推荐码（原样记录，推荐人见 referrerId）
+     */
     @Column(length = 32)
     private String referralCode;
 
+    /**
+     * 本人的邀请码，他人注册时填写；注册提交后分配，早于该列的用户在首次查询时分配
+     */
+    @Column(name = "invite_code", length = 16)
+    private String inviteCode;
+
     @Column(name = "referrer_id")
     private Long referrerId;
 
@@ -0,0 +1,7 @@
+package com.matching.user.event;
+
+/**
+ * 用户注册事件 - 在注册事务内发布，监听方按需在提交后处理
+ */
+public record UserRegisteredEvent(Long userId, String username, String email, Long referrerId) {
+}
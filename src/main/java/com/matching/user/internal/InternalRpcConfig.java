@@ -0,0 +1,98 @@
+package com.matching.user.internal;
+
+import com.matching.user.service.AuthService;
+import com.matching.user.service.TokenService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationPredicate;
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+/**
+ * 内部 gRPC 接口配置 - 在 Tomcat 上增加一个 h2c 连接器（明文 HTTP/2，支持 prior knowledge 与 Upgrade），
+ * 并把 {@link InternalRpcServlet} 挂到 /matching.user.v1.UserInternal/*
+ * <p>
+ * 默认关闭；开启时默认只监听 127.0.0.1，调用方以 internal.rpc.service-tokens 中的凭证认证（由 Servlet 校验）。
+ * 该路径走一条单独的、不解析用户 Token 的安全过滤器链，也不产生 http.server.requests 观测（Servlet 自己记录 user.internal.rpc 指标）。
+ */
+@Configuration
+@Profile("!test")
+@ConditionalOnProperty(prefix = "internal.rpc", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(InternalRpcProperties.class)
+public class InternalRpcConfig {
+
+    private static final String PATH_PATTERN = "/" + InternalRpcServlet.SERVICE + "/**";
+
+    @Bean
+    public Connector internalRpcConnector(InternalRpcProperties properties) {
+        if (properties.getServiceTokens().stream().allMatch(token -> token == null || token.isBlank())) {
+            throw new IllegalStateException("internal.rpc.enabled=true 时必须配置 internal.rpc.service-tokens");
+        }
+        Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+        connector.setPort(properties.getPort());
+        if (properties.getAddress() != null && !properties.getAddress().isBlank()) {
+            connector.setProperty("address", properties.getAddress());
+        }
+        Http2Protocol http2 = new Http2Protocol();
+        http2.setMaxConcurrentStreams(properties.getMaxConcurrentStreams());
+        http2.setStreamReadTimeout(properties.getStreamIdleTimeoutMs());
+        // 调用方是内部服务，小消息产生大量小 DATA 帧属于正常情况，关闭按帧大小的"滥用"检测
+        http2.setOverheadDataThreshold(0);
+        connector.addUpgradeProtocol(http2);
+        return connector;
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> internalRpcConnectorCustomizer(
+            Connector internalRpcConnector) {
+        return factory -> factory.addAdditionalTomcatConnectors(internalRpcConnector);
+    }
+
+    /**
+     * 先于默认过滤器链匹配：调用方不带用户 Token，认证在 Servlet 中按服务凭证完成
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityFilterChain internalRpcSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+            .securityMatcher(new AntPathRequestMatcher(PATH_PATTERN))
+            .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .requestCache(cache -> cache.disable())
+            .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+        return http.build();
+    }
+
+    @Bean
+    public ObservationPredicate internalRpcObservationPredicate() {
+        String prefix = "/" + InternalRpcServlet.SERVICE + "/";
+        return (name, context) -> !(context instanceof ServerRequestObservationContext serverContext)
+                || !serverContext.getCarrier().getRequestURI().startsWith(prefix);
+    }
+
+    @Bean
+    public ServletRegistrationBean<InternalRpcServlet> internalRpcServlet(
+            TokenService tokenService, AuthService authService, Connector internalRpcConnector,
+            InternalRpcProperties properties, MeterRegistry meterRegistry) {
+        ServletRegistrationBean<InternalRpcServlet> registration = new ServletRegistrationBean<>(
+                new InternalRpcServlet(tokenService, authService, internalRpcConnector, properties, meterRegistry),
+                "/" + InternalRpcServlet.SERVICE + "/*");
+        registration.setName("internalRpcServlet");
+        registration.setLoadOnStartup(1);
+        return registration;
+    }
+}
@@ -0,0 +1,55 @@
+package com.matching.user.internal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内部 gRPC 接口配置
+ */
+@Data
+@ConfigurationProperties(prefix = "internal.rpc")
+public class InternalRpcProperties {
+
+    /**
+     * 默认关闭；开启时必须配置 serviceTokens
+     */
+    private boolean enabled = false;
+
+    /**
+     * 独立的 h2c 端口，只应在内网开放；0 表示随机端口
+     */
+    private int port = 9083;
+
+    /**
+     * 监听地址，默认只监听本机；供其他主机调用时配置为内网网卡地址
+     */
+    private String address = "127.0.0.1";
+
+    /**
+     * 调用方凭证：请求头 authorization: Bearer <token> 须与其中之一相同；配置多个便于轮换
+     */
+    private List<String> serviceTokens = new ArrayList<>();
+
+    /**
+     * 单个连接上的最大并发流（调用）数
+     */
+    private long maxConcurrentStreams = 200;
+
+    /**
+     * 流式调用两条请求消息之间的最长间隔，超过即断开该流
+     */
+    private long streamIdleTimeoutMs = 300000;
+
+    /**
+     * 单条消息的最大字节数（与 gRPC 默认值相同）
+     */
+    private int maxMessageBytes = 4 * 1024 * 1024;
+
+    /**
+     * GetUsers / CheckRevoked 单次请求的最大条目数
+     */
+    private int maxBatchSize = 1000;
+}
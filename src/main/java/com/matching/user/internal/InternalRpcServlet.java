@@ -0,0 +1,333 @@
+package com.matching.user.internal;
+
+import com.matching.user.service.AuthService;
+import com.matching.user.service.TokenService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内部 gRPC 服务 matching.user.v1.UserInternal（定义见 src/main/proto/user_internal.proto）
+ * <p>
+ * 直接在 Servlet 上实现 gRPC 的 HTTP/2 映射：请求与响应消息都是"压缩标志 + 4 字节长度 + protobuf"帧，
+ * 状态放在 trailers 的 grpc-status / grpc-message 中，未写出任何消息就失败时改用 Trailers-Only（状态放在响应头）。
+ * 连接由独立端口上的 Tomcat h2c 处理，同一连接上的调用多路复用；业务逻辑与 REST 接口共用 TokenService / AuthService。
+ * 调用方须在请求头 authorization: Bearer <token> 中携带 internal.rpc.service-tokens 之一，否则返回 UNAUTHENTICATED。
+ * 不支持消息压缩（不声明 grpc-accept-encoding，客户端因此不会压缩）。
+ */
+@Slf4j
+public class InternalRpcServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String SERVICE = "matching.user.v1.UserInternal";
+
+    static final int OK = 0;
+    static final int INVALID_ARGUMENT = 3;
+    static final int RESOURCE_EXHAUSTED = 8;
+    static final int UNIMPLEMENTED = 12;
+    static final int INTERNAL = 13;
+    static final int UNAUTHENTICATED = 16;
+
+    private static final String GRPC_CONTENT_TYPE = "application/grpc";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /*
+     * Servlet 只在内部端口的 Tomcat 中注册，不会被序列化，协作者均为 transient
+     */
+    private final transient TokenService tokenService;
+    private final transient AuthService authService;
+    private final transient Connector connector;
+    private final transient InternalRpcProperties properties;
+    private final transient MeterRegistry meterRegistry;
+    private final transient List<byte[]> serviceTokens = new ArrayList<>();
+    /**
+     * 按 "方法:状态" 缓存的 Timer，避免每次调用都经 MeterRegistry 查找
+     */
+    private final transient Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public InternalRpcServlet(TokenService tokenService, AuthService authService, Connector connector,
+                              InternalRpcProperties properties, MeterRegistry meterRegistry) {
+        this.tokenService = tokenService;
+        this.authService = authService;
+        this.connector = connector;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        for (String token : properties.getServiceTokens()) {
+            if (token != null && !token.isBlank()) {
+                serviceTokens.add(token.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 只在内部端口上提供，公网端口上表现为不存在
+        if (request.getLocalPort() != connector.getLocalPort()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!"HTTP/2.0".equals(request.getProtocol())) {
+            response.sendError(HttpServletResponse.SC_HTTP_VERSION_NOT_SUPPORTED);
+            return;
+        }
+        String contentType = request.getContentType();
+        if (!"POST".equals(request.getMethod()) || contentType == null || !contentType.startsWith(GRPC_CONTENT_TYPE)) {
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+
+        String method = request.getPathInfo() == null ? "" : request.getPathInfo().substring(1);
+        Map<String, String> trailers = new HashMap<>();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(GRPC_CONTENT_TYPE);
+        response.setTrailerFields(() -> trailers);
+
+        long start = System.nanoTime();
+        int status = OK;
+        String message = null;
+        try {
+            authenticate(request);
+            ServletInputStream in = request.getInputStream();
+            ServletOutputStream out = response.getOutputStream();
+            switch (method) {
+                case "VerifyToken" -> out.write(verifyToken(readSingle(in)).toGrpcFrame());
+                case "VerifyTokenStream" -> verifyTokenStream(in, out, response);
+                case "GetUsers" -> out.write(getUsers(readSingle(in)).toGrpcFrame());
+                case "CheckRevoked" -> out.write(checkRevoked(readSingle(in)).toGrpcFrame());
+                default -> throw new RpcException(UNIMPLEMENTED, "Method not found: " + SERVICE + "/" + method);
+            }
+        } catch (RpcException e) {
+            status = e.code;
+            message = e.getMessage();
+        } catch (IllegalArgumentException e) {
+            status = INVALID_ARGUMENT;
+            message = "Malformed request message: " + e.getMessage();
+        } catch (EOFException e) {
+            status = INVALID_ARGUMENT;
+            message = "Truncated request stream";
+        } catch (RuntimeException e) {
+            log.error("Internal RPC {} failed", method, e);
+            status = INTERNAL;
+            message = "Internal error";
+        }
+
+        if (status != OK && !response.isCommitted()) {
+            response.setHeader("grpc-status", Integer.toString(status));
+            response.setHeader("grpc-message", percentEncode(message));
+        } else {
+            trailers.put("grpc-status", Integer.toString(status));
+            if (message != null) {
+                trailers.put("grpc-message", percentEncode(message));
+            }
+        }
+        // 未认证或不存在的方法名来自调用方，不作为指标标签
+        timer(method.isEmpty() || status == UNIMPLEMENTED || status == UNAUTHENTICATED ? "unknown" : method, status)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String method, int status) {
+        return timers.computeIfAbsent(method + ":" + status, key -> Timer.builder("user.internal.rpc")
+                .tag("method", method)
+                .tag("status", Integer.toString(status))
+                .register(meterRegistry));
+    }
+
+    /**
+     * 校验服务凭证（常量时间比较）
+     */
+    private void authenticate(HttpServletRequest request) {
+        String authorization = request.getHeader("authorization");
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            byte[] presented = authorization.substring(BEARER_PREFIX.length()).getBytes(StandardCharsets.UTF_8);
+            boolean matched = false;
+            for (byte[] token : serviceTokens) {
+                matched |= MessageDigest.isEqual(token, presented);
+            }
+            if (matched) {
+                return;
+            }
+        }
+        throw new RpcException(UNAUTHENTICATED, "Missing or invalid service credential");
+    }
+
+    // ==================== 方法实现 ====================
+
+    private ProtoWriter verifyToken(byte[] message) {
+        String token = null;
+        ProtoReader reader = new ProtoReader(message);
+        for (int field; (field = reader.nextField()) != 0; ) {
+            if (field == 1) {
+                token = reader.readString();
+            } else {
+                reader.skip();
+            }
+        }
+        ProtoWriter result = new ProtoWriter();
+        Long userId = token == null || token.isEmpty() ? null : tokenService.verifyToken(token);
+        if (userId == null) {
+            return result;
+        }
+        result.writeBool(1, true).writeInt64(2, userId);
+        Map<String, Object> info = authService.getUserInfo(userId);
+        if (info != null) {
+            result.writeString(3, (String) info.get("username")).writeString(4, (String) info.get("status"));
+        }
+        return result;
+    }
+
+    /**
+     * 逐条读取请求并按顺序写回响应；连接上暂无后续请求时才 flush，连续到达的请求合并为一次写出
+     */
+    private void verifyTokenStream(ServletInputStream in, ServletOutputStream out, HttpServletResponse response)
+            throws IOException {
+        // 先发出响应头，客户端据此确认流已建立
+        response.flushBuffer();
+        byte[] message;
+        while ((message = readFrame(in)) != null) {
+            out.write(verifyToken(message).toGrpcFrame());
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    private ProtoWriter getUsers(byte[] message) {
+        List<Long> userIds = new ArrayList<>();
+        ProtoReader reader = new ProtoReader(message);
+        for (int field; (field = reader.nextField()) != 0; ) {
+            if (field == 1) {
+                reader.readRepeatedInt64(userIds::add);
+            } else {
+                reader.skip();
+            }
+        }
+        checkBatchSize(userIds.size());
+
+        ProtoWriter result = new ProtoWriter();
+        for (Map.Entry<Long, Map<String, Object>> entry : authService.getUserInfos(userIds).entrySet()) {
+            Map<String, Object> info = entry.getValue();
+            Object lastLoginTime = info.get("lastLoginTime");
+            result.writeMessage(1, new ProtoWriter()
+                    .writeInt64(1, entry.getKey())
+                    .writeString(2, (String) info.get("username"))
+                    .writeString(3, (String) info.get("email"))
+                    .writeString(4, (String) info.get("status"))
+                    .writeInt64(5, lastLoginTime instanceof Number number ? number.longValue() : 0));
+        }
+        return result;
+    }
+
+    private ProtoWriter checkRevoked(byte[] message) {
+        List<String> tokens = new ArrayList<>();
+        ProtoReader reader = new ProtoReader(message);
+        for (int field; (field = reader.nextField()) != 0; ) {
+            if (field == 1) {
+                tokens.add(reader.readString());
+            } else {
+                reader.skip();
+            }
+        }
+        checkBatchSize(tokens.size());
+
+        boolean[] revoked = new boolean[tokens.size()];
+        for (int i = 0; i < revoked.length; i++) {
+            revoked[i] = !tokens.get(i).isEmpty() && tokenService.isRevoked(tokens.get(i));
+        }
+        return new ProtoWriter().writePackedBool(1, revoked);
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > properties.getMaxBatchSize()) {
+            throw new RpcException(INVALID_ARGUMENT, "Batch size " + size + " exceeds " + properties.getMaxBatchSize());
+        }
+    }
+
+    // ==================== 帧编解码 ====================
+
+    /**
+     * 一元调用的请求：恰好一条消息
+     */
+    private byte[] readSingle(InputStream in) throws IOException {
+        byte[] message = readFrame(in);
+        if (message == null) {
+            throw new RpcException(INVALID_ARGUMENT, "Missing request message");
+        }
+        if (readFrame(in) != null) {
+            throw new RpcException(UNIMPLEMENTED, "Expected exactly one request message");
+        }
+        return message;
+    }
+
+    /**
+     * 读取一条消息，请求流正常结束返回 null
+     */
+    private byte[] readFrame(InputStream in) throws IOException {
+        int flag = in.read();
+        if (flag < 0) {
+            return null;
+        }
+        if (flag != 0) {
+            throw new RpcException(UNIMPLEMENTED, "Compressed messages are not supported");
+        }
+        byte[] prefix = in.readNBytes(4);
+        if (prefix.length < 4) {
+            throw new EOFException();
+        }
+        int length = ((prefix[0] & 0xFF) << 24) | ((prefix[1] & 0xFF) << 16) | ((prefix[2] & 0xFF) << 8) | (prefix[3] & 0xFF);
+        if (length < 0 || length > properties.getMaxMessageBytes()) {
+            throw new RpcException(RESOURCE_EXHAUSTED,
+                    "Message size " + Integer.toUnsignedString(length) + " exceeds " + properties.getMaxMessageBytes());
+        }
+        byte[] message = in.readNBytes(length);
+        if (message.length < length) {
+            throw new EOFException();
+        }
+        return message;
+    }
+
+    /**
+     * grpc-message 的编码：可打印 ASCII 原样保留，其余按 UTF-8 字节百分号编码
+     */
+    private static String percentEncode(String message) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : message.getBytes(StandardCharsets.UTF_8)) {
+            if (b >= 0x20 && b < 0x7F && b != '%') {
+                encoded.append((char) b);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static class RpcException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int code;
+
+        RpcException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+}
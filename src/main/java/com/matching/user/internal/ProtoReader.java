@@ -0,0 +1,129 @@
+package com.matching.user.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongConsumer;
+
+/**
+ * Protobuf 解码 - 按字段顺序读取，未知字段跳过；格式错误抛 {@link IllegalArgumentException}
+ */
+public final class ProtoReader {
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+    private int wireType;
+
+    public ProtoReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    private ProtoReader(byte[] buffer, int offset, int limit) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * 读取下一个字段号，读完返回 0
+     */
+    public int nextField() {
+        if (position >= limit) {
+            return 0;
+        }
+        long tag = readVarint();
+        wireType = (int) (tag & 7);
+        int field = (int) (tag >>> 3);
+        if (field <= 0) {
+            throw new IllegalArgumentException("invalid field number " + field);
+        }
+        return field;
+    }
+
+    public long readInt64() {
+        expect(ProtoWriter.VARINT);
+        return readVarint();
+    }
+
+    public boolean readBool() {
+        return readInt64() != 0;
+    }
+
+    public String readString() {
+        expect(ProtoWriter.LENGTH_DELIMITED);
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * 嵌套消息，或 packed repeated 字段的内容
+     */
+    public ProtoReader readMessage() {
+        expect(ProtoWriter.LENGTH_DELIMITED);
+        int length = readLength();
+        ProtoReader nested = new ProtoReader(buffer, position, position + length);
+        position += length;
+        return nested;
+    }
+
+    /**
+     * repeated 标量字段：packed（length-delimited）与非 packed（单个 varint）两种写法都要接受
+     */
+    public void readRepeatedInt64(LongConsumer consumer) {
+        if (wireType == ProtoWriter.LENGTH_DELIMITED) {
+            ProtoReader packed = readMessage();
+            while (packed.position < packed.limit) {
+                consumer.accept(packed.readVarint());
+            }
+        } else {
+            consumer.accept(readInt64());
+        }
+    }
+
+    public void skip() {
+        switch (wireType) {
+            case 0 -> readVarint();
+            case 1 -> advance(8);
+            case 2 -> advance(readLength());
+            case 5 -> advance(4);
+            default -> throw new IllegalArgumentException("unsupported wire type " + wireType);
+        }
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IllegalArgumentException("truncated varint");
+            }
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private int readLength() {
+        long length = readVarint();
+        if (length < 0 || length > limit - position) {
+            throw new IllegalArgumentException("truncated length-delimited field");
+        }
+        return (int) length;
+    }
+
+    private void advance(int count) {
+        if (count > limit - position) {
+            throw new IllegalArgumentException("truncated field");
+        }
+        position += count;
+    }
+
+    private void expect(int expected) {
+        if (wireType != expected) {
+            throw new IllegalArgumentException("unexpected wire type " + wireType);
+        }
+    }
+}
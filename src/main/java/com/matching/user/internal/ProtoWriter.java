@@ -0,0 +1,133 @@
+package com.matching.user.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Protobuf 编码（proto3 语义：标量为默认值时不写出），只覆盖内部接口用到的 varint 与 length-delimited 字段
+ */
+public final class ProtoWriter {
+
+    static final int VARINT = 0;
+    static final int LENGTH_DELIMITED = 2;
+
+    private byte[] buffer;
+    private int size;
+
+    public ProtoWriter() {
+        this(64);
+    }
+
+    public ProtoWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public ProtoWriter writeInt64(int field, long value) {
+        if (value != 0) {
+            tag(field, VARINT);
+            varint(value);
+        }
+        return this;
+    }
+
+    public ProtoWriter writeBool(int field, boolean value) {
+        if (value) {
+            tag(field, VARINT);
+            varint(1);
+        }
+        return this;
+    }
+
+    public ProtoWriter writeString(int field, String value) {
+        if (value != null && !value.isEmpty()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeBytes(field, bytes, bytes.length);
+        }
+        return this;
+    }
+
+    /**
+     * 嵌套消息；repeated 消息字段每个元素各调用一次（空消息也写出）
+     */
+    public ProtoWriter writeMessage(int field, ProtoWriter message) {
+        return writeBytes(field, message.buffer, message.size);
+    }
+
+    /**
+     * packed repeated int64
+     */
+    public ProtoWriter writePackedInt64(int field, long[] values) {
+        if (values.length > 0) {
+            ProtoWriter packed = new ProtoWriter(values.length * 4);
+            for (long value : values) {
+                packed.varint(value);
+            }
+            writeBytes(field, packed.buffer, packed.size);
+        }
+        return this;
+    }
+
+    /**
+     * packed repeated bool
+     */
+    public ProtoWriter writePackedBool(int field, boolean[] values) {
+        if (values.length > 0) {
+            tag(field, LENGTH_DELIMITED);
+            varint(values.length);
+            ensure(values.length);
+            for (boolean value : values) {
+                buffer[size++] = (byte) (value ? 1 : 0);
+            }
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * gRPC 消息帧：1 字节压缩标志（恒为 0）+ 4 字节大端长度 + 消息体
+     */
+    public byte[] toGrpcFrame() {
+        byte[] frame = new byte[5 + size];
+        frame[1] = (byte) (size >>> 24);
+        frame[2] = (byte) (size >>> 16);
+        frame[3] = (byte) (size >>> 8);
+        frame[4] = (byte) size;
+        System.arraycopy(buffer, 0, frame, 5, size);
+        return frame;
+    }
+
+    private ProtoWriter writeBytes(int field, byte[] bytes, int length) {
+        tag(field, LENGTH_DELIMITED);
+        varint(length);
+        ensure(length);
+        System.arraycopy(bytes, 0, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    private void tag(int field, int wireType) {
+        varint(((long) field << 3) | wireType);
+    }
+
+    private void varint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.matching.user.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 认证流程中的子阶段（db / bcrypt / redis），时间上嵌套在 {@link LoginEvent} 内
+ * <p>
+ * 用法：{@code AuthPhaseEvent phase = AuthPhaseEvent.start("login", "db"); ...; long nanos = phase.finish();}
+ * 未录制时 start/finish 只剩一次 isEnabled 判断，不读时钟。
+ */
+@Name("com.matching.user.AuthPhase")
+@Label("Auth Phase")
+@Category({"Match Engine", "Auth"})
+@Description("认证流程的数据库、BCrypt、Redis 子阶段")
+@StackTrace(false)
+public class AuthPhaseEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Phase")
+    public String phase;
+
+    private transient long startNanos;
+
+    public static AuthPhaseEvent start(String operation, String phase) {
+        AuthPhaseEvent event = new AuthPhaseEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.phase = phase;
+            event.startNanos = System.nanoTime();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * 提交事件并返回本阶段耗时；未录制时返回 0
+     */
+    public long finish() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        commit();
+        return elapsed;
+    }
+}
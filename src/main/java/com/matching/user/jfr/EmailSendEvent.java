@@ -0,0 +1,29 @@
+package com.matching.user.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 邮件发送 JFR 事件（EmailService）
+ */
+@Name("com.matching.user.EmailSend")
+@Label("Email Send")
+@Category({"Match Engine", "Email"})
+@StackTrace(false)
+public class EmailSendEvent extends Event {
+
+    /**
+     * verification / welcome / password-reset
+     */
+    @Label("Kind")
+    public String kind;
+
+    /**
+     * SENT / FAILED
+     */
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,70 @@
+package com.matching.user.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按需 JFR 录制 - 同一时刻只允许一个录制，录制结束后写入临时文件、输出并删除
+ */
+@Slf4j
+@Service
+public class JfrRecordingService {
+
+    private final AtomicBoolean active = new AtomicBoolean();
+
+    /**
+     * 开始录制；已有录制进行中时抛出 IllegalStateException
+     *
+     * @param settings JDK 自带配置名：default（约 1% 开销）或 profile（约 2%，含更细的采样）
+     */
+    public Recording start(String settings) throws IOException, ParseException {
+        if (!active.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有 JFR 录制在进行中");
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration(settings));
+            recording.setName("user-service-" + System.currentTimeMillis());
+            recording.setToDisk(true);
+            recording.start();
+            log.info("JFR recording started: name={}, settings={}", recording.getName(), settings);
+            return recording;
+        } catch (IOException | ParseException | RuntimeException e) {
+            active.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 等待录制时长后停止，把 .jfr 内容写到输出流
+     */
+    public void finish(Recording recording, Duration duration, OutputStream out) throws IOException {
+        Path file = null;
+        try {
+            Thread.sleep(duration.toMillis());
+            recording.stop();
+            file = Files.createTempFile(recording.getName(), ".jfr");
+            recording.dump(file);
+            log.info("JFR recording finished: name={}, size={} bytes", recording.getName(), Files.size(file));
+            Files.copy(file, out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("JFR recording interrupted", e);
+        } finally {
+            recording.close();
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            active.set(false);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.matching.user.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 登录 JFR 事件 - 覆盖整个 AuthService.login，附各阶段累计耗时
+ */
+@Name("com.matching.user.Login")
+@Label("User Login")
+@Category({"Match Engine", "Auth"})
+@Description("AuthService.login，含数据库、BCrypt、Redis 分阶段耗时")
+@StackTrace(false)
+public class LoginEvent extends Event {
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Database Time")
+    @Timespan
+    public long dbNanos;
+
+    @Label("BCrypt Time")
+    @Timespan
+    public long bcryptNanos;
+
+    @Label("Redis Time")
+    @Timespan
+    public long redisNanos;
+}
@@ -0,0 +1,26 @@
+package com.matching.user.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Token 校验 JFR 事件（TokenService.verifyToken）
+ */
+@Name("com.matching.user.TokenVerify")
+@Label("Token Verify")
+@Category({"Match Engine", "Auth"})
+@StackTrace(false)
+public class TokenVerifyEvent extends Event {
+
+    /**
+     * ACCESS / REFRESH / BLACKLISTED / NOT_FOUND
+     */
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("User Id")
+    public long userId;
+}
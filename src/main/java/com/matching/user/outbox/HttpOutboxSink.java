@@ -0,0 +1,46 @@
+package com.matching.user.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matching.user.entity.OutboxEvent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * HTTP 投递 - 整批以 JSON 数组 POST 到下游，2xx 视为成功
+ * <p>
+ * 下游返回 429/503 或超时即视为背压，relay 退避后重投同一批。
+ */
+public class HttpOutboxSink implements OutboxSink {
+
+    private final URI uri;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+
+    public HttpOutboxSink(String url, long timeoutMs, ObjectMapper objectMapper) {
+        this.uri = URI.create(url);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) throws IOException, InterruptedException {
+        byte[] body = objectMapper.writeValueAsBytes(events.stream().map(OutboxMessage::of).toList());
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Outbox endpoint returned " + response.statusCode());
+        }
+    }
+}
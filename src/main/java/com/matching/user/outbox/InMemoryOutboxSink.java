@@ -0,0 +1,54 @@
+package com.matching.user.outbox;
+
+import com.matching.user.entity.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存队列投递 - 供同进程消费者或测试使用
+ * <p>
+ * 队列有界：剩余容量不足以放下整批时拒绝，relay 保持位点并退避，形成背压。
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final BlockingQueue<OutboxMessage> queue;
+
+    public InMemoryOutboxSink(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        if (queue.remainingCapacity() < events.size()) {
+            throw new IllegalStateException("Outbox queue full: remaining=" + queue.remainingCapacity()
+                    + ", batch=" + events.size());
+        }
+        for (OutboxEvent event : events) {
+            queue.add(OutboxMessage.of(event));
+        }
+    }
+
+    /**
+     * 取出一条消息，超时返回 null
+     */
+    public OutboxMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    /**
+     * 取出当前全部消息
+     */
+    public List<OutboxMessage> drain() {
+        List<OutboxMessage> messages = new ArrayList<>(queue.size());
+        queue.drainTo(messages);
+        return messages;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
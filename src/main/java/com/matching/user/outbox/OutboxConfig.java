@@ -0,0 +1,66 @@
+package com.matching.user.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matching.user.repository.OutboxCheckpointRepository;
+import com.matching.user.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Outbox 配置 - 按 outbox.sink.type 选择投递目标并启动 relay
+ */
+@Slf4j
+@Configuration
+@Profile("!test")
+@EnableScheduling
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox.sink", name = "type", havingValue = "file", matchIfMissing = true)
+    public OutboxSink fileOutboxSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        return new FileOutboxSink(Path.of(properties.getSink().getFilePath()), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox.sink", name = "type", havingValue = "memory")
+    public InMemoryOutboxSink inMemoryOutboxSink(OutboxProperties properties) {
+        return new InMemoryOutboxSink(properties.getSink().getQueueCapacity());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox.sink", name = "type", havingValue = "http")
+    public OutboxSink httpOutboxSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        return new HttpOutboxSink(properties.getSink().getHttpUrl(), properties.getSink().getHttpTimeoutMs(), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "outbox", name = "relay-enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxRelay outboxRelay(OutboxEventRepository eventRepository,
+                                   OutboxCheckpointRepository checkpointRepository,
+                                   OutboxSink sink, OutboxProperties properties,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spring.transaction.default-timeout:0s}") Duration transactionTimeout) {
+        // 空洞等待须远大于最长事务耗时，否则慢事务提交的事件会落在位点之后永远不被投递
+        long gapTimeoutMs = Math.max(properties.getGapTimeoutMs(), transactionTimeout.toMillis() * 2);
+        if (gapTimeoutMs != properties.getGapTimeoutMs()) {
+            log.warn("outbox.gap-timeout-ms={} is below twice spring.transaction.default-timeout, using {}ms",
+                    properties.getGapTimeoutMs(), gapTimeoutMs);
+        }
+        return new OutboxRelay(eventRepository, checkpointRepository, sink, properties, gapTimeoutMs,
+                new TransactionTemplate(transactionManager), meterRegistry);
+    }
+}
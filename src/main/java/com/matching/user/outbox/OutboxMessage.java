@@ -0,0 +1,17 @@
+package com.matching.user.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.matching.user.entity.OutboxEvent;
+
+import java.time.ZoneId;
+
+/**
+ * 投递给下游的事件格式，offset 即 outbox id，可用于去重
+ */
+public record OutboxMessage(long offset, long userId, String type, long timestamp, @JsonRawValue String payload) {
+
+    public static OutboxMessage of(OutboxEvent event) {
+        return new OutboxMessage(event.getId(), event.getUserId(), event.getEventType(),
+                event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), event.getPayload());
+    }
+}
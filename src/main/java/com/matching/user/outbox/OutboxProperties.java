@@ -0,0 +1,76 @@
+package com.matching.user.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Outbox 投递配置
+ */
+@Data
+@ConfigurationProperties(prefix = "outbox")
+public class OutboxProperties {
+
+    /**
+     * 是否启动 relay（多实例部署时可全部开启，位点按比较并更新推进，同一批可能被多个节点重复投递）
+     */
+    private boolean relayEnabled = true;
+
+    /**
+     * 位点名称，不同下游使用不同名称可各自独立消费
+     */
+    private String relayName = "default";
+
+    /**
+     * 每批最多投递的事件数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 轮询间隔
+     */
+    private long pollIntervalMs = 500;
+
+    /**
+     * id 空洞从首次发现起的最长等待时间，超过且复查仍不存在才视为回滚留下的空洞跳过；
+     * 须远大于最长事务耗时，实际取值不小于 spring.transaction.default-timeout 的两倍
+     */
+    private long gapTimeoutMs = 300_000;
+
+    /**
+     * 投递失败后的初始退避与最大退避
+     */
+    private long backoffInitialMs = 500;
+    private long backoffMaxMs = 30000;
+
+    /**
+     * 已投递事件的保留时长，0 表示不清理
+     */
+    private long retentionHours = 72;
+
+    private Sink sink = new Sink();
+
+    @Data
+    public static class Sink {
+
+        /**
+         * 投递目标：file / memory / http
+         */
+        private String type = "file";
+
+        /**
+         * file：JSON Lines 文件路径
+         */
+        private String filePath = "logs/user-outbox.jsonl";
+
+        /**
+         * memory：队列容量，满时拒绝整批，relay 退避重试
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * http：接收端地址，请求体为事件 JSON 数组
+         */
+        private String httpUrl;
+        private long httpTimeoutMs = 3000;
+    }
+}
@@ -0,0 +1,189 @@
+package com.matching.user.outbox;
+
+import com.matching.config.datasource.DataSourceRoutingContext;
+import com.matching.user.entity.OutboxCheckpoint;
+import com.matching.user.entity.OutboxEvent;
+import com.matching.user.repository.OutboxCheckpointRepository;
+import com.matching.user.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Outbox 投递器 - 按 id 顺序分批读取 outbox，投递成功后推进位点
+ * <p>
+ * 每批不持有事务和行锁：读取位点 → 读取事件 → 投递 → 按比较并更新推进位点。
+ * 投递可能是远程调用，期间不占用数据库连接；多实例同时投递时同一批可能重复发出，
+ * 只有一个节点能推进位点，下游按事件 id 去重。
+ * 全局按 id 顺序投递，因此同一 userId 的事件顺序与写入顺序一致。
+ * 自增 id 按分配顺序而非提交顺序可见，遇到 id 空洞时暂停在空洞前；空洞从首次发现起超过 gap-timeout
+ * 且复查仍不存在才跳过，跳过的 id 计数并记录日志。
+ * 投递失败（包括下游队列满、限流）时位点不动，按指数退避重试，形成背压。
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private static final int MAX_BATCHES_PER_POLL = 10;
+
+    private final OutboxEventRepository eventRepository;
+    private final OutboxCheckpointRepository checkpointRepository;
+    private final OutboxSink sink;
+    private final OutboxProperties properties;
+    private final long gapTimeoutMs;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter publishedCounter;
+    private final Counter failureCounter;
+    private final Counter skippedCounter;
+
+    /**
+     * 空洞起始 id → 首次发现时间，仅由调度线程访问
+     */
+    private final NavigableMap<Long, Long> gapFirstSeen = new TreeMap<>();
+
+    private int consecutiveFailures;
+    private long backoffUntil;
+
+    public OutboxRelay(OutboxEventRepository eventRepository, OutboxCheckpointRepository checkpointRepository,
+                       OutboxSink sink, OutboxProperties properties, long gapTimeoutMs,
+                       TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.eventRepository = eventRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.sink = sink;
+        this.properties = properties;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.transactionTemplate = transactionTemplate;
+        this.publishedCounter = meterRegistry.counter("user.outbox.published");
+        this.failureCounter = meterRegistry.counter("user.outbox.failures");
+        this.skippedCounter = meterRegistry.counter("user.outbox.skipped");
+    }
+
+    /**
+     * 定时轮询；积压时连续投递多批，直到读空或达到单次上限
+     */
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:500}")
+    public void poll() {
+        if (System.currentTimeMillis() < backoffUntil) {
+            return;
+        }
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_POLL; i++) {
+                // 位点、事件与空洞复查都读主库：从库延迟会把已提交的事件误判为空洞
+                if (DataSourceRoutingContext.onPrimary(this::relayBatch) < properties.getBatchSize()) {
+                    break;
+                }
+            }
+            consecutiveFailures = 0;
+        } catch (Exception e) {
+            consecutiveFailures++;
+            failureCounter.increment();
+            long delay = Math.min(properties.getBackoffMaxMs(),
+                    properties.getBackoffInitialMs() << Math.min(consecutiveFailures - 1, 16));
+            backoffUntil = System.currentTimeMillis() + delay;
+            log.warn("Outbox relay failed, retry in {}ms (failures={}): {}", delay, consecutiveFailures, e.getMessage());
+        }
+    }
+
+    /**
+     * 清理所有 relay 都已投递且超过保留期的事件
+     */
+    @Scheduled(fixedDelay = 3_600_000L, initialDelay = 60_000L)
+    public void purge() {
+        if (properties.getRetentionHours() <= 0) {
+            return;
+        }
+        Long minLastId = DataSourceRoutingContext.onPrimary(checkpointRepository::findMinLastId);
+        if (minLastId == null) {
+            return;
+        }
+        Integer deleted = transactionTemplate.execute(status -> eventRepository.deleteDelivered(
+                minLastId, LocalDateTime.now().minusHours(properties.getRetentionHours())));
+        if (deleted != null && deleted > 0) {
+            log.info("Outbox purged {} delivered events up to id {}", deleted, minLastId);
+        }
+    }
+
+    /**
+     * 投递一批，返回投递条数；位点已被其他节点推进时返回 0
+     */
+    private int relayBatch() {
+        long lastId = loadCheckpoint().getLastId();
+        gapFirstSeen.headMap(lastId, true).clear();
+
+        List<OutboxEvent> events = eventRepository.findByIdGreaterThanOrderByIdAsc(
+                lastId, PageRequest.of(0, properties.getBatchSize()));
+        List<OutboxEvent> batch = contiguousPrefix(lastId, events);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            sink.publish(batch);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        publishedCounter.increment(batch.size());
+
+        long newLastId = batch.get(batch.size() - 1).getId();
+        if (checkpointRepository.advance(properties.getRelayName(), lastId, newLastId, LocalDateTime.now()) == 0) {
+            log.debug("Outbox checkpoint {} moved past {} concurrently", properties.getRelayName(), lastId);
+            return 0;
+        }
+        return batch.size();
+    }
+
+    private OutboxCheckpoint loadCheckpoint() {
+        String relayName = properties.getRelayName();
+        return checkpointRepository.findById(relayName).orElseGet(() -> {
+            try {
+                return checkpointRepository.saveAndFlush(new OutboxCheckpoint(relayName, 0L, null));
+            } catch (DataIntegrityViolationException e) {
+                // 其他节点同时创建了位点
+                return checkpointRepository.findById(relayName).orElseThrow(() -> e);
+            }
+        });
+    }
+
+    /**
+     * 截取位点之后连续的一段；遇到空洞（对应事务可能尚未提交）即停止，
+     * 空洞从首次发现起超过 gap-timeout 且复查区间内仍无事件才跳过
+     */
+    private List<OutboxEvent> contiguousPrefix(long lastId, List<OutboxEvent> events) {
+        long now = System.currentTimeMillis();
+        List<OutboxEvent> batch = new ArrayList<>(events.size());
+        long expected = lastId + 1;
+        for (OutboxEvent event : events) {
+            if (event.getId() != expected) {
+                long from = expected;
+                long to = event.getId() - 1;
+                // 空洞前部被填上后起始 id 会后移，取区间内最早的发现时间
+                NavigableMap<Long, Long> seen = gapFirstSeen.subMap(from, true, to, true);
+                long firstSeen = seen.isEmpty() ? now : seen.values().stream().min(Long::compare).orElse(now);
+                seen.clear();
+                gapFirstSeen.put(from, firstSeen);
+                if (now - firstSeen < gapTimeoutMs || eventRepository.countByIdBetween(from, to) > 0) {
+                    break;
+                }
+                gapFirstSeen.remove(from);
+                long skipped = to - from + 1;
+                skippedCounter.increment(skipped);
+                log.warn("Outbox relay {} skipped {} missing ids [{}..{}] after {}ms",
+                        properties.getRelayName(), skipped, from, to, now - firstSeen);
+            }
+            batch.add(event);
+            expected = event.getId() + 1;
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,16 @@
+package com.matching.user.outbox;
+
+import com.matching.user.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Outbox 投递目标
+ * <p>
+ * 一批事件按 id 升序传入（同一 userId 的事件相对顺序不变）；整批成功才返回，
+ * 任何异常都会使 relay 保留位点并退避，因此实现需容忍重复投递（按 id 去重）。
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events) throws Exception;
+}
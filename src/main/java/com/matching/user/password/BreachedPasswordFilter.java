@@ -0,0 +1,137 @@
+package com.matching.user.password;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 泄露密码 Bloom 过滤器 - 只读内存映射，位数组不占堆
+ * <p>
+ * 文件格式（大端）：magic "BPWF"、版本、哈希个数 k、保留字段、位数 m、条目数 n，共 32 字节头，随后为位数组。
+ * 键为密码 UTF-8 的 SHA-1（与常见泄露库一致），第 i 个位置为 (h1 + i * h2) mod m，h1/h2 取自摘要前 16 字节。
+ * 文件由 {@link BreachedPasswordFilterBuilder} 离线生成。
+ */
+public class BreachedPasswordFilter {
+
+    static final int MAGIC = 0x42505746;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final int hashes;
+    private final long bits;
+    private final long entries;
+    private final MappedByteBuffer[] segments;
+
+    private BreachedPasswordFilter(int hashes, long bits, long entries, MappedByteBuffer[] segments) {
+        this.hashes = hashes;
+        this.bits = bits;
+        this.entries = entries;
+        this.segments = segments;
+    }
+
+    /**
+     * 只读映射过滤器文件；映射在进程结束或对象被回收时释放
+     */
+    public static BreachedPasswordFilter open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满头部
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a breached-password filter: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported filter version " + version + ": " + path);
+            }
+            int hashes = header.getInt();
+            header.getInt();
+            long bits = header.getLong();
+            long entries = header.getLong();
+            long bytes = (bits + 7) >>> 3;
+            if (channel.size() < HEADER_BYTES + bytes) {
+                throw new IOException("Truncated filter file: " + path);
+            }
+            return new BreachedPasswordFilter(hashes, bits, entries,
+                    mapSegments(channel, FileChannel.MapMode.READ_ONLY, bytes));
+        }
+    }
+
+    /**
+     * 密码是否（很可能）在泄露库中；误判率由生成时的参数决定，不会漏判
+     */
+    public boolean mightContain(String password) {
+        byte[] digest = SHA1.get().digest(password.getBytes(StandardCharsets.UTF_8));
+        return mightContainDigest(digest);
+    }
+
+    boolean mightContainDigest(byte[] sha1) {
+        long h1 = ByteBuffer.wrap(sha1, 0, 8).getLong();
+        long h2 = ByteBuffer.wrap(sha1, 8, 8).getLong() | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            long byteIndex = bit >>> 3;
+            byte b = segments[(int) (byteIndex >>> SEGMENT_SHIFT)].get((int) (byteIndex & SEGMENT_MASK));
+            if ((b & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把映射的位数组读入物理内存，返回映射字节数；启动预热时调用，避免首批请求触发缺页
+     */
+    public long load() {
+        long bytes = 0;
+        for (MappedByteBuffer segment : segments) {
+            segment.load();
+            bytes += segment.capacity();
+        }
+        return bytes;
+    }
+
+    public long entries() {
+        return entries;
+    }
+
+    public long bits() {
+        return bits;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    /**
+     * 按 1GB 分段映射位数组（单个 MappedByteBuffer 上限 2GB）
+     */
+    static MappedByteBuffer[] mapSegments(FileChannel channel, FileChannel.MapMode mode, long bytes) throws IOException {
+        int count = (int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segments = new MappedByteBuffer[Math.max(count, 1)];
+        for (int i = 0; i < segments.length; i++) {
+            long offset = (long) i << SEGMENT_SHIFT;
+            long size = Math.min(1L << SEGMENT_SHIFT, bytes - offset);
+            segments[i] = channel.map(mode, HEADER_BYTES + offset, Math.max(size, 0));
+        }
+        return segments;
+    }
+}
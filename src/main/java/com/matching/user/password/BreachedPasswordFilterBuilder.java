@@ -0,0 +1,100 @@
+package com.matching.user.password;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * 离线生成泄露密码过滤器文件
+ * <p>
+ * 输入每行一条：40 位十六进制 SHA-1（可带 ":次数" 后缀，即常见泄露库导出格式），或明文密码。
+ * 位数组直接写入映射的输出文件，生成过程同样不占堆。
+ * <pre>
+ * java -cp user-service.jar com.matching.user.password.BreachedPasswordFilterBuilder \
+ *     pwned-passwords-sha1.txt breached-passwords.bpwf [误判率，默认 0.001]
+ * </pre>
+ */
+public class BreachedPasswordFilterBuilder {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BreachedPasswordFilterBuilder <input> <output> [false-positive-rate]");
+            System.exit(1);
+        }
+        double fpp = args.length > 2 ? Double.parseDouble(args[2]) : 0.001;
+        long start = System.currentTimeMillis();
+        long entries = build(Path.of(args[0]), Path.of(args[1]), fpp);
+        System.out.printf("Built filter: entries=%d, size=%d bytes, %d ms%n",
+                entries, Files.size(Path.of(args[1])), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 生成过滤器文件，返回写入的条目数
+     */
+    public static long build(Path input, Path output, double fpp) throws Exception {
+        long n;
+        try (var lines = Files.lines(input, StandardCharsets.UTF_8)) {
+            n = Math.max(1, lines.filter(line -> !line.isBlank()).count());
+        }
+        long bits = Math.max(64, (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        long bytes = (bits + 7) >>> 3;
+
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        HexFormat hex = HexFormat.of();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            ByteBuffer header = ByteBuffer.allocate(BreachedPasswordFilter.HEADER_BYTES);
+            header.putInt(BreachedPasswordFilter.MAGIC).putInt(BreachedPasswordFilter.VERSION)
+                    .putInt(hashes).putInt(0).putLong(bits).putLong(n).flip();
+            channel.write(header, 0);
+            MappedByteBuffer[] segments = BreachedPasswordFilter.mapSegments(channel, FileChannel.MapMode.READ_WRITE, bytes);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                byte[] digest = isSha1Hex(line)
+                        ? hex.parseHex(line, 0, 40)
+                        : sha1.digest(line.getBytes(StandardCharsets.UTF_8));
+                long h1 = ByteBuffer.wrap(digest, 0, 8).getLong();
+                long h2 = ByteBuffer.wrap(digest, 8, 8).getLong() | 1;
+                for (int i = 0; i < hashes; i++) {
+                    long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+                    long byteIndex = bit >>> 3;
+                    MappedByteBuffer segment = segments[(int) (byteIndex >>> BreachedPasswordFilter.SEGMENT_SHIFT)];
+                    int offset = (int) (byteIndex & BreachedPasswordFilter.SEGMENT_MASK);
+                    segment.put(offset, (byte) (segment.get(offset) | (1 << (bit & 7))));
+                }
+                written++;
+            }
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        return written;
+    }
+
+    private static boolean isSha1Hex(String line) {
+        if (line.length() < 40 || (line.length() > 40 && line.charAt(40) != ':')) {
+            return false;
+        }
+        for (int i = 0; i < 40; i++) {
+            if (Character.digit(line.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
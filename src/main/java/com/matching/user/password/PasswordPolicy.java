@@ -0,0 +1,104 @@
+package com.matching.user.password;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 密码策略 - 注册与重置密码时在 BCrypt 之前校验
+ * <p>
+ * 依次检查长度、字符类别（password.require-*）和泄露密码过滤器；
+ * 过滤器文件未配置时只做规则校验，配置了但无法加载则启动失败。
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class PasswordPolicy {
+
+    @Value("${password.min-length:8}")
+    private int minLength;
+
+    @Value("${password.max-length:32}")
+    private int maxLength;
+
+    @Value("${password.require-uppercase:true}")
+    private boolean requireUppercase;
+
+    @Value("${password.require-lowercase:true}")
+    private boolean requireLowercase;
+
+    @Value("${password.require-digit:true}")
+    private boolean requireDigit;
+
+    @Value("${password.require-special-char:false}")
+    private boolean requireSpecialChar;
+
+    @Value("${password.breached-filter-path:}")
+    private String breachedFilterPath;
+
+    private BreachedPasswordFilter breachedFilter;
+
+    @PostConstruct
+    public void init() {
+        if (breachedFilterPath == null || breachedFilterPath.isBlank()) {
+            log.info("Breached password filter not configured");
+            return;
+        }
+        try {
+            breachedFilter = BreachedPasswordFilter.open(Path.of(breachedFilterPath));
+            log.info("Breached password filter mapped: entries={}, bits={}, hashes={}",
+                    breachedFilter.entries(), breachedFilter.bits(), breachedFilter.hashes());
+        } catch (IOException e) {
+            throw new IllegalStateException("无法加载泄露密码过滤器: " + breachedFilterPath, e);
+        }
+    }
+
+    /**
+     * 预加载泄露密码过滤器到内存，未配置时返回 0
+     */
+    public long preloadBreachedFilter() {
+        return breachedFilter != null ? breachedFilter.load() : 0;
+    }
+
+    /**
+     * 校验密码，不符合时抛出带原因的异常
+     */
+    public void validate(String password) {
+        if (password == null || password.length() < minLength || password.length() > maxLength) {
+            throw new RuntimeException("密码长度需为 " + minLength + "-" + maxLength + " 位");
+        }
+        boolean upper = false, lower = false, digit = false, special = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (Character.isUpperCase(c)) {
+                upper = true;
+            } else if (Character.isLowerCase(c)) {
+                lower = true;
+            } else if (Character.isDigit(c)) {
+                digit = true;
+            } else {
+                special = true;
+            }
+        }
+        if (requireUppercase && !upper) {
+            throw new RuntimeException("密码需包含大写字母");
+        }
+        if (requireLowercase && !lower) {
+            throw new RuntimeException("密码需包含小写字母");
+        }
+        if (requireDigit && !digit) {
+            throw new RuntimeException("密码需包含数字");
+        }
+        if (requireSpecialChar && !special) {
+            throw new RuntimeException("密码需包含特殊字符");
+        }
+        if (breachedFilter != null && breachedFilter.mightContain(password)) {
+            throw new RuntimeException("该密码已出现在公开泄露的密码库中，请更换");
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.matching.user.repository;
+
+import com.matching.config.datasource.DataSourceRoutingContext;
+import com.matching.user.dto.UserCredential;
+import com.matching.user.entity.User;
+import com.matching.user.entity.UserStatus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 单库用户存储 - 基于 UserRepository，未开启分片时使用
+ * <p>
+ * 开启读写分离时：写入后标记该用户（{@link PrimaryReadPins}），标记期间按 userId 的读取走主库；
+ * 按用户名读取无法预先知道 userId，先读从库，未命中或读到的用户仍在标记期内再回主库读取。
+ */
+@Component
+@Profile("!test")
+@ConditionalOnProperty(prefix = "user.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class JpaUserStore implements UserStore {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectProvider<PrimaryReadPins> primaryReadPins;
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return userRepository.existsByUsername(username);
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return userRepository.existsByEmail(email);
+    }
+
+    @Override
+    public boolean existsByPhone(String phone) {
+        return userRepository.existsByPhone(phone);
+    }
+
+    /**
+     * 邀请码刚分配、从库尚未同步时回主库重试
+     */
+    @Override
+    public Optional<Long> findUserIdByInviteCode(String inviteCode) {
+        Optional<Long> userId = userRepository.findUserIdByInviteCode(inviteCode);
+        if (userId.isEmpty()) {
+            userId = DataSourceRoutingContext.onPrimary(() -> userRepository.findUserIdByInviteCode(inviteCode));
+        }
+        return userId;
+    }
+
+    @Override
+    public boolean assignInviteCode(Long userId, String inviteCode) {
+        if (userRepository.assignInviteCode(userId, inviteCode) == 0) {
+            return false;
+        }
+        pin(userId);
+        return true;
+    }
+
+    @Override
+    public User save(User user) {
+        User saved = userRepository.save(user);
+        pin(saved.getUserId());
+        return saved;
+    }
+
+    /**
+     * 从库未命中（刚注册、尚未同步）或该用户刚被修改过（密码、状态可能是旧值）时回主库重试
+     */
+    @Override
+    public Optional<UserCredential> findCredentialByUsername(String username) {
+        Optional<UserCredential> credential = userRepository.findCredentialByUsername(username);
+        if (credential.isEmpty() || isPinned(credential.get().userId())) {
+            credential = DataSourceRoutingContext.onPrimary(() -> userRepository.findCredentialByUsername(username));
+        }
+        return credential;
+    }
+
+    @Override
+    public Optional<User> findByUserId(Long userId) {
+        if (isPinned(userId)) {
+            return DataSourceRoutingContext.onPrimary(() -> userRepository.findByUserId(userId));
+        }
+        return userRepository.findByUserId(userId);
+    }
+
+    @Override
+    public void updateStatus(Long userId, UserStatus status) {
+        userRepository.updateStatus(userId, status);
+        pin(userId);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return DataSourceRoutingContext.onPrimary(() -> userRepository.findByEmail(email));
+    }
+
+    @Override
+    public void updatePasswordHash(Long userId, String passwordHash) {
+        userRepository.updatePasswordHash(userId, passwordHash);
+        pin(userId);
+    }
+
+    @Override
+    public void forEachUsername(int batchSize, Consumer<String> consumer) {
+        long lastId = 0;
+        while (true) {
+            List<UserRepository.UsernameRow> rows =
+                    userRepository.findUsernamesAfter(lastId, PageRequest.ofSize(batchSize));
+            if (rows.isEmpty()) {
+                return;
+            }
+            rows.forEach(row -> consumer.accept(row.getUsername()));
+            lastId = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 自增主键顺序即注册顺序
+     */
+    @Override
+    public void forEachReferral(int batchSize, BiConsumer<Long, Long> consumer) {
+        long lastId = 0;
+        while (true) {
+            List<UserRepository.ReferralRow> rows =
+                    userRepository.findReferralsAfter(lastId, PageRequest.ofSize(batchSize));
+            if (rows.isEmpty()) {
+                return;
+            }
+            rows.forEach(row -> consumer.accept(row.getUserId(), row.getReferrerId()));
+            lastId = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    private void pin(Long userId) {
+        PrimaryReadPins pins = primaryReadPins.getIfAvailable();
+        if (pins != null) {
+            pins.pin(userId);
+        }
+    }
+
+    private boolean isPinned(Long userId) {
+        PrimaryReadPins pins = primaryReadPins.getIfAvailable();
+        return pins != null && pins.isPinned(userId);
+    }
+}
@@ -0,0 +1,34 @@
+package com.matching.user.repository;
+
+import com.matching.user.entity.OutboxCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox 位点数据访问层
+ */
+@Repository
+public interface OutboxCheckpointRepository extends JpaRepository<OutboxCheckpoint, String> {
+
+    /**
+     * 比较并推进位点：仅当位点仍为 expectedLastId 时更新，返回 0 表示已被其他节点推进
+     */
+    @Modifying
+    @Transactional
+    @Query("update OutboxCheckpoint c set c.lastId = :lastId, c.updatedAt = :updatedAt " +
+            "where c.relayName = :relayName and c.lastId = :expectedLastId")
+    int advance(@Param("relayName") String relayName, @Param("expectedLastId") Long expectedLastId,
+                @Param("lastId") Long lastId, @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * 所有 relay 中最小的位点，之前的事件均已被全部下游消费
+     */
+    @Query("select min(c.lastId) from OutboxCheckpoint c")
+    Long findMinLastId();
+}
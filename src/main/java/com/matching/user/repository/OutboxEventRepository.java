@@ -0,0 +1,42 @@
+package com.matching.user.repository;
+
+import com.matching.user.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox 事件数据访问层
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * 按 id 顺序读取位点之后的事件
+     */
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * 统计 id 区间内已可见的事件数，用于跳过空洞前复查
+     */
+    long countByIdBetween(Long fromId, Long toId);
+
+    /**
+     * 按 id 倒序读取某类事件的用户 id（可能重复），用于启动预热时找出最近活跃的用户
+     */
+    @Query("select e.userId from OutboxEvent e where e.eventType = :eventType order by e.id desc")
+    List<Long> findRecentUserIds(@Param("eventType") String eventType, Pageable pageable);
+
+    /**
+     * 清理已投递且超过保留期的事件
+     */
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id <= :lastId and e.createdAt < :before")
+    int deleteDelivered(@Param("lastId") Long lastId, @Param("before") LocalDateTime before);
+}
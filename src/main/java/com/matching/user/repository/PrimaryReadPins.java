@@ -0,0 +1,44 @@
+package com.matching.user.repository;
+
+import com.matching.config.datasource.DataSourceRoutingProperties;
+import com.matching.user.service.RedisKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 读己之写 - 用户数据写入后的 read-your-writes-ms 内，该用户的读取固定走主库
+ * <p>
+ * 标记存放在 Redis（随 userId 打 hash tag），写入与读取落在不同节点时同样生效；
+ * 时长应大于从库的最大复制延迟。只在开启读写分离时装配。
+ */
+@Component
+@Profile("!test")
+@ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+public class PrimaryReadPins {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private DataSourceRoutingProperties routingProperties;
+
+    /**
+     * 写入用户数据后调用
+     */
+    public void pin(Long userId) {
+        stringRedisTemplate.opsForValue().set(RedisKeys.primaryReadPin(userId), "1",
+                Duration.ofMillis(routingProperties.getReadYourWritesMs()));
+    }
+
+    /**
+     * 该用户的读取是否须走主库
+     */
+    public boolean isPinned(Long userId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisKeys.primaryReadPin(userId)));
+    }
+}
@@ -1,50 +1,149 @@
 package com.matching.user.repository;
 
+import com.matching.user.dto.UserCredential;
 import com.matching.user.entity.User;
 import com.matching.user.entity.UserStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
  * 用户数据访问层
+ * <p>
+ * 查询方法标记为只读事务，开启读写分离时分发到从库；在写事务中调用时加入该事务，仍走主库。
  */
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    /**
+     * 根据 userId 查找
+     */
+    @Transactional(readOnly = true)
+    Optional<User> findByUserId(Long userId);
+
     /**
      * 根据用户名查找
      */
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
 
+    /**
+     * 根据用户名查询登录凭证（DTO 投影，由 idx_users_credential 覆盖索引支撑）
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.matching.user.dto.UserCredential(u.userId, u.passwordHash, u.status, u.username, u.email) "
+            + "from User u where u.username = :username")
+    Optional<UserCredential> findCredentialByUsername(@Param("username") String username);
+
     /**
      * 根据邮箱查找
      */
+    @Transactional(readOnly = true)
     Optional<User> findByEmail(String email);
 
     /**
      * 根据手机号查找
      */
+    @Transactional(readOnly = true)
     Optional<User> findByPhone(String phone);
 
     /**
      * 根据推荐码查找
      */
+    @Transactional(readOnly = true)
     Optional<User> findByReferralCode(String referralCode);
 
+    /**
+     * 根据邀请码查询所有者 userId（只取 ID，不加载实体；invite_code 有唯一索引）
+     */
+    @Transactional(readOnly = true)
+    @Query("select u.userId from User u where u.inviteCode = :inviteCode")
+    Optional<Long> findUserIdByInviteCode(@Param("inviteCode") String inviteCode);
+
     /**
      * 检查用户名是否存在
      */
+    @Transactional(readOnly = true)
     boolean existsByUsername(String username);
 
     /**
      * 检查邮箱是否存在
      */
+    @Transactional(readOnly = true)
     boolean existsByEmail(String email);
 
     /**
      * 检查手机号是否存在
      */
+    @Transactional(readOnly = true)
     boolean existsByPhone(String phone);
+
+    /**
+     * 更新用户状态
+     */
+    @Modifying
+    @Transactional
+    @Query("update User u set u.status = :status, u.updatedAt = CURRENT_TIMESTAMP where u.userId = :userId")
+    int updateStatus(@Param("userId") Long userId, @Param("status") UserStatus status);
+
+    /**
+     * 更新密码哈希
+     */
+    @Modifying
+    @Transactional
+    @Query("update User u set u.passwordHash = :passwordHash, u.updatedAt = CURRENT_TIMESTAMP where u.userId = :userId")
+    int updatePasswordHash(@Param("userId") Long userId, @Param("passwordHash") String passwordHash);
+
+    /**
+     * 为尚无邀请码的用户设置邀请码，返回更新行数；邀请码冲突时抛出 DataIntegrityViolationException。
+     * 独立事务：在注册事务的提交后回调中调用，此时不能再加入已完成的事务
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("update User u set u.inviteCode = :inviteCode, u.updatedAt = CURRENT_TIMESTAMP "
+            + "where u.userId = :userId and u.inviteCode is null")
+    int assignInviteCode(@Param("userId") Long userId, @Param("inviteCode") String inviteCode);
+
+    /**
+     * 按主键分页读取用户名（只取 id 与 username）
+     */
+    @Transactional(readOnly = true)
+    @Query("select u.id as id, u.username as username from User u where u.id > :afterId order by u.id")
+    List<UsernameRow> findUsernamesAfter(@Param("afterId") Long afterId, Pageable page);
+
+    /**
+     * 按主键分页读取推荐关系（只取有推荐人的用户）
+     */
+    @Transactional(readOnly = true)
+    @Query("select u.id as id, u.userId as userId, u.referrerId as referrerId from User u "
+            + "where u.id > :afterId and u.referrerId is not null order by u.id")
+    List<ReferralRow> findReferralsAfter(@Param("afterId") Long afterId, Pageable page);
+
+    /**
+     * 用户名扫描投影
+     */
+    interface UsernameRow {
+        Long getId();
+
+        String getUsername();
+    }
+
+    /**
+     * 推荐关系扫描投影
+     */
+    interface ReferralRow {
+        Long getId();
+
+        Long getUserId();
+
+        Long getReferrerId();
+    }
 }
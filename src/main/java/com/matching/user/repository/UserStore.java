@@ -0,0 +1,81 @@
+package com.matching.user.repository;
+
+import com.matching.user.dto.UserCredential;
+import com.matching.user.entity.User;
+import com.matching.user.entity.UserStatus;
+
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 用户存储 - 认证流程使用的持久化操作，单库（JPA）与分片两种实现
+ */
+public interface UserStore {
+
+    /**
+     * 检查用户名是否存在
+     */
+    boolean existsByUsername(String username);
+
+    /**
+     * 检查邮箱是否存在
+     */
+    boolean existsByEmail(String email);
+
+    /**
+     * 检查手机号是否存在
+     */
+    boolean existsByPhone(String phone);
+
+    /**
+     * 根据邀请码查询其所有者（推荐人）userId
+     */
+    Optional<Long> findUserIdByInviteCode(String inviteCode);
+
+    /**
+     * 为尚无邀请码的用户设置邀请码；用户已有邀请码（或不存在）时返回 false，
+     * 邀请码已被其他用户占用时抛出 DataIntegrityViolationException
+     */
+    boolean assignInviteCode(Long userId, String inviteCode);
+
+    /**
+     * 保存新用户，userId 必须已分配
+     */
+    User save(User user);
+
+    /**
+     * 根据用户名查询登录凭证
+     */
+    Optional<UserCredential> findCredentialByUsername(String username);
+
+    /**
+     * 根据 userId 查询用户
+     */
+    Optional<User> findByUserId(Long userId);
+
+    /**
+     * 更新用户状态
+     */
+    void updateStatus(Long userId, UserStatus status);
+
+    /**
+     * 根据邮箱查询用户
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * 更新密码哈希
+     */
+    void updatePasswordHash(Long userId, String passwordHash);
+
+    /**
+     * 分批扫描全部用户名（启动时构建用户名索引），每批 batchSize 行
+     */
+    void forEachUsername(int batchSize, Consumer<String> consumer);
+
+    /**
+     * 按注册顺序分批扫描有推荐人的用户（userId, referrerId），用于重建推荐计数，每批 batchSize 行
+     */
+    void forEachReferral(int batchSize, BiConsumer<Long, Long> consumer);
+}
@@ -0,0 +1,78 @@
+package com.matching.user.repository.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环 - 每个分片映射为若干虚拟节点，新增分片时只迁移约 1/N 的数据
+ * <p>
+ * 实例不可变，拓扑变化时按新的分片列表重新构建。
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring;
+    private final Set<String> shards;
+
+    public ConsistentHashRing(Iterable<String> shardNames, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        Set<String> names = new LinkedHashSet<>();
+        NavigableMap<Long, String> nodes = new TreeMap<>();
+        for (String shard : shardNames) {
+            names.add(shard);
+            for (int i = 0; i < virtualNodes; i++) {
+                nodes.put(hashNode(shard + "#" + i), shard);
+            }
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.ring = Collections.unmodifiableNavigableMap(nodes);
+        this.shards = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * userId 所属分片
+     */
+    public String shardFor(long userId) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(mix(userId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public Set<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * 64 位混淆（MurmurHash3 fmix64），打散 Snowflake ID 的时间局部性
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static long hashNode(String node) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(node.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
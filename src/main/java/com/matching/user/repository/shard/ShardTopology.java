@@ -0,0 +1,134 @@
+package com.matching.user.repository.shard;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片拓扑 - 环的成员与状态保存在主库（与唯一索引表同库），所有节点据此构建同一个环
+ * <p>
+ * user_shard_ring：分片名 -> ACTIVE（在环中）/ JOINING（已加入新环、迁移中）；任何变更都递增 user_shard_ring_version。
+ * user_shard_node：每个节点定期上报已应用的拓扑版本与心跳，扩容在所有存活节点都切换到新环之后才开始迁移。
+ */
+public class ShardTopology {
+
+    public static final String ACTIVE = "ACTIVE";
+    public static final String JOINING = "JOINING";
+
+    private static final String CREATE_RING_TABLE = "CREATE TABLE IF NOT EXISTS user_shard_ring ("
+            + "shard_name VARCHAR(64) NOT NULL PRIMARY KEY, "
+            + "state VARCHAR(16) NOT NULL, "
+            + "updated_millis BIGINT NOT NULL)";
+
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS user_shard_ring_version ("
+            + "id INT NOT NULL PRIMARY KEY, "
+            + "version BIGINT NOT NULL)";
+
+    private static final String CREATE_NODE_TABLE = "CREATE TABLE IF NOT EXISTS user_shard_node ("
+            + "node_id VARCHAR(128) NOT NULL PRIMARY KEY, "
+            + "ring_version BIGINT NOT NULL, "
+            + "heartbeat_millis BIGINT NOT NULL)";
+
+    /**
+     * 某一版本的拓扑快照
+     */
+    public record Snapshot(long version, Map<String, String> states) {
+
+        public List<String> shards(String state) {
+            return states.entrySet().stream().filter(e -> e.getValue().equals(state)).map(Map.Entry::getKey).toList();
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+
+    public ShardTopology(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbc.execute(CREATE_RING_TABLE);
+        jdbc.execute(CREATE_VERSION_TABLE);
+        jdbc.execute(CREATE_NODE_TABLE);
+    }
+
+    /**
+     * 拓扑为空（首次启动）时写入初始分片；版本行与成员在同一事务内写入，多个节点同时首次启动时只有一个写入成功，
+     * 其余节点的插入等到该事务提交后因主键冲突返回，随后读到完整的成员
+     */
+    public void initialize(Collection<String> initialShards) {
+        try {
+            transaction.executeWithoutResult(status -> {
+                jdbc.update("INSERT INTO user_shard_ring_version (id, version) VALUES (1, 1)");
+                long now = System.currentTimeMillis();
+                for (String shard : initialShards) {
+                    jdbc.update("INSERT INTO user_shard_ring (shard_name, state, updated_millis) VALUES (?, ?, ?)",
+                            shard, ACTIVE, now);
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            // 已由其他节点初始化
+        }
+    }
+
+    public long version() {
+        List<Long> versions = jdbc.queryForList("SELECT version FROM user_shard_ring_version WHERE id = 1", Long.class);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    /**
+     * 先读版本再读成员：读取期间若有变更，版本必然更大，下次刷新会重新加载
+     */
+    public Snapshot load() {
+        long version = version();
+        Map<String, String> states = new LinkedHashMap<>();
+        jdbc.query("SELECT shard_name, state FROM user_shard_ring ORDER BY shard_name",
+                (RowCallbackHandler) rs -> states.put(rs.getString(1), rs.getString(2)));
+        return new Snapshot(version, states);
+    }
+
+    /**
+     * 设置分片状态并递增版本
+     */
+    public void setState(String shard, String state) {
+        transaction.executeWithoutResult(status -> {
+            long now = System.currentTimeMillis();
+            if (jdbc.update("UPDATE user_shard_ring SET state = ?, updated_millis = ? WHERE shard_name = ?",
+                    state, now, shard) == 0) {
+                jdbc.update("INSERT INTO user_shard_ring (shard_name, state, updated_millis) VALUES (?, ?, ?)",
+                        shard, state, now);
+            }
+            jdbc.update("UPDATE user_shard_ring_version SET version = version + 1 WHERE id = 1");
+        });
+    }
+
+    /**
+     * 上报本节点已应用的拓扑版本
+     */
+    public void heartbeat(String nodeId, long appliedVersion) {
+        long now = System.currentTimeMillis();
+        if (jdbc.update("UPDATE user_shard_node SET ring_version = ?, heartbeat_millis = ? WHERE node_id = ?",
+                appliedVersion, now, nodeId) == 0) {
+            jdbc.update("INSERT INTO user_shard_node (node_id, ring_version, heartbeat_millis) VALUES (?, ?, ?)",
+                    nodeId, appliedVersion, now);
+        }
+    }
+
+    /**
+     * 心跳在 liveMillis 内、但尚未应用 version 的节点
+     */
+    public List<String> laggingNodes(long version, long liveMillis) {
+        return jdbc.queryForList("SELECT node_id FROM user_shard_node WHERE heartbeat_millis > ? AND ring_version < ?",
+                String.class, System.currentTimeMillis() - liveMillis, version);
+    }
+
+    public void removeNode(String nodeId) {
+        jdbc.update("DELETE FROM user_shard_node WHERE node_id = ?", nodeId);
+    }
+}
@@ -0,0 +1,680 @@
+package com.matching.user.repository.shard;
+
+import com.matching.user.dto.UserCredential;
+import com.matching.user.entity.User;
+import com.matching.user.entity.UserStatus;
+import com.matching.user.repository.UserStore;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 分片用户存储 - users 表按 userId 一致性哈希分布到多个数据源
+ * <p>
+ * 用户名、邮箱、手机号、邀请码的唯一性由主库上的 user_unique_index 表保证，并用于把这些字段解析为 userId。
+ * 环的成员由主库中的 {@link ShardTopology} 决定，各节点定期拉取，重启后按拓扑恢复（新分片须已在配置中）。
+ * <p>
+ * 扩容：新分片先以 JOINING 加入拓扑，等所有存活节点都切换到"新环 + 旧环"后才开始迁移。
+ * 迁移期间写入与读取先按新环、未命中再按旧环，仍未命中时再查一次新环（行恰好在两次访问之间被迁走）。
+ * 每行在源分片的事务中 SELECT ... FOR UPDATE 锁住后复制到新分片再删除，并发的更新要么先于锁提交（被复制），
+ * 要么等锁释放后在源分片更新不到、转而更新新分片，不会丢失；迁移完成后分片改为 ACTIVE。
+ */
+@Slf4j
+public class ShardedUserStore implements UserStore, DisposableBean {
+
+    static final String KIND_USERNAME = "USERNAME";
+    static final String KIND_EMAIL = "EMAIL";
+    static final String KIND_PHONE = "PHONE";
+    static final String KIND_INVITE = "INVITE";
+
+    private static final String USER_COLUMNS = "user_id, username, email, password_hash, salt, phone, phone_verified, "
+            + "email_verified, status, referral_code, invite_code, referrer_id, created_at, updated_at";
+
+    private static final String CREATE_USERS_TABLE = "CREATE TABLE IF NOT EXISTS users ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "user_id BIGINT NOT NULL UNIQUE, "
+            + "username VARCHAR(64) NOT NULL, "
+            + "email VARCHAR(128) NOT NULL, "
+            + "password_hash VARCHAR(128) NOT NULL, "
+            + "salt VARCHAR(64), "
+            + "phone VARCHAR(32), "
+            + "phone_verified BOOLEAN, "
+            + "email_verified BOOLEAN, "
+            + "status VARCHAR(32) NOT NULL, "
+            + "referral_code VARCHAR(32), "
+            + "invite_code VARCHAR(16), "
+            + "referrer_id BIGINT, "
+            + "created_at TIMESTAMP, "
+            + "updated_at TIMESTAMP)";
+
+    private static final String CREATE_INDEX_TABLE = "CREATE TABLE IF NOT EXISTS user_unique_index ("
+            + "kind VARCHAR(16) NOT NULL, "
+            + "lookup_value VARCHAR(128) NOT NULL, "
+            + "user_id BIGINT NOT NULL, "
+            + "PRIMARY KEY (kind, lookup_value))";
+
+    private final JdbcTemplate indexJdbc;
+    private final ShardingProperties properties;
+    private final ShardTopology topology;
+    private final String nodeId;
+    private final Map<String, JdbcTemplate> shards = new ConcurrentHashMap<>();
+    private final Map<String, TransactionTemplate> shardTransactions = new ConcurrentHashMap<>();
+    private final Map<String, HikariDataSource> ownedDataSources = new ConcurrentHashMap<>();
+
+    private volatile ConsistentHashRing ring;
+    private volatile ConsistentHashRing previousRing;
+    private volatile long appliedVersion;
+
+    // 扩容状态（本节点触发的扩容）
+    private final AtomicBoolean expanding = new AtomicBoolean();
+    private final AtomicLong movedRows = new AtomicLong();
+    private volatile String expansionShard;
+    private volatile String expansionPhase;
+    private volatile String expansionError;
+
+    public ShardedUserStore(DataSource indexDataSource, ShardingProperties properties) {
+        this.indexJdbc = new JdbcTemplate(indexDataSource);
+        this.properties = properties;
+        indexJdbc.execute(CREATE_INDEX_TABLE);
+        properties.getShards().forEach(this::attachShard);
+        this.topology = new ShardTopology(indexDataSource);
+        topology.initialize(properties.getInitialRing().isEmpty() ? shards.keySet() : properties.getInitialRing());
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + "#" + UUID.randomUUID().toString().substring(0, 8);
+        apply(topology.load());
+        topology.heartbeat(nodeId, appliedVersion);
+        log.info("User sharding enabled: ring={}, migrating={}, node={}", ring.getShards(), previousRing != null, nodeId);
+    }
+
+    // ==================== UserStore ====================
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return lookupUserId(KIND_USERNAME, username).isPresent();
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return lookupUserId(KIND_EMAIL, email).isPresent();
+    }
+
+    @Override
+    public boolean existsByPhone(String phone) {
+        return lookupUserId(KIND_PHONE, phone).isPresent();
+    }
+
+    @Override
+    public Optional<Long> findUserIdByInviteCode(String inviteCode) {
+        return lookupUserId(KIND_INVITE, inviteCode);
+    }
+
+    /**
+     * 先占用唯一索引（冲突即抛出 DuplicateKeyException），再更新归属分片；用户已有邀请码时释放占用
+     */
+    @Override
+    public boolean assignInviteCode(Long userId, String inviteCode) {
+        List<String[]> claimed = new ArrayList<>(1);
+        claim(KIND_INVITE, inviteCode, userId, claimed);
+        boolean assigned = false;
+        try {
+            assigned = updateOnOwner(userId, "UPDATE users SET invite_code = ?, updated_at = ? "
+                    + "WHERE user_id = ? AND invite_code IS NULL", inviteCode, toTimestamp(LocalDateTime.now()), userId) > 0;
+            return assigned;
+        } finally {
+            if (!assigned) {
+                release(claimed);
+            }
+        }
+    }
+
+    /**
+     * 先占用唯一索引（失败即重复），再写入归属分片；分片写入失败时释放已占用的索引。
+     * 两者都不在调用方（注册）的事务中提交，调用方事务回滚时由回调删除分片行并释放索引，否则这些用户名、邮箱、手机号永久不可用
+     */
+    @Override
+    public User save(User user) {
+        List<String[]> claimed = new ArrayList<>(3);
+        try {
+            claim(KIND_USERNAME, user.getUsername(), user.getUserId(), claimed);
+            claim(KIND_EMAIL, user.getEmail(), user.getUserId(), claimed);
+            if (user.getPhone() != null) {
+                claim(KIND_PHONE, user.getPhone(), user.getUserId(), claimed);
+            }
+            if (user.getInviteCode() != null) {
+                claim(KIND_INVITE, user.getInviteCode(), user.getUserId(), claimed);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            user.setCreatedAt(now);
+            user.setUpdatedAt(now);
+            insertUser(shards.get(ring.shardFor(user.getUserId())), user);
+        } catch (RuntimeException e) {
+            release(claimed);
+            if (e instanceof DuplicateKeyException) {
+                throw new RuntimeException("用户名、邮箱或手机号已被注册");
+            }
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            long userId = user.getUserId();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        discard(userId, claimed);
+                    }
+                }
+            });
+        }
+        return user;
+    }
+
+    /**
+     * 调用方事务未提交：删除已写入的分片行并释放索引
+     */
+    private void discard(long userId, List<String[]> claimed) {
+        try {
+            updateOnOwner(userId, "DELETE FROM users WHERE user_id = ?", userId);
+            release(claimed);
+            log.info("Discarded user row and unique index claims after rollback: userId={}", userId);
+        } catch (RuntimeException e) {
+            log.error("Failed to discard user row after rollback: userId={}, claims={}", userId,
+                    claimed.stream().map(entry -> entry[0] + ":" + entry[1]).toList(), e);
+        }
+    }
+
+    private void release(List<String[]> claimed) {
+        for (String[] entry : claimed) {
+            indexJdbc.update("DELETE FROM user_unique_index WHERE kind = ? AND lookup_value = ?", entry[0], entry[1]);
+        }
+    }
+
+    @Override
+    public Optional<UserCredential> findCredentialByUsername(String username) {
+        return lookupUserId(KIND_USERNAME, username).flatMap(userId -> findOnOwner(userId,
+                "SELECT user_id, password_hash, status, username, email FROM users WHERE user_id = ?",
+                (rs, i) -> new UserCredential(rs.getLong("user_id"), rs.getString("password_hash"),
+                        UserStatus.valueOf(rs.getString("status")), rs.getString("username"), rs.getString("email"))));
+    }
+
+    @Override
+    public Optional<User> findByUserId(Long userId) {
+        return findOnOwner(userId, "SELECT " + USER_COLUMNS + " FROM users WHERE user_id = ?", (rs, i) -> mapUser(rs));
+    }
+
+    @Override
+    public void updateStatus(Long userId, UserStatus status) {
+        updateOnOwner(userId, "UPDATE users SET status = ?, updated_at = ? WHERE user_id = ?",
+                status.name(), toTimestamp(LocalDateTime.now()), userId);
+    }
+
+    @Override
+    public void updatePasswordHash(Long userId, String passwordHash) {
+        updateOnOwner(userId, "UPDATE users SET password_hash = ?, updated_at = ? WHERE user_id = ?",
+                passwordHash, toTimestamp(LocalDateTime.now()), userId);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return lookupUserId(KIND_EMAIL, email).flatMap(this::findByUserId);
+    }
+
+    /**
+     * 根据手机号查询用户
+     */
+    public Optional<User> findByPhone(String phone) {
+        return lookupUserId(KIND_PHONE, phone).flatMap(this::findByUserId);
+    }
+
+    /**
+     * 用户名全部登记在唯一索引表中，按 (kind, lookup_value) 主键分页扫描，无需逐个分片读取
+     */
+    @Override
+    public void forEachUsername(int batchSize, Consumer<String> consumer) {
+        String last = "";
+        while (true) {
+            List<String> names = indexJdbc.queryForList(
+                    "SELECT lookup_value FROM user_unique_index WHERE kind = ? AND lookup_value > ? "
+                            + "ORDER BY lookup_value LIMIT ?", String.class, KIND_USERNAME, last, batchSize);
+            if (names.isEmpty()) {
+                return;
+            }
+            names.forEach(consumer);
+            last = names.get(names.size() - 1);
+        }
+    }
+
+    /**
+     * userId 为随时间递增的雪花 id：每批从各分片各取 user_id 之后的 batchSize 行，合并后按 user_id 输出前 batchSize 行。
+     * 迁移中同一行可能短暂同时出现在新旧分片，按 user_id 去重
+     */
+    @Override
+    public void forEachReferral(int batchSize, BiConsumer<Long, Long> consumer) {
+        long last = Long.MIN_VALUE;
+        while (true) {
+            TreeMap<Long, Long> merged = new TreeMap<>();
+            for (JdbcTemplate shard : shards.values()) {
+                shard.query("SELECT user_id, referrer_id FROM users WHERE referrer_id IS NOT NULL AND user_id > ? "
+                                + "ORDER BY user_id LIMIT ?",
+                        (RowCallbackHandler) rs -> merged.put(rs.getLong("user_id"), rs.getLong("referrer_id")),
+                        last, batchSize);
+            }
+            if (merged.isEmpty()) {
+                return;
+            }
+            int emitted = 0;
+            for (Map.Entry<Long, Long> row : merged.entrySet()) {
+                if (emitted++ == batchSize) {
+                    break;
+                }
+                consumer.accept(row.getKey(), row.getValue());
+                last = row.getKey();
+            }
+        }
+    }
+
+    // ==================== 拓扑与扩容 ====================
+
+    /**
+     * 拉取拓扑（版本变化时重建环）并上报心跳；拓扑中出现本节点未配置的分片时保持旧环并报错，扩容会因本节点未确认而不开始迁移
+     */
+    @Scheduled(fixedDelayString = "${user.sharding.topology-refresh-ms:2000}")
+    public void refreshTopology() {
+        try {
+            if (topology.version() != appliedVersion) {
+                apply(topology.load());
+                log.info("Shard topology applied: version={}, ring={}, migrating={}",
+                        appliedVersion, ring.getShards(), previousRing != null);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to apply shard topology", e);
+        }
+        try {
+            topology.heartbeat(nodeId, appliedVersion);
+        } catch (RuntimeException e) {
+            log.warn("Shard topology heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在线扩容（同步执行到迁移完成）：分片须已在所有节点的 user.sharding.shards 中配置
+     */
+    public void addShard(String name) {
+        beginExpansion(name);
+        try {
+            expand(name);
+        } finally {
+            expanding.set(false);
+        }
+    }
+
+    /**
+     * 校验后在后台线程中扩容，进度见 {@link #status()}
+     */
+    public void startAddShard(String name) {
+        beginExpansion(name);
+        Thread.ofPlatform().name("shard-expansion").daemon().start(() -> {
+            try {
+                expand(name);
+            } catch (RuntimeException e) {
+                log.error("Shard {} expansion failed", name, e);
+            } finally {
+                expanding.set(false);
+            }
+        });
+    }
+
+    /**
+     * 拓扑、本节点的环与扩容进度
+     */
+    public Map<String, Object> status() {
+        ShardTopology.Snapshot snapshot = topology.load();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("version", snapshot.version());
+        status.put("shards", snapshot.states());
+        status.put("node", nodeId);
+        status.put("appliedVersion", appliedVersion);
+        if (expansionShard != null) {
+            Map<String, Object> expansion = new LinkedHashMap<>();
+            expansion.put("shard", expansionShard);
+            expansion.put("phase", expansionPhase);
+            expansion.put("movedRows", movedRows.get());
+            expansion.put("error", expansionError);
+            status.put("expansion", expansion);
+        }
+        return status;
+    }
+
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * 各分片的连接池（启动预热时预先建连）
+     */
+    public Collection<HikariDataSource> getShardDataSources() {
+        return List.copyOf(ownedDataSources.values());
+    }
+
+    private void beginExpansion(String name) {
+        if (!shards.containsKey(name)) {
+            throw new IllegalArgumentException("分片 " + name + " 未在 user.sharding.shards 中配置");
+        }
+        if (!expanding.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有扩容在进行中");
+        }
+        ShardTopology.Snapshot snapshot = topology.load();
+        List<String> joining = snapshot.shards(ShardTopology.JOINING);
+        String error = null;
+        if (ShardTopology.ACTIVE.equals(snapshot.states().get(name))) {
+            error = "分片 " + name + " 已在环中";
+        } else if (!joining.isEmpty() && !joining.contains(name)) {
+            error = "分片 " + joining.get(0) + " 正在迁移";
+        }
+        if (error != null) {
+            expanding.set(false);
+            throw new IllegalStateException(error);
+        }
+    }
+
+    /**
+     * JOINING 写入拓扑 -> 等待所有存活节点切换 -> 迁移 -> ACTIVE；中途失败时分片保持 JOINING，再次触发即从头续迁
+     */
+    private void expand(String name) {
+        expansionShard = name;
+        expansionError = null;
+        movedRows.set(0);
+        try {
+            expansionPhase = "WAITING_NODES";
+            topology.setState(name, ShardTopology.JOINING);
+            apply(topology.load());
+            topology.heartbeat(nodeId, appliedVersion);
+            awaitNodes(appliedVersion);
+
+            expansionPhase = "MIGRATING";
+            ConsistentHashRing previous = previousRing;
+            if (previous == null) {
+                throw new IllegalStateException("Shard " + name + " is not joining");
+            }
+            log.info("Shard {} joined, migrating rows: ring={}", name, ring.getShards());
+            for (String source : previous.getShards()) {
+                migrate(source);
+            }
+
+            topology.setState(name, ShardTopology.ACTIVE);
+            apply(topology.load());
+            topology.heartbeat(nodeId, appliedVersion);
+            expansionPhase = "DONE";
+            log.info("Shard {} migration completed: movedRows={}", name, movedRows.get());
+        } catch (RuntimeException e) {
+            expansionPhase = "FAILED";
+            expansionError = e.getMessage();
+            throw e;
+        }
+    }
+
+    /**
+     * 等待心跳存活的节点都已应用 version；仍按旧环写入的节点会把新用户写到旧归属分片，迁移必须在此之后开始
+     */
+    private void awaitNodes(long version) {
+        long deadline = System.currentTimeMillis() + properties.getTopologyAckTimeoutMs();
+        while (true) {
+            List<String> lagging = topology.laggingNodes(version, properties.getNodeLiveMs());
+            if (lagging.isEmpty()) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("节点未切换到新的分片拓扑，未开始迁移: " + lagging);
+            }
+            try {
+                Thread.sleep(Math.min(200, properties.getTopologyRefreshMs()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for nodes", e);
+            }
+        }
+    }
+
+    /**
+     * 本节点应用拓扑快照；先设置旧环再设置新环，读写任何时刻都能回退到旧归属分片
+     */
+    private synchronized void apply(ShardTopology.Snapshot snapshot) {
+        for (String shard : snapshot.states().keySet()) {
+            if (!shards.containsKey(shard)) {
+                throw new IllegalStateException("分片 " + shard + " 已在拓扑中，但本节点未在 user.sharding.shards 中配置");
+            }
+        }
+        List<String> active = snapshot.shards(ShardTopology.ACTIVE);
+        List<String> joining = snapshot.shards(ShardTopology.JOINING);
+        List<String> members = new ArrayList<>(active);
+        members.addAll(joining);
+        ConsistentHashRing next = new ConsistentHashRing(members, properties.getVirtualNodes());
+        if (joining.isEmpty()) {
+            ring = next;
+            previousRing = null;
+        } else {
+            previousRing = new ConsistentHashRing(active, properties.getVirtualNodes());
+            ring = next;
+        }
+        appliedVersion = snapshot.version();
+    }
+
+    /**
+     * 按主键分页扫描源分片，逐行迁移归属已变化的行
+     */
+    private void migrate(String source) {
+        JdbcTemplate sourceJdbc = shards.get(source);
+        long lastId = 0;
+        while (true) {
+            List<Object[]> rows = sourceJdbc.query(
+                    "SELECT id, user_id FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                    (rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2)}, lastId, properties.getMigrationBatchSize());
+            if (rows.isEmpty()) {
+                return;
+            }
+            for (Object[] row : rows) {
+                long userId = (Long) row[1];
+                String target = ring.shardFor(userId);
+                if (!target.equals(source) && moveRow(source, target, userId)) {
+                    movedRows.incrementAndGet();
+                }
+            }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    /**
+     * 在源分片事务中锁住该行，复制到新分片后删除；新分片已有副本（上次迁移中断）时保留 updated_at 较新的一份
+     */
+    private boolean moveRow(String source, String target, long userId) {
+        JdbcTemplate sourceJdbc = shards.get(source);
+        JdbcTemplate targetJdbc = shards.get(target);
+        Boolean moved = shardTransactions.get(source).execute(status -> {
+            List<User> rows = sourceJdbc.query("SELECT " + USER_COLUMNS + " FROM users WHERE user_id = ? FOR UPDATE",
+                    (rs, i) -> mapUser(rs), userId);
+            if (rows.isEmpty()) {
+                return false;
+            }
+            User user = rows.get(0);
+            try {
+                insertUser(targetJdbc, user);
+            } catch (DuplicateKeyException e) {
+                List<Timestamp> copied = targetJdbc.queryForList(
+                        "SELECT updated_at FROM users WHERE user_id = ?", Timestamp.class, userId);
+                LocalDateTime copiedAt = copied.isEmpty() ? null : toLocalDateTime(copied.get(0));
+                if (user.getUpdatedAt() != null && (copiedAt == null || user.getUpdatedAt().isAfter(copiedAt))) {
+                    overwriteUser(targetJdbc, user);
+                }
+            }
+            sourceJdbc.update("DELETE FROM users WHERE user_id = ?", userId);
+            return true;
+        });
+        return Boolean.TRUE.equals(moved);
+    }
+
+    // ==================== 内部方法 ====================
+
+    private void attachShard(String name, ShardingProperties.Shard config) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(config.getUrl())
+                .username(config.getUsername())
+                .password(config.getPassword())
+                .driverClassName(config.getDriverClassName())
+                .build();
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(config.getMaximumPoolSize());
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute(CREATE_USERS_TABLE);
+        addInviteCodeColumn(jdbc);
+        ownedDataSources.put(name, dataSource);
+        shardTransactions.put(name, new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        shards.put(name, jdbc);
+    }
+
+    /**
+     * 早于邀请码的分片表补列（ADD COLUMN IF NOT EXISTS 不是各库通用的语法，先探测）
+     */
+    private static void addInviteCodeColumn(JdbcTemplate jdbc) {
+        try {
+            jdbc.queryForList("SELECT invite_code FROM users WHERE 1 = 0");
+        } catch (BadSqlGrammarException e) {
+            jdbc.execute("ALTER TABLE users ADD COLUMN invite_code VARCHAR(16)");
+        }
+    }
+
+    private Optional<Long> lookupUserId(String kind, String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        List<Long> ids = indexJdbc.queryForList(
+                "SELECT user_id FROM user_unique_index WHERE kind = ? AND lookup_value = ?", Long.class, kind, value);
+        return ids.isEmpty() ? Optional.empty() : Optional.of(ids.get(0));
+    }
+
+    private void claim(String kind, String value, long userId, List<String[]> claimed) {
+        indexJdbc.update("INSERT INTO user_unique_index (kind, lookup_value, user_id) VALUES (?, ?, ?)", kind, value, userId);
+        claimed.add(new String[]{kind, value});
+    }
+
+    /**
+     * 迁移期间：新归属分片 -> 旧归属分片 -> 新归属分片（两次访问之间行被迁走）
+     */
+    private <T> Optional<T> findOnOwner(long userId, String sql, RowMapper<T> mapper) {
+        ConsistentHashRing previous = previousRing;
+        JdbcTemplate owner = shards.get(ring.shardFor(userId));
+        List<T> result = owner.query(sql, mapper, userId);
+        if (result.isEmpty() && previous != null) {
+            JdbcTemplate previousOwner = shards.get(previous.shardFor(userId));
+            if (previousOwner != owner) {
+                result = previousOwner.query(sql, mapper, userId);
+                if (result.isEmpty()) {
+                    result = owner.query(sql, mapper, userId);
+                }
+            }
+        }
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * 与 findOnOwner 相同的顺序；旧归属分片上的更新若在迁移锁上等待，锁释放后该行已删除（更新 0 行），转而更新新分片。
+     * 返回更新行数
+     */
+    private int updateOnOwner(long userId, String sql, Object... args) {
+        ConsistentHashRing previous = previousRing;
+        JdbcTemplate owner = shards.get(ring.shardFor(userId));
+        int updated = owner.update(sql, args);
+        if (updated > 0 || previous == null) {
+            return updated;
+        }
+        JdbcTemplate previousOwner = shards.get(previous.shardFor(userId));
+        if (previousOwner == owner) {
+            return 0;
+        }
+        updated = previousOwner.update(sql, args);
+        return updated > 0 ? updated : owner.update(sql, args);
+    }
+
+    private static void insertUser(JdbcTemplate jdbc, User user) {
+        jdbc.update("INSERT INTO users (" + USER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                user.getUserId(), user.getUsername(), user.getEmail(), user.getPasswordHash(), user.getSalt(),
+                user.getPhone(), user.getPhoneVerified(), user.getEmailVerified(), user.getStatus().name(),
+                user.getReferralCode(), user.getInviteCode(), user.getReferrerId(),
+                toTimestamp(user.getCreatedAt()), toTimestamp(user.getUpdatedAt()));
+    }
+
+    private static void overwriteUser(JdbcTemplate jdbc, User user) {
+        jdbc.update("UPDATE users SET username = ?, email = ?, password_hash = ?, salt = ?, phone = ?, phone_verified = ?, "
+                        + "email_verified = ?, status = ?, referral_code = ?, invite_code = ?, referrer_id = ?, created_at = ?, "
+                        + "updated_at = ? WHERE user_id = ?",
+                user.getUsername(), user.getEmail(), user.getPasswordHash(), user.getSalt(), user.getPhone(),
+                user.getPhoneVerified(), user.getEmailVerified(), user.getStatus().name(), user.getReferralCode(),
+                user.getInviteCode(), user.getReferrerId(), toTimestamp(user.getCreatedAt()), toTimestamp(user.getUpdatedAt()), user.getUserId());
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        return User.builder()
+                .userId(rs.getLong("user_id"))
+                .username(rs.getString("username"))
+                .email(rs.getString("email"))
+                .passwordHash(rs.getString("password_hash"))
+                .salt(rs.getString("salt"))
+                .phone(rs.getString("phone"))
+                .phoneVerified(rs.getBoolean("phone_verified"))
+                .emailVerified(rs.getBoolean("email_verified"))
+                .status(UserStatus.valueOf(rs.getString("status")))
+                .referralCode(rs.getString("referral_code"))
+                .inviteCode(rs.getString("invite_code"))
+                .referrerId(rs.getObject("referrer_id", Long.class))
+                .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                .build();
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            topology.removeNode(nodeId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to deregister shard node {}: {}", nodeId, e.getMessage());
+        }
+        ownedDataSources.values().forEach(HikariDataSource::close);
+    }
+}
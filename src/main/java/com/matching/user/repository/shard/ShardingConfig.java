@@ -0,0 +1,28 @@
+package com.matching.user.repository.shard;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+
+/**
+ * 分片配置 - user.sharding.enabled=true 时以 ShardedUserStore 替代单库存储
+ * <p>
+ * 唯一索引表与分片拓扑放在 spring.datasource 主库上，users 行分布在 user.sharding.shards。
+ */
+@Configuration
+@EnableScheduling
+@Profile("!test")
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(prefix = "user.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardedUserStore shardedUserStore(DataSource dataSource, ShardingProperties properties) {
+        return new ShardedUserStore(dataSource, properties);
+    }
+}
@@ -0,0 +1,66 @@
+package com.matching.user.repository.shard;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户表分片配置
+ */
+@Data
+@ConfigurationProperties(prefix = "user.sharding")
+public class ShardingProperties {
+
+    /**
+     * 是否开启分片
+     */
+    private boolean enabled = false;
+
+    /**
+     * 每个分片的虚拟节点数
+     */
+    private int virtualNodes = 160;
+
+    /**
+     * 分片迁移每批行数
+     */
+    private int migrationBatchSize = 500;
+
+    /**
+     * 分片数据源，key 为分片名；环的成员以主库中的拓扑为准，扩容前须先在所有节点上配置好新分片的数据源
+     */
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    /**
+     * 拓扑为空（首次启动）时放入环的分片，留空为全部已配置分片
+     */
+    private List<String> initialRing = new ArrayList<>();
+
+    /**
+     * 各节点拉取拓扑并上报心跳的间隔
+     */
+    private long topologyRefreshMs = 2000;
+
+    /**
+     * 心跳在该时长内的节点视为存活，扩容需等待其全部切换到新环
+     */
+    private long nodeLiveMs = 10000;
+
+    /**
+     * 等待存活节点切换到新环的最长时间，超时则不开始迁移（分片保持 JOINING，可再次触发）
+     */
+    private long topologyAckTimeoutMs = 60000;
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+    }
+}
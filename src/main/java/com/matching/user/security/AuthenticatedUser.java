@@ -0,0 +1,7 @@
+package com.matching.user.security;
+
+/**
+ * 已认证用户 - 由 TokenAuthenticationFilter 放入 SecurityContext 的轻量 principal
+ */
+public record AuthenticatedUser(Long userId, String token) {
+}
@@ -0,0 +1,64 @@
+package com.matching.user.security;
+
+import com.matching.user.service.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bearer Token 认证过滤器 - 每个请求只通过 TokenService 校验一次 Token
+ * <p>
+ * admin.user-ids 中的用户额外获得 {@link #ADMIN_AUTHORITY}，/admin/** 由 SecurityConfig 按该权限统一放行。
+ * 不注册为 Spring Bean，由 SecurityConfig 加入过滤器链，避免被 Servlet 容器重复注册。
+ */
+@Slf4j
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String ADMIN_AUTHORITY = "ADMIN";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES = List.of(new SimpleGrantedAuthority(ADMIN_AUTHORITY));
+
+    private final TokenService tokenService;
+    private final Set<Long> adminUserIds;
+
+    public TokenAuthenticationFilter(TokenService tokenService, Collection<Long> adminUserIds) {
+        this.tokenService = tokenService;
+        this.adminUserIds = adminUserIds == null ? Set.of() : Set.copyOf(adminUserIds);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith(BEARER_PREFIX)) {
+            String token = authHeader.substring(BEARER_PREFIX.length());
+            Long userId = tokenService.verifyToken(token);
+            if (userId != null) {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        new AuthenticatedUser(userId, token), null,
+                        adminUserIds.contains(userId) ? ADMIN_AUTHORITIES : List.of());
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authentication);
+                SecurityContextHolder.setContext(context);
+            } else {
+                log.debug("Bearer token rejected: uri={}", request.getRequestURI());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
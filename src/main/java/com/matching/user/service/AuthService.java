@@ -1,21 +1,47 @@
 package com.matching.user.service;
 
+import com.matching.config.warmup.WarmupRunner;
+import com.matching.user.analytics.ActiveUserAnalytics;
+import com.matching.user.audit.LoginAuditLog;
+import com.matching.user.audit.LoginAuditRecord;
 import com.matching.user.dto.DeviceInfo;
 import com.matching.user.dto.LoginRequest;
 import com.matching.user.dto.RegisterRequest;
+import com.matching.user.dto.UserCredential;
 import com.matching.user.entity.User;
+import com.matching.user.event.UserRegisteredEvent;
 import com.matching.user.entity.UserStatus;
-import com.matching.user.repository.UserRepository;
+import com.matching.user.jfr.AuthPhaseEvent;
+import com.matching.user.jfr.LoginEvent;
+import com.matching.user.password.PasswordPolicy;
+import com.matching.user.repository.UserStore;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
-import java.security.SecureRandom;
-import java.util.UUID;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -27,7 +53,7 @@ import java.util.concurrent.TimeUnit;
 public class AuthService {
 
     @Autowired
-    private UserRepository userRepository;
+    private UserStore userStore;
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
@@ -35,53 +61,81 @@ public class AuthService {
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Lazy
     @Autowired
     private EmailService emailService;
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    @Autowired
+    private TokenService tokenService;
 
-    @Value("${jwt.access-token-expiration}")
-    private int accessTokenExpiration;
+    @Autowired
+    private UserIdGenerator userIdGenerator;
 
-    @Value("${jwt.refresh-token-expiration}")
-    private int refreshTokenExpiration;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-    // Redis Key 前缀
-    private static final String USER_INFO_PREFIX = "user:info:";
-    private static final String TOKEN_PREFIX = "user:token:";
-    private static final String LOGIN_FAIL_PREFIX = "user:login:fail:";
-    private static final String VERIFY_CODE_PREFIX = "user:verify:";
-    private static final String RATE_LIMIT_PREFIX = "rate:limit:";
-    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    @Autowired
+    private UserInfoCache userInfoCache;
+
+    @Autowired
+    private ActiveUserAnalytics activeUserAnalytics;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PasswordPolicy passwordPolicy;
+
+    @Autowired
+    private ObjectProvider<LoginAuditLog> loginAuditLog;
+
+    @Autowired
+    private ObjectProvider<WarmupRunner> warmupRunner;
+
+    @Autowired
+    private VerificationCodeStore verificationCodeStore;
+
+    @Value("${spring.data.redis.timeout:3000ms}")
+    private Duration redisTimeout;
 
     /**
      * 用户注册
      */
     @Transactional
     public void register(RegisterRequest request) {
+        // 0. 密码策略与泄露库检查（先于验证码消费和 BCrypt）
+        passwordPolicy.validate(request.getPassword());
+
         // 1. 验证码检查
         if (!verifyCode("email", request.getEmail(), request.getEmailVerificationCode())) {
             throw new RuntimeException("邮箱验证码错误");
         }
 
         // 2. 检查用户名/邮箱/手机号是否已存在
-        if (userRepository.existsByUsername(request.getUsername())) {
+        if (userStore.existsByUsername(request.getUsername())) {
             throw new RuntimeException("用户名已存在");
         }
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (userStore.existsByEmail(request.getEmail())) {
             throw new RuntimeException("邮箱已被注册");
         }
         if (request.getPhoneVerificationCode() != null &&
-            userRepository.existsByPhone(request.getPhone())) {
+            userStore.existsByPhone(request.getPhone())) {
             throw new RuntimeException("手机号已被注册");
         }
 
-        // 3. 密码加密 (使用 BCrypt)
+        // 3. 解析推荐码（推荐人的邀请码）
+        Long referrerId = null;
+        if (request.getReferralCode() != null && !request.getReferralCode().isBlank()) {
+            referrerId = userStore.findUserIdByInviteCode(request.getReferralCode().trim().toUpperCase(Locale.ROOT))
+                    .orElseThrow(() -> new RuntimeException("推荐码无效"));
+        }
+
+        // 4. 密码加密 (使用 BCrypt)
         String passwordHash = passwordEncoder.encode(request.getPassword());
 
-        // 4. 创建用户
+        // 5. 创建用户
         User user = User.builder()
+                .userId(userIdGenerator.nextId())
                 .username(request.getUsername())
                 .email(request.getEmail())
                 .phone(request.getPhoneVerificationCode() != null ? request.getPhone() : null)
@@ -90,130 +144,238 @@ public class AuthService {
                 .emailVerified(true)  // 邮箱验证后自动设置
                 .status(UserStatus.ACTIVE)
                 .referralCode(request.getReferralCode())
+                .referrerId(referrerId)
                 .build();
 
-        userRepository.save(user);
+        userStore.save(user);
+        eventPublisher.publishEvent(new UserRegisteredEvent(
+                user.getUserId(), user.getUsername(), user.getEmail(), referrerId));
 
-        // 5. 保存用户信息到 Redis
-        String key = USER_INFO_PREFIX + user.getUserId();
-        redisTemplate.opsForHash().put(key, "username", user.getUsername());
-        redisTemplate.opsForHash().put(key, "email", user.getEmail());
-        redisTemplate.expire(key, 1, TimeUnit.HOURS);
+        Map<String, Object> event = new HashMap<>();
+        event.put("username", user.getUsername());
+        event.put("email", user.getEmail());
+        event.put("referrerId", referrerId);
+        outboxService.append(OutboxService.USER_REGISTERED, user.getUserId(), event);
 
+        // 6. 用户信息缓存在事务提交后写入（见 onUserRegistered）
         log.info("User registered: userId={}, username={}", user.getUserId(), user.getUsername());
     }
 
     /**
-     * 用户登录
+     * 注册事务提交后写入用户信息缓存，字段与登录成功时相同（尚未登录，无 lastLoginTime）；
+     * 事务回滚时不会写入不存在的用户。写入失败只记日志，之后由读取回源
      */
-    public User login(LoginRequest request, DeviceInfo deviceInfo) {
-        // 1. 检查登录限流
-        String failKey = LOGIN_FAIL_PREFIX + request.getUsername();
-        Long failCount = (Long) redisTemplate.opsForValue().get(failKey);
-        if (failCount != null && failCount >= 5) {
-            throw new RuntimeException("登录失败次数过多，请 15 分钟后重试");
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        try {
+            userInfoCache.put(event.userId(),
+                    UserInfoCache.fields(event.userId(), event.username(), event.email(), UserStatus.ACTIVE, null));
+        } catch (RuntimeException e) {
+            log.warn("Failed to cache registered user: userId={}", event.userId(), e);
         }
+    }
 
-        // 2. 查找用户
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new RuntimeException("用户名或密码错误"));
+    /**
+     * 用户登录 - 只读取凭证投影，不加载完整 User 实体
+     * <p>
+     * 不开启外层事务，避免在 BCrypt 校验期间占用数据库连接。
+     * 发出 {@link LoginEvent} 及 db / bcrypt / redis 子阶段 {@link AuthPhaseEvent}，
+     * 并把每次尝试（含失败）写入登录审计日志。
+     */
+    public UserCredential login(LoginRequest request, DeviceInfo deviceInfo) {
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        event.outcome = "ERROR";
+        try {
+            // 1. 检查登录限流
+            String failKey = RedisKeys.loginFail(request.getUsername());
+            AuthPhaseEvent phase = AuthPhaseEvent.start("login", "redis");
+            Number failCount = (Number) redisTemplate.opsForValue().get(failKey);
+            event.redisNanos += phase.finish();
+            if (failCount != null && failCount.longValue() >= 5) {
+                event.outcome = "LOCKED_OUT";
+                throw new RuntimeException("登录失败次数过多，请 15 分钟后重试");
+            }
+
+            // 2. 查找用户
+            phase = AuthPhaseEvent.start("login", "db");
+            Optional<UserCredential> found = userStore.findCredentialByUsername(request.getUsername());
+            event.dbNanos += phase.finish();
+            if (found.isEmpty()) {
+                event.outcome = "NOT_FOUND";
+                throw new RuntimeException("用户名或密码错误");
+            }
+            UserCredential user = found.get();
+            event.userId = user.userId();
+
+            // 3. 检查用户状态
+            if (user.status() != UserStatus.ACTIVE) {
+                event.outcome = "INACTIVE";
+                throw new RuntimeException("账户已被禁用或锁定");
+            }
+
+            // 4. 验证密码
+            phase = AuthPhaseEvent.start("login", "bcrypt");
+            boolean matches = passwordEncoder.matches(request.getPassword(), user.passwordHash());
+            event.bcryptNanos += phase.finish();
+            if (!matches) {
+                // 登录失败，增加计数
+                phase = AuthPhaseEvent.start("login", "redis");
+                redisTemplate.opsForValue().increment(failKey);
+                redisTemplate.expire(failKey, 15, TimeUnit.MINUTES);
+                event.redisNanos += phase.finish();
+                event.outcome = "BAD_PASSWORD";
+                throw new RuntimeException("用户名或密码错误");
+            }
+
+            phase = AuthPhaseEvent.start("login", "redis");
+            // 5. 登录成功，清除失败计数
+            redisTemplate.delete(failKey);
+
+            // 6. 记录设备信息
+            recordDevice(user.userId(), deviceInfo);
+
+            // 7. 更新用户信息到 Redis
+            userInfoCache.put(user.userId(), UserInfoCache.fields(user.userId(), user.username(), user.email(),
+                    user.status(), System.currentTimeMillis()));
+            activeUserAnalytics.recordLogin(user.userId());
+            event.redisNanos += phase.finish();
+
+            phase = AuthPhaseEvent.start("login", "db");
+            Map<String, Object> outboxPayload = new HashMap<>();
+            outboxPayload.put("deviceId", deviceInfo != null ? deviceInfo.getDeviceId() : null);
+            outboxService.append(OutboxService.USER_LOGGED_IN, user.userId(), outboxPayload);
+            event.dbNanos += phase.finish();
+
+            log.info("User login success: userId={}, username={}",
+                    user.userId(), user.username());
+
+            event.outcome = "SUCCESS";
+            return user;
+        } finally {
+            event.commit();
+            audit(request, deviceInfo, event);
+        }
+    }
 
-        // 3. 检查用户状态
-        if (user.getStatus() != UserStatus.ACTIVE) {
-            throw new RuntimeException("账户已被禁用或锁定");
+    private void audit(LoginRequest request, DeviceInfo deviceInfo, LoginEvent event) {
+        LoginAuditLog auditLog = loginAuditLog.getIfAvailable();
+        if (auditLog == null) {
+            return;
+        }
+        // 启动预热的合成登录不进入审计日志
+        WarmupRunner warmup = warmupRunner.getIfAvailable();
+        if (warmup != null && warmup.isSyntheticLogin(request.getUsername())) {
+            return;
         }
+        LoginAuditRecord record = new LoginAuditRecord(System.currentTimeMillis(),
+                event.userId != 0 ? event.userId : null, request.getUsername(), event.outcome,
+                deviceInfo != null ? deviceInfo.getIpAddress() : null,
+                deviceInfo != null ? deviceInfo.getDeviceId() : null,
+                deviceInfo != null ? deviceInfo.getUserAgent() : null);
+        try {
+            auditLog.append(record);
+        } catch (IOException e) {
+            log.error("Failed to write login audit record: username={}, outcome={}",
+                    request.getUsername(), event.outcome, e);
+        }
+    }
 
-        // 4. 验证密码
-        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
-            // 登录失败，增加计数
-            redisTemplate.opsForValue().increment(failKey);
-            redisTemplate.expire(failKey, 15, TimeUnit.MINUTES);
-            throw new RuntimeException("用户名或密码错误");
+    /**
+     * 重置密码 - 新密码先过策略校验，再消费验证码；成功后吊销该用户全部 Token
+     */
+    public void resetPassword(String email, String code, String newPassword) {
+        passwordPolicy.validate(newPassword);
+        if (!verifyCode("email", email, code)) {
+            throw new RuntimeException("验证码错误或已过期");
         }
+        User user = userStore.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
 
-        // 5. 登录成功，清除失败计数
-        redisTemplate.delete(failKey);
+        userStore.updatePasswordHash(user.getUserId(), passwordEncoder.encode(newPassword));
+        tokenService.revokeAllTokens(user.getUserId());
+        emailService.sendPasswordResetEmail(email, user.getUsername());
 
-        // 6. 记录设备信息
-        recordDevice(user.getUserId(), deviceInfo);
+        log.info("Password reset: userId={}", user.getUserId());
+    }
 
-        // 7. 更新用户信息到 Redis
-        String key = USER_INFO_PREFIX + user.getUserId();
-        redisTemplate.opsForHash().put(key, "username", user.getUsername());
-        redisTemplate.opsForHash().put(key, "email", user.getEmail());
-        redisTemplate.opsForHash().put(key, "userId", user.getUserId().toString());
-        redisTemplate.opsForHash().put(key, "lastLoginTime", System.currentTimeMillis());
-        redisTemplate.expire(key, 1, TimeUnit.HOURS);
+    /**
+     * 用户登出 - 吊销当前 Token 并记录登出事件
+     */
+    public void logout(Long userId, String token) {
+        tokenService.revokeToken(userId, token);
+        outboxService.append(OutboxService.USER_LOGGED_OUT, userId, new HashMap<>());
+        log.info("User logout: userId={}", userId);
+    }
 
-        log.info("User login success: userId={}, username={}",
-                user.getUserId(), user.getUsername());
+    /**
+     * 变更用户状态 - 状态与 outbox 事件同一事务提交；非 ACTIVE 时吊销全部 Token
+     */
+    @Transactional
+    public void changeStatus(Long userId, UserStatus status) {
+        User user = userStore.findByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("用户不存在"));
+        if (user.getStatus() == status) {
+            return;
+        }
+        userStore.updateStatus(userId, status);
 
-        return user;
+        Map<String, Object> event = new HashMap<>();
+        event.put("from", user.getStatus().name());
+        event.put("to", status.name());
+        outboxService.append(OutboxService.USER_STATUS_CHANGED, userId, event);
+
+        userInfoCache.evict(userId);
+        if (status != UserStatus.ACTIVE) {
+            tokenService.revokeAllTokens(userId);
+        }
+        log.info("User status changed: userId={}, {} -> {}", userId, user.getStatus(), status);
     }
 
     /**
-     * 生成 Access Token
+     * 获取用户信息（经缓存，未命中时合并回源）
      */
-    public String generateAccessToken(Long userId, String username) {
-        // 这里应该使用 JWT，简化处理
-        String token = UUID.randomUUID().toString().replace("-", "");
-        String key = TOKEN_PREFIX + token;
+    public Map<String, Object> getUserInfo(Long userId) {
+        return userInfoCache.get(userId);
+    }
 
-        redisTemplate.opsForValue().set(key, userId.toString());
-        redisTemplate.expire(key, accessTokenExpiration, TimeUnit.SECONDS);
+    /**
+     * 批量获取用户信息，不存在的用户不出现在结果中
+     */
+    public Map<Long, Map<String, Object>> getUserInfos(Collection<Long> userIds) {
+        return userInfoCache.getAll(userIds);
+    }
 
-        return token;
+    /**
+     * 生成 Access Token（委托 TokenService，与认证过滤器共用同一套 Key）
+     */
+    public String generateAccessToken(Long userId, String username) {
+        return tokenService.generateAccessToken(userId, username);
     }
 
     /**
      * 生成 Refresh Token
      */
     public String generateRefreshToken(Long userId) {
-        String token = UUID.randomUUID().toString().replace("-", "") + "_refresh";
-        String key = TOKEN_PREFIX + token;
-
-        redisTemplate.opsForValue().set(key, userId.toString());
-        redisTemplate.expire(key, refreshTokenExpiration, TimeUnit.SECONDS);
-
-        return token;
+        return tokenService.generateRefreshToken(userId);
     }
 
     /**
      * 验证 Token
      */
     public Long verifyToken(String token) {
-        String key = TOKEN_PREFIX + token;
-        String userIdStr = (String) redisTemplate.opsForValue().get(key);
-
-        if (userIdStr == null) {
-            return null;
-        }
-
-        return Long.parseLong(userIdStr);
+        return tokenService.verifyToken(token);
     }
 
     /**
-     * 发送验证码
+     * 发送验证码 - 频率检查与保存在一次 Redis 往返内完成
      */
     public void sendVerificationCode(String type, String destination) {
-        // 限制发送频率
-        String rateKey = RATE_LIMIT_PREFIX + type + ":" + destination;
-        Long count = (Long) redisTemplate.opsForValue().get(rateKey);
-        if (count != null && count >= 5) {
+        String code = verificationCodeStore.issue(type, destination);
+        if (code == null) {
             throw new RuntimeException("发送频率过快，请稍后再试");
         }
 
-        redisTemplate.opsForValue().increment(rateKey);
-        redisTemplate.expire(rateKey, 1, TimeUnit.HOURS);
-
-        // 生成 6 位数字验证码
-        String code = String.format("%06d", SECURE_RANDOM.nextInt(1_000_000));
-
-        // 保存到 Redis（5 分钟过期）
-        String key = VERIFY_CODE_PREFIX + type + ":" + destination;
-        redisTemplate.opsForValue().set(key, code);
-        redisTemplate.expire(key, 5, TimeUnit.MINUTES);
-
         log.info("Verification code sent: type={}, destination={}", type, destination);
 
         // 发送验证码到邮箱
@@ -224,35 +386,53 @@ public class AuthService {
     }
 
     /**
-     * 验证验证码
+     * 验证并消费验证码 - 一次 Redis 往返；错误次数达到上限后验证码作废
      */
     public boolean verifyCode(String type, String destination, String code) {
-        String key = VERIFY_CODE_PREFIX + type + ":" + destination;
-        String savedCode = (String) redisTemplate.opsForValue().get(key);
-
-        if (savedCode == null) {
-            return false;
+        VerificationCodeStore.Result result = verificationCodeStore.consume(type, destination, code);
+        if (result == VerificationCodeStore.Result.EXHAUSTED) {
+            throw new RuntimeException("验证码错误次数过多，请重新获取");
         }
-
-        boolean valid = savedCode.equals(code);
-        if (valid) {
-            redisTemplate.delete(key);
-        }
-
-        return valid;
+        return result == VerificationCodeStore.Result.VALID;
     }
 
     /**
-     * 记录设备信息
+     * 记录设备信息（登录成功时调用，启动预热以合成 userId 调用）
+     * <p>
+     * 同时写按用户聚合的设备 Hash 与按 deviceId 反查用户的 Hash；两者不在同一 slot，
+     * 在共享连接上连续发出再统一等待（不用需要独占连接的管道），单机一次往返，Cluster 下两个节点并行
      */
-    private void recordDevice(Long userId, DeviceInfo deviceInfo) {
+    @SuppressWarnings("unchecked")
+    public void recordDevice(Long userId, DeviceInfo deviceInfo) {
         if (deviceInfo == null || deviceInfo.getDeviceId() == null || deviceInfo.getDeviceId().isBlank()) {
             return;
         }
         // 简化处理，实际应该保存到数据库
-        String key = "device:" + deviceInfo.getDeviceId();
-        redisTemplate.opsForHash().put(key, "userId", userId.toString());
-        redisTemplate.opsForHash().put(key, "lastActive", System.currentTimeMillis());
-        redisTemplate.expire(key, 30, TimeUnit.DAYS);
+        String deviceId = deviceInfo.getDeviceId();
+        long now = System.currentTimeMillis();
+        long ttlSeconds = TimeUnit.DAYS.toSeconds(30);
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> fieldSerializer = (RedisSerializer<Object>) redisTemplate.getHashKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        byte[] devicesKey = keySerializer.serialize(RedisKeys.userDevices(userId));
+        byte[] deviceKey = keySerializer.serialize(RedisKeys.device(deviceId));
+        Map<byte[], byte[]> owner = new LinkedHashMap<>();
+        owner.put(fieldSerializer.serialize("userId"), valueSerializer.serialize(userId.toString()));
+        owner.put(fieldSerializer.serialize("lastActive"), valueSerializer.serialize(now));
+
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            RedisClusterAsyncCommands<byte[], byte[]> commands =
+                    (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+            RedisFuture<?>[] futures = {
+                    commands.hset(devicesKey, fieldSerializer.serialize(deviceId), valueSerializer.serialize(now)),
+                    commands.expire(devicesKey, ttlSeconds),
+                    commands.hset(deviceKey, owner),
+                    commands.expire(deviceKey, ttlSeconds)
+            };
+            if (!LettuceFutures.awaitAll(redisTimeout, futures)) {
+                throw new QueryTimeoutException("记录设备信息超时");
+            }
+            return null;
+        });
     }
 }
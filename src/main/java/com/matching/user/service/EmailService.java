@@ -1,15 +1,20 @@
 package com.matching.user.service;
 
+import com.matching.user.jfr.EmailSendEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 /**
  * 邮件服务 - 使用 SimpleMailMessage 避免类型冲突
+ * <p>
+ * 仅在发送验证码等低频操作时使用，延迟初始化以缩短启动时间。
  */
 @Slf4j
+@Lazy
 @Service
 @org.springframework.context.annotation.Profile("!test")
 public class EmailService {
@@ -30,6 +35,10 @@ public class EmailService {
      * 发送验证码邮件
      */
     public void sendVerificationCode(String toEmail, String code) {
+        EmailSendEvent event = new EmailSendEvent();
+        event.begin();
+        event.kind = "verification";
+        event.outcome = "FAILED";
         try {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setFrom(from);
@@ -39,10 +48,13 @@ public class EmailService {
             message.setSentDate(new java.util.Date());
 
             mailSender.send(message);
+            event.outcome = "SENT";
             log.info("Verification code email sent to: {}", toEmail);
         } catch (Exception e) {
             log.error("Failed to send verification email to: {}", toEmail, e);
             throw new RuntimeException("发送验证码失败，请稍后重试");
+        } finally {
+            event.commit();
         }
     }
 
@@ -50,6 +62,10 @@ public class EmailService {
      * 发送欢迎邮件
      */
     public void sendWelcomeEmail(String toEmail, String username) {
+        EmailSendEvent event = new EmailSendEvent();
+        event.begin();
+        event.kind = "welcome";
+        event.outcome = "FAILED";
         try {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setFrom(from);
@@ -59,9 +75,12 @@ public class EmailService {
             message.setSentDate(new java.util.Date());
 
             mailSender.send(message);
+            event.outcome = "SENT";
             log.info("Welcome email sent to: {}", toEmail);
         } catch (Exception e) {
             log.error("Failed to send welcome email to: {}", toEmail, e);
+        } finally {
+            event.commit();
         }
     }
 
@@ -69,6 +88,10 @@ public class EmailService {
      * 发送密码重置邮件
      */
     public void sendPasswordResetEmail(String toEmail, String username) {
+        EmailSendEvent event = new EmailSendEvent();
+        event.begin();
+        event.kind = "password-reset";
+        event.outcome = "FAILED";
         try {
             SimpleMailMessage message = new SimpleMailMessage();
             message.setFrom(from);
@@ -78,9 +101,12 @@ public class EmailService {
             message.setSentDate(new java.util.Date());
 
             mailSender.send(message);
+            event.outcome = "SENT";
             log.info("Password reset email sent to: {}", toEmail);
         } catch (Exception e) {
             log.error("Failed to send password reset email to: {}", toEmail, e);
+        } finally {
+            event.commit();
         }
     }
 
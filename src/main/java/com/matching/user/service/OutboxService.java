@@ -0,0 +1,48 @@
+package com.matching.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matching.user.entity.OutboxEvent;
+import com.matching.user.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Outbox 写入 - 在调用方事务内追加生命周期事件，调用方无事务时单独提交
+ */
+@Service
+@org.springframework.context.annotation.Profile("!test")
+public class OutboxService {
+
+    public static final String USER_REGISTERED = "USER_REGISTERED";
+    public static final String USER_LOGGED_IN = "USER_LOGGED_IN";
+    public static final String USER_LOGGED_OUT = "USER_LOGGED_OUT";
+    public static final String USER_STATUS_CHANGED = "USER_STATUS_CHANGED";
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 追加事件
+     */
+    @Transactional
+    public void append(String eventType, Long userId, Map<String, Object> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload not serializable: " + eventType, e);
+        }
+        outboxEventRepository.save(OutboxEvent.builder()
+                .userId(userId)
+                .eventType(eventType)
+                .payload(json)
+                .build());
+    }
+}
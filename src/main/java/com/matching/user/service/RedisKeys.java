@@ -0,0 +1,94 @@
+package com.matching.user.service;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+/**
+ * 用户维度的 Redis Key
+ * <p>
+ * Key 中用 {} 包住 userId（登录失败计数包住用户名）作为 hash tag，Redis Cluster 只对花括号内的部分
+ * 计算 slot，同一用户的所有 Key 落在同一 slot，可以放进同一个管道、MULTI 或 Lua 脚本而不会 CROSSSLOT；
+ * 不同用户的 Key 仍按 userId 均匀分散到各节点。单机 Redis 下花括号只是普通字符。
+ * <p>
+ * 验证码按"类型:目标"（如 email:a@b.com）打 hash tag，同一目标的验证码与发送计数在同一 slot，由同一个 Lua 脚本原子读写。
+ * <p>
+ * Token 按 Token 本身寻址（校验时还不知道 userId），不在此列；按用户吊销所需的会话索引见 {@link #userSessions}。
+ */
+public final class RedisKeys {
+
+    private RedisKeys() {
+    }
+
+    /**
+     * 用户信息缓存 Hash
+     */
+    public static String userInfo(Long userId) {
+        return "user:info:" + tag(userId);
+    }
+
+    /**
+     * 用户信息回源锁
+     */
+    public static String userInfoLock(Long userId) {
+        return "lock:user:info:" + tag(userId);
+    }
+
+    /**
+     * 用户登录设备 Hash（deviceId -> 最后活跃时间）
+     */
+    public static String userDevices(Long userId) {
+        return "user:devices:" + tag(userId);
+    }
+
+    /**
+     * 设备反查 Hash（userId、lastActive），按 deviceId 打 hash tag，与用户的 Key 不在同一 slot
+     */
+    public static String device(String deviceId) {
+        return "device:" + tag(deviceId);
+    }
+
+    /**
+     * 用户会话索引 Hash（Token -> 过期时间毫秒），用于按用户吊销全部 Token
+     */
+    public static String userSessions(Long userId) {
+        return "user:sessions:" + tag(userId);
+    }
+
+    /**
+     * 读己之写标记：存在期间该用户的数据库读取走主库
+     */
+    public static String primaryReadPin(Long userId) {
+        return "user:primary-pin:" + tag(userId);
+    }
+
+    /**
+     * 登录失败计数（登录时只有用户名）
+     */
+    public static String loginFail(String username) {
+        return "user:login:fail:" + tag(username);
+    }
+
+    /**
+     * 验证码 Hash（code、attempts）
+     */
+    public static String verificationCode(String type, String destination) {
+        return "user:verify:" + tag(type + ":" + destination);
+    }
+
+    /**
+     * 验证码发送计数（发送窗口内）
+     */
+    public static String verificationSendCount(String type, String destination) {
+        return "rate:limit:verify:" + tag(type + ":" + destination);
+    }
+
+    /**
+     * Key 所在的 Cluster slot（0-16383），有 hash tag 时只按花括号内的部分计算
+     */
+    public static int slot(String key) {
+        return ClusterSlotHashUtil.calculateSlot(key);
+    }
+
+    private static String tag(Object value) {
+        return "{" + value + "}";
+    }
+}
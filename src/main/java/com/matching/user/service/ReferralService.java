@@ -0,0 +1,242 @@
+package com.matching.user.service;
+
+import com.matching.user.entity.User;
+import com.matching.user.event.UserRegisteredEvent;
+import com.matching.user.repository.UserStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 推荐关系服务 - 注册时增量维护推荐人计数与多级下线计数，查询不做全表聚合
+ * <p>
+ * Redis 结构（均以 {referral} 为 hash tag，Cluster 下落在同一 slot，由一个 Lua 脚本原子更新）：
+ * referral:{referral}:parent:NN（Hash，userId → 推荐人 userId，按 userId 末两位分为 100 个桶，避免单个大 Key），
+ * referral:{referral}:count:userId（Hash，l1..lN 为各级下线数，total 为合计），
+ * referral:{referral}:top:direct / referral:{referral}:top:total（ZSet，按直推数 / 下线总数排序，
+ * 分数写入计数的绝对值，只保留前 leaderboard-size 名）。
+ * 脚本先以 HSETNX 登记新用户的推荐人，已登记则不做任何修改，重放同一注册是空操作，可按注册顺序从数据库重放重建（{@link #rebuild}）。
+ * 沿推荐链向上的各级 Key 在脚本中按 userId 拼出，未全部列在 KEYS 中，依赖它们与 KEYS 同 slot。
+ * <p>
+ * 每个用户的邀请码保存在 users.invite_code（唯一索引），注册提交后分配；早于该列的用户在首次查询时分配。
+ * 随机生成的邀请码与已有的冲突时重新生成，最多 {@value #INVITE_CODE_ATTEMPTS} 次。
+ */
+@Slf4j
+@Service
+@org.springframework.context.annotation.Profile("!test")
+public class ReferralService {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private UserInfoCache userInfoCache;
+
+    @Autowired
+    private UserStore userStore;
+
+    @Value("${referral.max-depth:3}")
+    private int maxDepth;
+
+    @Value("${referral.leaderboard-size:1000}")
+    private int leaderboardSize;
+
+    /**
+     * KEYS: 新用户所在的推荐人分桶, 直推榜, 总榜；ARGV: userId, 推荐人 userId, 层级数, 排行榜保留条数；
+     * 返回 1 已计数，0 该用户已登记过（重放）
+     */
+    public static final String RECORD_SCRIPT = """
+            if redis.call('HSETNX', KEYS[1], ARGV[1], ARGV[2]) == 0 then
+                return 0
+            end
+            local ancestor = ARGV[2]
+            local keep = tonumber(ARGV[4])
+            for level = 1, tonumber(ARGV[3]) do
+                local countKey = 'referral:{referral}:count:' .. ancestor
+                local count = redis.call('HINCRBY', countKey, 'l' .. level, 1)
+                local total = redis.call('HINCRBY', countKey, 'total', 1)
+                if level == 1 then
+                    redis.call('ZADD', KEYS[2], count, ancestor)
+                    redis.call('ZREMRANGEBYRANK', KEYS[2], 0, -keep - 1)
+                end
+                redis.call('ZADD', KEYS[3], total, ancestor)
+                redis.call('ZREMRANGEBYRANK', KEYS[3], 0, -keep - 1)
+                ancestor = redis.call('HGET', 'referral:{referral}:parent:' .. string.sub(ancestor, -2), ancestor)
+                if not ancestor then
+                    break
+                end
+            end
+            return 1
+            """;
+
+    private static final RedisScript<Long> RECORD = new DefaultRedisScript<>(RECORD_SCRIPT, Long.class);
+    private static final String PARENT_PREFIX = "referral:{referral}:parent:";
+    private static final String COUNT_PREFIX = "referral:{referral}:count:";
+    private static final String TOP_DIRECT_KEY = "referral:{referral}:top:direct";
+    private static final String TOP_TOTAL_KEY = "referral:{referral}:top:total";
+    private static final String TOTAL_FIELD = "total";
+    private static final int REBUILD_BATCH = 500;
+    private static final String INVITE_CODE_ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final int INVITE_CODE_LENGTH = 10;
+    private static final int INVITE_CODE_ATTEMPTS = 5;
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /**
+     * 注册事务提交后更新推荐链上各级推荐人的计数
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        try {
+            assignInviteCode(event.userId());
+        } catch (RuntimeException e) {
+            // 分配失败不影响注册结果，首次查询时再分配
+            log.warn("Failed to assign invite code: userId={}", event.userId(), e);
+        }
+        if (event.referrerId() == null) {
+            return;
+        }
+        try {
+            record(event.userId(), event.referrerId());
+        } catch (Exception e) {
+            // 计数失败不影响注册结果，可通过 rebuild 补上
+            log.warn("Failed to update referral counters: userId={}, referrerId={}",
+                    event.userId(), event.referrerId(), e);
+        }
+    }
+
+    /**
+     * 按注册顺序把数据库中的推荐关系重放进 Redis，返回实际计数的注册数。
+     * 已登记的注册被跳过，只补上缺失的（如提交后 Redis 不可用）；在空的 Key 空间上重放得到精确计数，用于迁移或清空后重建。
+     * 补上的注册只计入其自身，之前经由它向上计数时已中断的更深层级不会补回；重放期间的新注册如其上级链尚未重放，同样缺少深层计数
+     */
+    public long rebuild() {
+        long[] recorded = {0};
+        userStore.forEachReferral(REBUILD_BATCH, (userId, referrerId) -> {
+            if (record(userId, referrerId)) {
+                recorded[0]++;
+            }
+        });
+        log.info("Referral counters rebuilt: {} registrations recorded", recorded[0]);
+        return recorded[0];
+    }
+
+    private boolean record(Long userId, Long referrerId) {
+        Long result = stringRedisTemplate.execute(RECORD, List.of(parentKey(userId), TOP_DIRECT_KEY, TOP_TOTAL_KEY),
+                userId.toString(), referrerId.toString(), Integer.toString(maxDepth), Integer.toString(leaderboardSize));
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 用户的邀请码，尚未分配时分配；用户不存在时返回 null
+     */
+    public String getInviteCode(Long userId) {
+        String code = userStore.findByUserId(userId).map(User::getInviteCode).orElse(null);
+        return code != null ? code : assignInviteCode(userId);
+    }
+
+    /**
+     * 生成邀请码并写入；冲突时换一个重试。并发分配时只有一个写入成功，其余读取已写入的邀请码
+     */
+    private String assignInviteCode(Long userId) {
+        for (int attempt = 0; attempt < INVITE_CODE_ATTEMPTS; attempt++) {
+            String code = generateInviteCode();
+            try {
+                if (userStore.assignInviteCode(userId, code)) {
+                    return code;
+                }
+                return userStore.findByUserId(userId).map(User::getInviteCode).orElse(null);
+            } catch (DataIntegrityViolationException e) {
+                log.info("Invite code collision, retrying: userId={}, attempt={}", userId, attempt + 1);
+            }
+        }
+        throw new RuntimeException("邀请码生成失败，请稍后重试");
+    }
+
+    /**
+     * 10 位，去除易混淆字符
+     */
+    private static String generateInviteCode() {
+        char[] code = new char[INVITE_CODE_LENGTH];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = INVITE_CODE_ALPHABET.charAt(SECURE_RANDOM.nextInt(INVITE_CODE_ALPHABET.length()));
+        }
+        return new String(code);
+    }
+
+    /**
+     * 查询用户各级下线数
+     */
+    public Map<String, Long> getCounts(Long userId) {
+        Map<Object, Object> raw = stringRedisTemplate.opsForHash().entries(COUNT_PREFIX + userId);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int level = 1; level <= maxDepth; level++) {
+            counts.put("l" + level, toLong(raw.get("l" + level)));
+        }
+        counts.put(TOTAL_FIELD, toLong(raw.get(TOTAL_FIELD)));
+        return counts;
+    }
+
+    /**
+     * 推荐排行榜
+     *
+     * @param byTotal true 按下线总数排序，false 按直推数排序
+     */
+    public List<Map<String, Object>> getTopReferrers(int limit, boolean byTotal) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(byTotal ? TOP_TOTAL_KEY : TOP_DIRECT_KEY, 0, limit - 1);
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (tuples == null || tuples.isEmpty()) {
+            return result;
+        }
+        List<Long> userIds = new ArrayList<>();
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            userIds.add(toLong(tuple.getValue()));
+        }
+        // 用户名一次批量读取，不逐个访问缓存
+        Map<Long, Map<String, Object>> infos = userInfoCache.getAll(userIds);
+        int i = 0;
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            Long userId = userIds.get(i++);
+            Map<String, Object> info = infos.get(userId);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("userId", userId);
+            entry.put("username", info == null ? null : info.get("username"));
+            entry.put("count", tuple.getScore() == null ? 0L : tuple.getScore().longValue());
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * 与脚本中 string.sub(id, -2) 的分桶一致
+     */
+    private static String parentKey(Long userId) {
+        String id = userId.toString();
+        return PARENT_PREFIX + id.substring(Math.max(0, id.length() - 2));
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return Long.parseLong(value.toString());
+    }
+}
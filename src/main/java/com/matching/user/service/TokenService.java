@@ -1,37 +1,79 @@
 package com.matching.user.service;
 
+import com.matching.user.jfr.TokenVerifyEvent;
+import com.matching.user.service.token.TokenKind;
+import com.matching.user.service.token.TokenStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Token 服务
+ * <p>
+ * Token 的 Redis 存储布局由 {@link TokenStore} 决定（token.store.layout）。
+ * 签发的 Token 同时登记到用户的会话索引（{@link RedisKeys#userSessions}，Token -> 过期时间），
+ * 按用户吊销时据此逐个吊销；校验路径不读索引，不增加往返。
  */
 @Slf4j
 @Service
 @org.springframework.context.annotation.Profile("!test")
 public class TokenService {
 
+    /**
+     * 会话索引超过该条目数时，登记新 Token 的同时清理其中已过期的 Token
+     */
+    private static final int SESSION_INDEX_PRUNE_SIZE = 64;
+
+    /**
+     * KEYS: 会话索引；ARGV: Token, 过期时间(ms), 索引有效期(s), 清理阈值, 当前时间(ms)；返回清理的条目数
+     */
+    public static final String INDEX_SESSION_SCRIPT = """
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            if redis.call('HLEN', KEYS[1]) <= tonumber(ARGV[4]) then
+                return 0
+            end
+            local entries = redis.call('HGETALL', KEYS[1])
+            local removed = 0
+            for i = 1, #entries, 2 do
+                if tonumber(entries[i + 1]) <= tonumber(ARGV[5]) then
+                    redis.call('HDEL', KEYS[1], entries[i])
+                    removed = removed + 1
+                end
+            end
+            return removed
+            """;
+
+    private static final RedisScript<Long> INDEX_SESSION = new DefaultRedisScript<>(INDEX_SESSION_SCRIPT, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private TokenStore tokenStore;
+
+    @Value("${jwt.access-token-expiration}")
+    private long accessTokenExpiration;
 
-    private static final String USER_INFO_PREFIX = "user:info:";
-    private static final String TOKEN_PREFIX = "user:token:";
-    private static final String TOKEN_BLACKLIST = "token:blacklist:";
+    @Value("${jwt.refresh-token-expiration}")
+    private long refreshTokenExpiration;
 
     /**
      * 生成 Access Token
      */
     public String generateAccessToken(Long userId, String username) {
         String token = UUID.randomUUID().toString().replace("-", "");
-        String key = TOKEN_PREFIX + "access:" + token;
-
-        redisTemplate.opsForValue().set(key, userId.toString());
-        redisTemplate.expire(key, 2, TimeUnit.HOURS);
+        tokenStore.put(TokenKind.ACCESS, token, userId, accessTokenExpiration);
+        indexSession(userId, token, accessTokenExpiration);
 
         log.debug("Access token generated for userId={}", userId);
         return token;
@@ -42,10 +84,8 @@ public class TokenService {
      */
     public String generateRefreshToken(Long userId) {
         String token = UUID.randomUUID().toString().replace("-", "") + "_refresh";
-        String key = TOKEN_PREFIX + "refresh:" + token;
-
-        redisTemplate.opsForValue().set(key, userId.toString());
-        redisTemplate.expire(key, 7, TimeUnit.DAYS);
+        tokenStore.put(TokenKind.REFRESH, token, userId, refreshTokenExpiration);
+        indexSession(userId, token, refreshTokenExpiration);
 
         log.debug("Refresh token generated for userId={}", userId);
         return token;
@@ -55,64 +95,96 @@ public class TokenService {
      * 验证 Token
      */
     public Long verifyToken(String token) {
-        // 检查 Token 黑名单
-        String blacklistKey = TOKEN_BLACKLIST + token;
-        if (Boolean.TRUE.equals(redisTemplate.opsForValue().get(blacklistKey))) {
-            log.warn("Token is in blacklist: {}", token);
+        TokenVerifyEvent event = new TokenVerifyEvent();
+        event.begin();
+        try {
+            // 检查 Token 黑名单
+            if (tokenStore.isBlacklisted(token)) {
+                event.outcome = "BLACKLISTED";
+                log.warn("Token is in blacklist: {}", token);
+                return null;
+            }
+
+            // 检查 Access Token
+            Long userId = tokenStore.get(TokenKind.ACCESS, token);
+            if (userId != null) {
+                event.outcome = "ACCESS";
+                event.userId = userId;
+                return userId;
+            }
+
+            // 检查 Refresh Token
+            userId = tokenStore.get(TokenKind.REFRESH, token);
+            if (userId != null) {
+                event.outcome = "REFRESH";
+                event.userId = userId;
+                return userId;
+            }
+
+            event.outcome = "NOT_FOUND";
+            log.warn("Token not found: {}", token);
             return null;
+        } finally {
+            event.commit();
         }
+    }
 
-        // 检查 Access Token
-        String accessKey = TOKEN_PREFIX + "access:" + token;
-        String userIdStr = (String) redisTemplate.opsForValue().get(accessKey);
-
-        if (userIdStr != null) {
-            return Long.parseLong(userIdStr);
-        }
-
-        // 检查 Refresh Token
-        String refreshKey = TOKEN_PREFIX + "refresh:" + token;
-        userIdStr = (String) redisTemplate.opsForValue().get(refreshKey);
-
-        if (userIdStr != null) {
-            return Long.parseLong(userIdStr);
-        }
-
-        log.warn("Token not found: {}", token);
-        return null;
+    /**
+     * Token 是否已被吊销（登出后在黑名单中）
+     */
+    public boolean isRevoked(String token) {
+        return tokenStore.isBlacklisted(token);
     }
 
     /**
      * 撤销 Token（用户登出时调用）
      */
-    public void revokeToken(String token) {
-        // 添加到黑名单
-        String blacklistKey = TOKEN_BLACKLIST + token;
-        redisTemplate.opsForValue().set(blacklistKey, Boolean.TRUE);
-        redisTemplate.expire(blacklistKey, 2, TimeUnit.HOURS);
-
-        // 删除 Token
-        String accessKey = TOKEN_PREFIX + "access:" + token;
-        String refreshKey = TOKEN_PREFIX + "refresh:" + token;
-        redisTemplate.delete(accessKey);
-        redisTemplate.delete(refreshKey);
+    public void revokeToken(Long userId, String token) {
+        revoke(token);
+        stringRedisTemplate.opsForHash().delete(RedisKeys.userSessions(userId), token);
 
         log.info("Token revoked: {}", token);
     }
 
     /**
-     * 撤销用户所有 Token（禁用用户时调用）
+     * 撤销用户所有 Token（禁用用户、重置密码时调用）- 吊销会话索引中所有未过期的 Token 后删除索引
      */
     public void revokeAllTokens(Long userId) {
-        // 查询用户信息获取所有 Token
-        String userInfoKey = USER_INFO_PREFIX + userId;
-        String username = (String) redisTemplate.opsForHash().get(userInfoKey, "username");
+        String key = RedisKeys.userSessions(userId);
+        Map<Object, Object> sessions = stringRedisTemplate.opsForHash().entries(key);
+        long now = System.currentTimeMillis();
+        int revoked = 0;
+        for (Map.Entry<Object, Object> session : sessions.entrySet()) {
+            if (Long.parseLong((String) session.getValue()) > now) {
+                revoke((String) session.getKey());
+                revoked++;
+            }
+        }
+        stringRedisTemplate.delete(key);
+
+        log.info("All tokens revoked for userId={}, count={}", userId, revoked);
+    }
 
-        if (username != null) {
-            // 删除用户信息缓存
-            redisTemplate.delete(userInfoKey);
+    private void revoke(String token) {
+        // 添加到黑名单
+        tokenStore.blacklist(token, accessTokenExpiration);
 
-            log.info("All tokens revoked for userId={}", userId);
-        }
+        // 删除 Token
+        tokenStore.remove(TokenKind.ACCESS, token);
+        tokenStore.remove(TokenKind.REFRESH, token);
+    }
+
+    /**
+     * 登记到会话索引；索引按最长的 Refresh Token 有效期续期，用户不再登录后自然过期。
+     * 未登出即过期的 Token 会留在索引中，条目超过阈值时在同一脚本内清理，一次往返、原子执行
+     */
+    private void indexSession(Long userId, String token, long ttlSeconds) {
+        long now = System.currentTimeMillis();
+        stringRedisTemplate.execute(INDEX_SESSION, List.of(RedisKeys.userSessions(userId)),
+                token,
+                Long.toString(now + TimeUnit.SECONDS.toMillis(ttlSeconds)),
+                Long.toString(refreshTokenExpiration),
+                Integer.toString(SESSION_INDEX_PRUNE_SIZE),
+                Long.toString(now));
     }
 }
@@ -0,0 +1,359 @@
+package com.matching.user.service;
+
+import com.matching.user.entity.User;
+import com.matching.user.entity.UserStatus;
+import com.matching.user.repository.UserStore;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.async.RedisHashAsyncCommands;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户信息缓存（user:info:{userId}）- 防缓存击穿
+ * <p>
+ * 1. 本节点同一 key 同时只有一个回源加载，其余请求等待同一个结果（single-flight）；
+ * 2. 跨节点通过短期 Redis 锁只允许一个节点回源，其余节点短暂等待缓存回填；
+ * 3. TTL 加随机抖动，并按 XFetch 算法在到期前概率性提前异步刷新，热点 key 不会同时过期；
+ * 4. 不存在的用户写入短期空值标记，防止穿透。
+ */
+@Slf4j
+@Service
+@org.springframework.context.annotation.Profile("!test")
+public class UserInfoCache {
+
+    private static final String EXPIRE_AT_FIELD = "_expireAt";
+    private static final String LOAD_MILLIS_FIELD = "_loadMillis";
+    private static final String MISSING_FIELD = "_missing";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private UserStore userStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cache.user-info.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${cache.user-info.jitter-ratio:0.1}")
+    private double jitterRatio;
+
+    @Value("${cache.user-info.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    @Value("${cache.user-info.lock-millis:3000}")
+    private long lockMillis;
+
+    @Value("${cache.user-info.missing-ttl-seconds:60}")
+    private long missingTtlSeconds;
+
+    @Value("${spring.data.redis.timeout:3000ms}")
+    private Duration batchTimeout;
+
+    private static final int LOCK_WAIT_ATTEMPTS = 5;
+    private static final long LOCK_WAIT_MILLIS = 20;
+
+    private final Map<Long, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private ExecutorService refreshExecutor;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter coalesced;
+    private Counter lockWaits;
+    private Counter loads;
+    private Counter earlyRefreshes;
+
+    @PostConstruct
+    public void init() {
+        hits = counter("hit");
+        misses = counter("miss");
+        coalesced = counter("coalesced");
+        lockWaits = counter("lock_wait");
+        loads = counter("load");
+        earlyRefreshes = counter("early_refresh");
+        // 提前刷新是尽力而为的，队列满时直接丢弃
+        refreshExecutor = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(256), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取用户信息，用户不存在时返回 null
+     */
+    public Map<String, Object> get(Long userId) {
+        Map<Object, Object> cached = redisTemplate.opsForHash().entries(RedisKeys.userInfo(userId));
+        if (!cached.isEmpty()) {
+            hits.increment();
+            if (shouldRefreshEarly(cached)) {
+                earlyRefreshes.increment();
+                refreshExecutor.execute(() -> loadCoalesced(userId));
+            }
+            return cached.containsKey(MISSING_FIELD) ? null : publicFields(cached);
+        }
+        misses.increment();
+        return loadCoalesced(userId);
+    }
+
+    /**
+     * 批量获取用户信息（排行榜等多用户场景），返回顺序与入参一致，不存在的用户不出现在结果中
+     * <p>
+     * 在共享的 Lettuce 连接上连续发出全部 HGETALL 再统一等待：单机时相当于一次管道往返；Cluster 下 Lettuce
+     * 按 Key 的 slot 把每条命令写到所属节点的连接，各节点并行执行，总耗时约为最慢节点的一次往返。每条命令
+     * 只涉及一个 Key，不会 CROSSSLOT。不用 executePipelined，是因为管道需要独占连接，未启用连接池时每次都要新建
+     * （Cluster 下还要连接全部节点）。未命中的用户逐个走单 Key 回源（single-flight + 分布式锁）；批量读取不做提前刷新。
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, Map<String, Object>> getAll(Collection<Long> userIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        List<Map<byte[], byte[]>> replies = redisTemplate.execute((RedisCallback<List<Map<byte[], byte[]>>>) connection -> {
+            RedisHashAsyncCommands<byte[], byte[]> commands =
+                    (RedisHashAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+            List<RedisFuture<Map<byte[], byte[]>>> futures = new ArrayList<>(ids.size());
+            for (Long userId : ids) {
+                futures.add(commands.hgetall(keySerializer.serialize(RedisKeys.userInfo(userId))));
+            }
+            if (!LettuceFutures.awaitAll(batchTimeout, futures.toArray(new RedisFuture<?>[0]))) {
+                throw new QueryTimeoutException("批量读取用户信息超时");
+            }
+            List<Map<byte[], byte[]>> values = new ArrayList<>(futures.size());
+            for (RedisFuture<Map<byte[], byte[]>> future : futures) {
+                values.add(future.toCompletableFuture().join());
+            }
+            return values;
+        });
+
+        Map<Long, Map<String, Object>> result = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long userId = ids.get(i);
+            Map<byte[], byte[]> raw = replies.get(i);
+            Map<String, Object> info;
+            if (raw != null && !raw.isEmpty()) {
+                hits.increment();
+                Map<Object, Object> cached = new HashMap<>();
+                raw.forEach((field, value) -> cached.put(redisTemplate.getHashKeySerializer().deserialize(field),
+                        redisTemplate.getHashValueSerializer().deserialize(value)));
+                info = cached.containsKey(MISSING_FIELD) ? null : publicFields(cached);
+            } else {
+                misses.increment();
+                info = loadCoalesced(userId);
+            }
+            if (info != null) {
+                result.put(userId, info);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 写入用户信息（注册、登录时调用），附带抖动后的过期时间
+     */
+    public void put(Long userId, Map<String, Object> fields) {
+        write(userId, fields, 0);
+    }
+
+    /**
+     * 删除缓存（用户状态变更时调用）
+     */
+    public void evict(Long userId) {
+        redisTemplate.delete(RedisKeys.userInfo(userId));
+    }
+
+    // ==================== 回源加载 ====================
+
+    private Map<String, Object> loadCoalesced(Long userId) {
+        CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlight.putIfAbsent(userId, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.join();
+        }
+        try {
+            Map<String, Object> info = loadWithLock(userId);
+            mine.complete(info);
+            return info;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(userId, mine);
+        }
+    }
+
+    private Map<String, Object> loadWithLock(Long userId) {
+        String lockKey = RedisKeys.userInfoLock(userId);
+        String lockToken = UUID.randomUUID().toString();
+        boolean locked = Boolean.TRUE.equals(
+                redisTemplate.opsForValue().setIfAbsent(lockKey, lockToken, Duration.ofMillis(lockMillis)));
+        if (!locked) {
+            // 其他节点正在回源，短暂等待其回填
+            lockWaits.increment();
+            for (int i = 0; i < LOCK_WAIT_ATTEMPTS; i++) {
+                sleep(LOCK_WAIT_MILLIS);
+                Map<Object, Object> cached = redisTemplate.opsForHash().entries(RedisKeys.userInfo(userId));
+                if (!cached.isEmpty()) {
+                    return cached.containsKey(MISSING_FIELD) ? null : publicFields(cached);
+                }
+            }
+        }
+        try {
+            loads.increment();
+            long start = System.currentTimeMillis();
+            Optional<User> user = userStore.findByUserId(userId);
+            long loadMillis = System.currentTimeMillis() - start;
+            if (user.isEmpty()) {
+                Map<String, Object> missing = new HashMap<>();
+                missing.put(MISSING_FIELD, 1);
+                redisTemplate.opsForHash().putAll(RedisKeys.userInfo(userId), missing);
+                redisTemplate.expire(RedisKeys.userInfo(userId), missingTtlSeconds, TimeUnit.SECONDS);
+                return null;
+            }
+            Map<String, Object> info = toInfo(user.get());
+            write(userId, info, loadMillis);
+            return info;
+        } finally {
+            if (locked) {
+                // 只释放自己持有的锁；GET 与 DEL 之间锁过期被他人获取的窗口很小，最坏多一次回源
+                if (lockToken.equals(redisTemplate.opsForValue().get(lockKey))) {
+                    redisTemplate.delete(lockKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在共享连接上连续发出 HDEL、HSET、PEXPIRE 再统一等待，一次往返完成写入（与 {@link #getAll} 相同，不用需要独占连接的管道）。
+     * 不先删除 key，避免出现短暂的空窗被当作未命中；同一 key 的命令在同一连接上按序执行
+     */
+    @SuppressWarnings("unchecked")
+    private void write(Long userId, Map<String, Object> fields, long loadMillis) {
+        long ttlMillis = jitteredTtlMillis();
+        Map<String, Object> values = new HashMap<>(fields);
+        values.put(EXPIRE_AT_FIELD, System.currentTimeMillis() + ttlMillis);
+        values.put(LOAD_MILLIS_FIELD, Math.max(loadMillis, 1));
+        byte[] key = ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(RedisKeys.userInfo(userId));
+        RedisSerializer<Object> fieldSerializer = (RedisSerializer<Object>) redisTemplate.getHashKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        Map<byte[], byte[]> rawValues = new LinkedHashMap<>();
+        values.forEach((field, value) -> rawValues.put(fieldSerializer.serialize(field), valueSerializer.serialize(value)));
+        byte[] missingField = fieldSerializer.serialize(MISSING_FIELD);
+
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            RedisClusterAsyncCommands<byte[], byte[]> commands =
+                    (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+            RedisFuture<?>[] futures = {
+                    commands.hdel(key, missingField),
+                    commands.hset(key, rawValues),
+                    commands.pexpire(key, ttlMillis)
+            };
+            if (!LettuceFutures.awaitAll(batchTimeout, futures)) {
+                throw new QueryTimeoutException("写入用户信息超时");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * XFetch：now - loadMillis * beta * ln(rand) >= expireAt 时提前刷新，越接近过期、回源越慢，概率越高
+     */
+    private boolean shouldRefreshEarly(Map<Object, Object> cached) {
+        Object expireAt = cached.get(EXPIRE_AT_FIELD);
+        Object loadMillis = cached.get(LOAD_MILLIS_FIELD);
+        if (!(expireAt instanceof Number expire) || !(loadMillis instanceof Number delta)) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        double gap = -delta.doubleValue() * earlyRefreshBeta * Math.log(random);
+        return System.currentTimeMillis() + gap >= expire.longValue();
+    }
+
+    private long jitteredTtlMillis() {
+        long base = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        long jitter = (long) (base * jitterRatio);
+        return base - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+    }
+
+    /**
+     * 缓存中的用户信息字段，登录、注册与回源共用；lastLoginTime 为 null（注册、回源）时不写入该字段
+     */
+    public static Map<String, Object> fields(Long userId, String username, String email, UserStatus status,
+                                             Long lastLoginTime) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("userId", userId.toString());
+        info.put("username", username);
+        info.put("email", email);
+        info.put("status", status.name());
+        if (lastLoginTime != null) {
+            info.put("lastLoginTime", lastLoginTime);
+        }
+        return info;
+    }
+
+    private static Map<String, Object> toInfo(User user) {
+        return fields(user.getUserId(), user.getUsername(), user.getEmail(), user.getStatus(), null);
+    }
+
+    private static Map<String, Object> publicFields(Map<Object, Object> cached) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        cached.forEach((field, value) -> {
+            if (!field.toString().startsWith("_")) {
+                info.put(field.toString(), value);
+            }
+        });
+        return info;
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("user.cache.requests")
+                .description("user:info 缓存访问与回源统计")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
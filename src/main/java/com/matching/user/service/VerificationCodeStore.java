@@ -0,0 +1,133 @@
+package com.matching.user.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 验证码存储 - 签发与消费各是一个 Lua 脚本，一次 Redis 往返且原子执行
+ * <p>
+ * 签发：检查发送窗口内的次数、计数、写入新验证码并设置过期（覆盖旧验证码，错误次数清零）。
+ * 消费：比对后删除（GETDEL 语义）；不匹配时错误次数加一，达到上限即删除验证码，之后只能重新获取，
+ * 6 位验证码在有效期内最多被猜 max-attempts 次。
+ * 两个 Key 见 {@link RedisKeys#verificationCode} / {@link RedisKeys#verificationSendCount}，同一目标落在同一 slot。
+ */
+@Service
+@Profile("!test")
+public class VerificationCodeStore {
+
+    /**
+     * KEYS: 验证码, 发送计数；ARGV: 验证码, 有效期(ms), 窗口内最多发送次数, 发送窗口(ms)；返回 1 已签发，0 超过发送频率
+     */
+    public static final String ISSUE_SCRIPT = """
+            local sent = tonumber(redis.call('GET', KEYS[2]) or '0')
+            if sent >= tonumber(ARGV[3]) then
+                return 0
+            end
+            if redis.call('INCR', KEYS[2]) == 1 then
+                redis.call('PEXPIRE', KEYS[2], ARGV[4])
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], 'code', ARGV[1], 'attempts', 0)
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """;
+
+    /**
+     * KEYS: 验证码；ARGV: 提交的验证码, 最多尝试次数；返回 1 通过，0 不匹配，-1 不存在或已过期，-2 不匹配且已作废
+     */
+    public static final String CONSUME_SCRIPT = """
+            local code = redis.call('HGET', KEYS[1], 'code')
+            if not code then
+                return -1
+            end
+            if code == ARGV[1] then
+                redis.call('DEL', KEYS[1])
+                return 1
+            end
+            if redis.call('HINCRBY', KEYS[1], 'attempts', 1) >= tonumber(ARGV[2]) then
+                redis.call('DEL', KEYS[1])
+                return -2
+            end
+            return 0
+            """;
+
+    private static final RedisScript<Long> ISSUE = new DefaultRedisScript<>(ISSUE_SCRIPT, Long.class);
+    private static final RedisScript<Long> CONSUME = new DefaultRedisScript<>(CONSUME_SCRIPT, Long.class);
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /**
+     * 消费结果
+     */
+    public enum Result {
+        VALID, MISMATCH, EXPIRED, EXHAUSTED
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${verification.code-length:6}")
+    private int codeLength;
+
+    @Value("${verification.code-expire-minutes:5}")
+    private long codeExpireMinutes;
+
+    @Value("${verification.max-send-times:5}")
+    private int maxSendTimes;
+
+    @Value("${verification.send-window-minutes:60}")
+    private long sendWindowMinutes;
+
+    @Value("${verification.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * 生成并保存验证码，超过发送频率时返回 null
+     */
+    public String issue(String type, String destination) {
+        String code = generateCode();
+        Long issued = stringRedisTemplate.execute(ISSUE,
+                List.of(RedisKeys.verificationCode(type, destination), RedisKeys.verificationSendCount(type, destination)),
+                code,
+                Long.toString(TimeUnit.MINUTES.toMillis(codeExpireMinutes)),
+                Integer.toString(maxSendTimes),
+                Long.toString(TimeUnit.MINUTES.toMillis(sendWindowMinutes)));
+        return issued != null && issued == 1 ? code : null;
+    }
+
+    /**
+     * 校验并消费验证码
+     */
+    public Result consume(String type, String destination, String code) {
+        if (code == null || code.isEmpty()) {
+            return Result.MISMATCH;
+        }
+        Long result = stringRedisTemplate.execute(CONSUME,
+                List.of(RedisKeys.verificationCode(type, destination)), code, Integer.toString(maxAttempts));
+        if (result == null) {
+            return Result.EXPIRED;
+        }
+        return switch (result.intValue()) {
+            case 1 -> Result.VALID;
+            case 0 -> Result.MISMATCH;
+            case -2 -> Result.EXHAUSTED;
+            default -> Result.EXPIRED;
+        };
+    }
+
+    private String generateCode() {
+        char[] digits = new char[codeLength];
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = (char) ('0' + SECURE_RANDOM.nextInt(10));
+        }
+        return new String(digits);
+    }
+}
@@ -0,0 +1,201 @@
+package com.matching.user.service.token;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分桶布局 - 按 Token 前 N 个十六进制字符分桶，每桶一个小 Hash
+ * <p>
+ * Key 为 user:tokens:&lt;a|r|b&gt;:&lt;前缀&gt;，field 为 Token 剩余部分解码后的字节，
+ * value 为 8 字节 userId + 4 字节过期时间（黑名单只有过期时间）。每桶条目数保持在
+ * hash-max-listpack-entries（默认 128）以内时 Redis 以 listpack 紧凑存储，省去每个 Token 的顶层 Key 开销。
+ * <p>
+ * 字段级过期：Redis 7.4+ 可开启 native-field-expiry 使用 HEXPIRE；否则过期时间随 value 存储，
+ * 读取时判断并惰性删除，再由 {@link TokenBucketSweeper} 轮转清理。桶 Key 本身按该类型的最长有效期续期，空闲桶自然消失。
+ */
+public class BucketedTokenStore implements TokenStore {
+
+    static final String BUCKET_PREFIX = "user:tokens:";
+    private static final String REFRESH_SUFFIX = "_refresh";
+    private static final int TOKEN_HEX_LENGTH = 32;
+    private static final byte[] FIELDS = "FIELDS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ONE = "1".getBytes(StandardCharsets.US_ASCII);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final StringRedisTemplate redisTemplate;
+    private final int bucketChars;
+    private final boolean nativeFieldExpiry;
+    private final long accessTtlSeconds;
+    private final long refreshTtlSeconds;
+    private long sweepCursor;
+
+    public BucketedTokenStore(StringRedisTemplate redisTemplate, int bucketChars, boolean nativeFieldExpiry,
+                              long accessTtlSeconds, long refreshTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.bucketChars = bucketChars;
+        this.nativeFieldExpiry = nativeFieldExpiry;
+        this.accessTtlSeconds = accessTtlSeconds;
+        this.refreshTtlSeconds = refreshTtlSeconds;
+    }
+
+    @Override
+    public void put(TokenKind kind, String token, long userId, long ttlSeconds) {
+        byte[][] location = locate(kind == TokenKind.ACCESS ? 'a' : 'r', token, kind == TokenKind.REFRESH);
+        if (location == null) {
+            throw new IllegalArgumentException("Malformed token");
+        }
+        byte[] value = ByteBuffer.allocate(12).putLong(userId).putInt(expireAt(ttlSeconds)).array();
+        write(location, value, ttlSeconds, kind == TokenKind.ACCESS ? accessTtlSeconds : refreshTtlSeconds);
+    }
+
+    @Override
+    public Long get(TokenKind kind, String token) {
+        byte[][] location = locate(kind == TokenKind.ACCESS ? 'a' : 'r', token, kind == TokenKind.REFRESH);
+        if (location == null) {
+            return null;
+        }
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(location[0], location[1]));
+        if (value == null || value.length != 12) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        long userId = buffer.getLong();
+        if (expired(buffer.getInt())) {
+            delete(location);
+            return null;
+        }
+        return userId;
+    }
+
+    @Override
+    public void remove(TokenKind kind, String token) {
+        byte[][] location = locate(kind == TokenKind.ACCESS ? 'a' : 'r', token, kind == TokenKind.REFRESH);
+        if (location != null) {
+            delete(location);
+        }
+    }
+
+    @Override
+    public void blacklist(String token, long ttlSeconds) {
+        byte[][] location = locate('b', token, token.endsWith(REFRESH_SUFFIX));
+        if (location != null) {
+            write(location, ByteBuffer.allocate(4).putInt(expireAt(ttlSeconds)).array(), ttlSeconds, accessTtlSeconds);
+        }
+    }
+
+    @Override
+    public boolean isBlacklisted(String token) {
+        byte[][] location = locate('b', token, token.endsWith(REFRESH_SUFFIX));
+        if (location == null) {
+            return false;
+        }
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(location[0], location[1]));
+        return value != null && value.length == 4 && !expired(ByteBuffer.wrap(value).getInt());
+    }
+
+    /**
+     * 清理接下来 maxBuckets 个桶中已过期的字段，返回删除的字段数
+     */
+    public synchronized long sweep(int maxBuckets) {
+        long bucketCount = 1L << (4 * bucketChars);
+        long removed = 0;
+        for (int i = 0; i < maxBuckets; i++) {
+            long position = sweepCursor++ % (bucketCount * 3);
+            char type = "arb".charAt((int) (position / bucketCount));
+            String bucket = String.format("%0" + bucketChars + "x", position % bucketCount);
+            byte[] key = (BUCKET_PREFIX + type + ":" + bucket).getBytes(StandardCharsets.UTF_8);
+            removed += sweepBucket(key, type == 'b' ? 0 : 8);
+        }
+        return removed;
+    }
+
+    public static String bucketKey(char type, String bucket) {
+        return BUCKET_PREFIX + type + ":" + bucket;
+    }
+
+    private long sweepBucket(byte[] key, int expireOffset) {
+        Map<byte[], byte[]> fields = redisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) connection ->
+                connection.hashCommands().hGetAll(key));
+        if (fields == null || fields.isEmpty()) {
+            return 0;
+        }
+        List<byte[]> expired = new ArrayList<>();
+        fields.forEach((field, value) -> {
+            if (value.length >= expireOffset + 4 && expired(ByteBuffer.wrap(value, expireOffset, 4).getInt())) {
+                expired.add(field);
+            }
+        });
+        if (!expired.isEmpty()) {
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.hashCommands().hDel(key, expired.toArray(new byte[0][])));
+        }
+        return expired.size();
+    }
+
+    /**
+     * 解析 Token 所在的桶 Key 与 field；格式不符（非 32 位十六进制）返回 null
+     */
+    private byte[][] locate(char type, String token, boolean refresh) {
+        if (token == null) {
+            return null;
+        }
+        String body = token;
+        if (refresh) {
+            if (!token.endsWith(REFRESH_SUFFIX)) {
+                return null;
+            }
+            body = token.substring(0, token.length() - REFRESH_SUFFIX.length());
+        }
+        if (body.length() != TOKEN_HEX_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < body.length(); i++) {
+            if (Character.digit(body.charAt(i), 16) < 0) {
+                return null;
+            }
+        }
+        byte[] key = bucketKey(type, body.substring(0, bucketChars)).getBytes(StandardCharsets.UTF_8);
+        String rest = body.substring(bucketChars);
+        return new byte[][]{key, HEX.parseHex((rest.length() & 1) == 0 ? rest : "0" + rest)};
+    }
+
+    private void write(byte[][] location, byte[] value, long ttlSeconds, long bucketTtlSeconds) {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hSet(location[0], location[1], value);
+            if (nativeFieldExpiry) {
+                hexpire(connection, location, ttlSeconds);
+            }
+            connection.keyCommands().expire(location[0], Math.max(ttlSeconds, bucketTtlSeconds));
+            return null;
+        });
+    }
+
+    private void delete(byte[][] location) {
+        redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.hashCommands().hDel(location[0], location[1]));
+    }
+
+    private static void hexpire(RedisConnection connection, byte[][] location, long ttlSeconds) throws DataAccessException {
+        connection.execute("HEXPIRE", location[0],
+                Long.toString(ttlSeconds).getBytes(StandardCharsets.US_ASCII), FIELDS, ONE, location[1]);
+    }
+
+    private static int expireAt(long ttlSeconds) {
+        return (int) (System.currentTimeMillis() / 1000 + ttlSeconds);
+    }
+
+    private static boolean expired(int expireAt) {
+        return Integer.toUnsignedLong(expireAt) <= System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,60 @@
+package com.matching.user.service.token;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原布局 - user:token:&lt;kind&gt;:&lt;token&gt; → userId，token:blacklist:&lt;token&gt; → true
+ * <p>
+ * 每个 Token 都是独立的顶层 Key，除了数据本身还要承担字典项、过期表项和对象头的开销。
+ */
+public class KeyPerTokenStore implements TokenStore {
+
+    static final String TOKEN_PREFIX = "user:token:";
+    static final String TOKEN_BLACKLIST = "token:blacklist:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public KeyPerTokenStore(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void put(TokenKind kind, String token, long userId, long ttlSeconds) {
+        redisTemplate.opsForValue().set(key(kind, token), Long.toString(userId), ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Long get(TokenKind kind, String token) {
+        String userId = (String) redisTemplate.opsForValue().get(key(kind, token));
+        return userId == null ? null : Long.parseLong(userId);
+    }
+
+    @Override
+    public void remove(TokenKind kind, String token) {
+        redisTemplate.delete(key(kind, token));
+    }
+
+    @Override
+    public void blacklist(String token, long ttlSeconds) {
+        redisTemplate.opsForValue().set(TOKEN_BLACKLIST + token, Boolean.TRUE, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public boolean isBlacklisted(String token) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().get(TOKEN_BLACKLIST + token));
+    }
+
+    /**
+     * 剩余有效期（秒），不存在返回 -2
+     */
+    long ttlSeconds(TokenKind kind, String token) {
+        Long ttl = redisTemplate.getExpire(key(kind, token), TimeUnit.SECONDS);
+        return ttl == null ? -2 : ttl;
+    }
+
+    static String key(TokenKind kind, String token) {
+        return TOKEN_PREFIX + kind.code() + ":" + token;
+    }
+}
@@ -0,0 +1,67 @@
+package com.matching.user.service.token;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 迁移布局 - 新 Token 写入分桶布局，读取时分桶未命中再查原布局
+ * <p>
+ * 原布局中的 Token 被读到时按剩余有效期搬入分桶并删除旧 Key；未被访问的旧 Token 自然过期。
+ * 运行满一个 Refresh Token 有效期后旧 Key 全部消失，即可切换为 buckets。
+ */
+@Slf4j
+public class MigratingTokenStore implements TokenStore {
+
+    private final BucketedTokenStore buckets;
+    private final KeyPerTokenStore legacy;
+
+    public MigratingTokenStore(BucketedTokenStore buckets, KeyPerTokenStore legacy) {
+        this.buckets = buckets;
+        this.legacy = legacy;
+    }
+
+    BucketedTokenStore buckets() {
+        return buckets;
+    }
+
+    @Override
+    public void put(TokenKind kind, String token, long userId, long ttlSeconds) {
+        buckets.put(kind, token, userId, ttlSeconds);
+    }
+
+    @Override
+    public Long get(TokenKind kind, String token) {
+        Long userId = buckets.get(kind, token);
+        if (userId != null) {
+            return userId;
+        }
+        userId = legacy.get(kind, token);
+        if (userId != null) {
+            long ttl = legacy.ttlSeconds(kind, token);
+            if (ttl > 0) {
+                try {
+                    buckets.put(kind, token, userId, ttl);
+                    legacy.remove(kind, token);
+                } catch (IllegalArgumentException e) {
+                    log.debug("Legacy token kept in place: {}", e.getMessage());
+                }
+            }
+        }
+        return userId;
+    }
+
+    @Override
+    public void remove(TokenKind kind, String token) {
+        buckets.remove(kind, token);
+        legacy.remove(kind, token);
+    }
+
+    @Override
+    public void blacklist(String token, long ttlSeconds) {
+        buckets.blacklist(token, ttlSeconds);
+    }
+
+    @Override
+    public boolean isBlacklisted(String token) {
+        return buckets.isBlacklisted(token) || legacy.isBlacklisted(token);
+    }
+}
@@ -0,0 +1,31 @@
+package com.matching.user.service.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * 分桶布局未开启原生字段过期时，轮转清理各桶中已过期的 Token
+ */
+@Slf4j
+public class TokenBucketSweeper {
+
+    private final BucketedTokenStore store;
+    private final int bucketsPerRun;
+
+    public TokenBucketSweeper(BucketedTokenStore store, int bucketsPerRun) {
+        this.store = store;
+        this.bucketsPerRun = bucketsPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${token.store.sweep-interval-ms:1000}")
+    public void sweep() {
+        try {
+            long removed = store.sweep(bucketsPerRun);
+            if (removed > 0) {
+                log.debug("Token sweep removed {} expired fields", removed);
+            }
+        } catch (Exception e) {
+            log.warn("Token sweep failed: {}", e.getMessage());
+        }
+    }
+}
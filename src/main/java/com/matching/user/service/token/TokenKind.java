@@ -0,0 +1,19 @@
+package com.matching.user.service.token;
+
+/**
+ * Token 类型
+ */
+public enum TokenKind {
+    ACCESS("access"),
+    REFRESH("refresh");
+
+    private final String code;
+
+    TokenKind(String code) {
+        this.code = code;
+    }
+
+    public String code() {
+        return code;
+    }
+}
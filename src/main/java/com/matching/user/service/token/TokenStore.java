@@ -0,0 +1,23 @@
+package com.matching.user.service.token;
+
+/**
+ * Token 存储布局 - TokenService 通过它读写 Token 与黑名单
+ * <p>
+ * keys：每个 Token 一个顶层 Key（原布局）；buckets：按 Token 前缀分桶的小 Hash；
+ * migrating：写新布局、读两种布局，用于从 keys 平滑切换到 buckets。
+ */
+public interface TokenStore {
+
+    void put(TokenKind kind, String token, long userId, long ttlSeconds);
+
+    /**
+     * 返回 Token 对应的 userId，不存在或已过期返回 null
+     */
+    Long get(TokenKind kind, String token);
+
+    void remove(TokenKind kind, String token);
+
+    void blacklist(String token, long ttlSeconds);
+
+    boolean isBlacklisted(String token);
+}
@@ -0,0 +1,58 @@
+package com.matching.user.service.token;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Token 存储配置 - 按 token.store.layout 选择 keys / buckets / migrating
+ */
+@Configuration
+@Profile("!test")
+@EnableScheduling
+public class TokenStoreConfig {
+
+    @Value("${token.store.layout:keys}")
+    private String layout;
+
+    @Value("${token.store.bucket-hex-chars:4}")
+    private int bucketHexChars;
+
+    @Value("${token.store.native-field-expiry:false}")
+    private boolean nativeFieldExpiry;
+
+    @Value("${jwt.access-token-expiration}")
+    private long accessTokenExpiration;
+
+    @Value("${jwt.refresh-token-expiration}")
+    private long refreshTokenExpiration;
+
+    @Bean
+    public TokenStore tokenStore(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate) {
+        return switch (layout) {
+            case "keys" -> new KeyPerTokenStore(redisTemplate);
+            case "buckets" -> bucketedStore(stringRedisTemplate);
+            case "migrating" -> new MigratingTokenStore(bucketedStore(stringRedisTemplate), new KeyPerTokenStore(redisTemplate));
+            default -> throw new IllegalStateException("Unknown token.store.layout: " + layout);
+        };
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${token.store.layout:keys}' != 'keys' and !${token.store.native-field-expiry:false}")
+    public TokenBucketSweeper tokenBucketSweeper(TokenStore tokenStore,
+                                                 @Value("${token.store.sweep-buckets-per-run:64}") int bucketsPerRun) {
+        BucketedTokenStore store = tokenStore instanceof MigratingTokenStore migrating
+                ? migrating.buckets() : (BucketedTokenStore) tokenStore;
+        return new TokenBucketSweeper(store, bucketsPerRun);
+    }
+
+    private BucketedTokenStore bucketedStore(StringRedisTemplate stringRedisTemplate) {
+        return new BucketedTokenStore(stringRedisTemplate, bucketHexChars, nativeFieldExpiry,
+                accessTokenExpiration, refreshTokenExpiration);
+    }
+}
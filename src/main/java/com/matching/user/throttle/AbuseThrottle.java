@@ -0,0 +1,151 @@
+package com.matching.user.throttle;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 注册与验证码发送的防刷限流 - 按 IP、网段（IPv4 /24、IPv6 /64）和邮箱计数
+ * <p>
+ * 计数放在进程内的滑动窗口 Count-Min Sketch 中，判断不访问 Redis、内存固定；
+ * 其他节点的计数由 AbuseThrottleSync 定期合并进来。Sketch 只会高估，因此误判方向是偏严格。
+ */
+@Component
+@EnableConfigurationProperties(ThrottleProperties.class)
+public class AbuseThrottle {
+
+    public enum Scope {
+        REGISTER_IP, REGISTER_SUBNET, REGISTER_EMAIL, SEND_IP, SEND_SUBNET
+    }
+
+    private final ThrottleProperties properties;
+    private final Map<Scope, SlidingWindowSketch> windows = new EnumMap<>(Scope.class);
+
+    public AbuseThrottle(ThrottleProperties properties) {
+        this.properties = properties;
+        ThrottleProperties.Sketch sketch = properties.getSketch();
+        long windowMillis = properties.getWindowMinutes() * 60_000L;
+        for (Scope scope : Scope.values()) {
+            windows.put(scope, new SlidingWindowSketch(sketch.getBuckets(), windowMillis,
+                    sketch.getDepth(), sketch.getWidth()));
+        }
+    }
+
+    /**
+     * 注册尝试：任一维度超限返回 false，未超限则各维度计数 +1
+     */
+    public boolean tryAcquireRegister(String clientIp, String email) {
+        ThrottleProperties.Register limits = properties.getRegister();
+        String normalizedEmail = email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+        return tryAcquire(System.currentTimeMillis(),
+                Scope.REGISTER_IP, clientIp, limits.getPerIp(),
+                Scope.REGISTER_SUBNET, subnetOf(clientIp), limits.getPerSubnet(),
+                Scope.REGISTER_EMAIL, normalizedEmail, limits.getPerEmail());
+    }
+
+    /**
+     * 验证码发送尝试
+     */
+    public boolean tryAcquireSend(String clientIp) {
+        ThrottleProperties.VerifySend limits = properties.getVerifySend();
+        return tryAcquire(System.currentTimeMillis(),
+                Scope.SEND_IP, clientIp, limits.getPerIp(),
+                Scope.SEND_SUBNET, subnetOf(clientIp), limits.getPerSubnet(),
+                null, null, 0);
+    }
+
+    /**
+     * 解析客户端 IP；仅在配置信任时采用 X-Forwarded-For 第一跳
+     */
+    public String clientIp(HttpServletRequest request) {
+        if (properties.isTrustForwardedFor()) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    public SlidingWindowSketch window(Scope scope) {
+        return windows.get(scope);
+    }
+
+    /**
+     * 判断与计数在涉及的各维度窗口锁内完成，同一来源的并发请求不会都在计数前通过判断；
+     * 调用方按 Scope 声明顺序传入维度，加锁顺序一致，不会死锁
+     */
+    private boolean tryAcquire(long now, Scope s1, String k1, int l1, Scope s2, String k2, int l2,
+                               Scope s3, String k3, int l3) {
+        long h1 = k1 == null ? 0 : CountMinSketch.hash(k1);
+        long h2 = k2 == null ? 0 : CountMinSketch.hash(k2);
+        long h3 = k3 == null ? 0 : CountMinSketch.hash(k3);
+        synchronized (windows.get(s1)) {
+            synchronized (windows.get(s2)) {
+                if (s3 == null) {
+                    return checkAndRecord(now, s1, k1, h1, l1, s2, k2, h2, l2, null, null, 0, 0);
+                }
+                synchronized (windows.get(s3)) {
+                    return checkAndRecord(now, s1, k1, h1, l1, s2, k2, h2, l2, s3, k3, h3, l3);
+                }
+            }
+        }
+    }
+
+    private boolean checkAndRecord(long now, Scope s1, String k1, long h1, int l1, Scope s2, String k2, long h2, int l2,
+                                   Scope s3, String k3, long h3, int l3) {
+        if (exceeded(s1, k1, h1, l1, now) || exceeded(s2, k2, h2, l2, now) || exceeded(s3, k3, h3, l3, now)) {
+            return false;
+        }
+        record(s1, k1, h1, now);
+        record(s2, k2, h2, now);
+        record(s3, k3, h3, now);
+        return true;
+    }
+
+    private boolean exceeded(Scope scope, String key, long hash, int limit, long now) {
+        return scope != null && key != null && limit > 0 && windows.get(scope).estimate(hash, now) >= limit;
+    }
+
+    private void record(Scope scope, String key, long hash, long now) {
+        if (scope != null && key != null) {
+            windows.get(scope).add(hash, now);
+        }
+    }
+
+    /**
+     * IPv4 取 /24，IPv6 取 /64；无法解析的地址原样作为网段
+     */
+    static String subnetOf(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        if (ip.indexOf(':') < 0) {
+            int lastDot = ip.lastIndexOf('.');
+            return lastDot < 0 ? ip : ip.substring(0, lastDot);
+        }
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                return ip;  // 非字面量地址，避免触发 DNS 解析
+            }
+        }
+        try {
+            byte[] address = InetAddress.getByName(ip).getAddress();
+            StringBuilder prefix = new StringBuilder(20);
+            for (int i = 0; i < 8 && i < address.length; i += 2) {
+                prefix.append(Integer.toHexString(((address[i] & 0xff) << 8) | (address[i + 1] & 0xff))).append(':');
+            }
+            return prefix.toString();
+        } catch (UnknownHostException e) {
+            return ip;
+        }
+    }
+}
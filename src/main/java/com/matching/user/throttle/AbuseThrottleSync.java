@@ -0,0 +1,175 @@
+package com.matching.user.throttle;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 防刷计数的跨节点合并
+ * <p>
+ * 每个节点把有变化的本地桶折叠到 shared-width、稀疏编码后写入 Redis Hash throttle:sketch:{scope}
+ * （field 为 节点号:桶 epoch，value 为二进制），同时在 throttle:sketch-version:{scope} 记录该桶的修改版本。
+ * 拉取时先读很小的版本 Hash，只 HMGET 版本变化过的桶：已结束的桶不再变化，只拉取一次，
+ * 每个周期通常只传输各节点的当前桶。判断路径不访问 Redis，合并延迟为一个同步周期。
+ */
+@Slf4j
+@Component
+@Profile("!test")
+@EnableScheduling
+public class AbuseThrottleSync {
+
+    private static final String SKETCH_KEY_PREFIX = "throttle:sketch:";
+    private static final String VERSION_KEY_PREFIX = "throttle:sketch-version:";
+
+    @Autowired
+    private AbuseThrottle abuseThrottle;
+
+    @Autowired
+    private ThrottleProperties properties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${user.worker-id:0}")
+    private long nodeId;
+
+    // scope + field -> 已推送的本地版本
+    private final Map<String, Long> pushedVersions = new HashMap<>();
+    // scope -> field -> 已拉取的其他节点的桶
+    private final Map<AbuseThrottle.Scope, Map<String, RemoteBucket>> fetched = new EnumMap<>(AbuseThrottle.Scope.class);
+
+    private record RemoteBucket(long epoch, String version, CountMinSketch sketch) {
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sketch.sync-interval-ms:10000}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+        for (AbuseThrottle.Scope scope : AbuseThrottle.Scope.values()) {
+            try {
+                syncScope(scope, abuseThrottle.window(scope), now);
+            } catch (Exception e) {
+                log.warn("Throttle sketch sync failed: scope={}, {}", scope, e.getMessage());
+            }
+        }
+    }
+
+    private void syncScope(AbuseThrottle.Scope scope, SlidingWindowSketch window, long now) {
+        // 两个 Key 以 scope 为 hash tag，位于同一 slot
+        String tag = "{" + scope.name().toLowerCase() + "}";
+        byte[] sketchKey = bytes(SKETCH_KEY_PREFIX + tag);
+        byte[] versionKey = bytes(VERSION_KEY_PREFIX + tag);
+        long currentEpoch = window.epochOf(now);
+        int sharedWidth = properties.getSketch().getSharedWidth();
+        Map<String, RemoteBucket> remote = fetched.computeIfAbsent(scope, s -> new HashMap<>());
+        long ttlSeconds = TimeUnit.MINUTES.toSeconds(properties.getWindowMinutes() * 2L);
+
+        // 1. 推送有变化的本地桶（当前桶，以及刚结束、最后一次变化尚未推送的桶）
+        Map<byte[], byte[]> changedSketches = new HashMap<>();
+        Map<byte[], byte[]> changedVersions = new HashMap<>();
+        for (int slot = 0; slot < window.buckets(); slot++) {
+            long epoch = window.localEpoch(slot);
+            if (!window.inWindow(epoch, currentEpoch)) {
+                continue;
+            }
+            String field = nodeId + ":" + epoch;
+            long version = window.localVersion(slot);
+            Long pushed = pushedVersions.get(scope + field);
+            if (pushed == null || pushed != version) {
+                changedSketches.put(bytes(field), window.localBytes(slot, sharedWidth));
+                changedVersions.put(bytes(field), bytes(Long.toString(version)));
+                pushedVersions.put(scope + field, version);
+            }
+        }
+        if (!changedSketches.isEmpty()) {
+            stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+                connection.hashCommands().hMSet(sketchKey, changedSketches);
+                connection.hashCommands().hMSet(versionKey, changedVersions);
+                connection.keyCommands().expire(sketchKey, ttlSeconds);
+                connection.keyCommands().expire(versionKey, ttlSeconds);
+                return null;
+            });
+        }
+
+        // 2. 读版本，只拉取其他节点版本变化过的桶；顺带清理已滑出窗口的 field
+        Map<byte[], byte[]> versions = stringRedisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) connection ->
+                connection.hashCommands().hGetAll(versionKey));
+        List<String> stale = new ArrayList<>();
+        List<String> staleVersions = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<byte[], byte[]> entry : versions == null ? Map.<byte[], byte[]>of().entrySet() : versions.entrySet()) {
+            String field = new String(entry.getKey(), StandardCharsets.UTF_8);
+            String version = new String(entry.getValue(), StandardCharsets.UTF_8);
+            int colon = field.indexOf(':');
+            long owner = Long.parseLong(field.substring(0, colon));
+            long epoch = Long.parseLong(field.substring(colon + 1));
+            if (!window.inWindow(epoch, currentEpoch)) {
+                expired.add(field);
+            } else if (owner != nodeId) {
+                RemoteBucket bucket = remote.get(field);
+                if (bucket == null || !bucket.version().equals(version)) {
+                    stale.add(field);
+                    staleVersions.add(version);
+                }
+            }
+        }
+        if (!stale.isEmpty()) {
+            byte[][] fields = stale.stream().map(AbuseThrottleSync::bytes).toArray(byte[][]::new);
+            List<byte[]> values = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                    connection.hashCommands().hMGet(sketchKey, fields));
+            for (int i = 0; i < stale.size(); i++) {
+                byte[] value = values == null ? null : values.get(i);
+                if (value != null) {
+                    String field = stale.get(i);
+                    long epoch = Long.parseLong(field.substring(field.indexOf(':') + 1));
+                    // 其他节点的 shared-width 配置更宽时折叠到本节点的宽度再合并
+                    CountMinSketch sketch = CountMinSketch.fromBytes(value);
+                    remote.put(field, new RemoteBucket(epoch, staleVersions.get(i),
+                            sketch.width() > sharedWidth ? sketch.fold(sharedWidth) : sketch));
+                }
+            }
+        }
+
+        // 3. 按 epoch 合并已拉取的其他节点的桶
+        remote.values().removeIf(bucket -> !window.inWindow(bucket.epoch(), currentEpoch));
+        Map<Long, CountMinSketch> merged = new HashMap<>();
+        for (RemoteBucket bucket : remote.values()) {
+            if (bucket.sketch().width() != sharedWidth) {
+                continue;
+            }
+            merged.computeIfAbsent(bucket.epoch(), epoch -> new CountMinSketch(bucket.sketch().depth(), sharedWidth))
+                    .merge(bucket.sketch());
+        }
+        for (long epoch = currentEpoch - window.buckets() + 1; epoch <= currentEpoch; epoch++) {
+            if (epoch >= 0) {
+                window.applyRemote(epoch, merged.get(epoch));
+            }
+        }
+        if (!expired.isEmpty()) {
+            byte[][] fields = expired.stream().map(AbuseThrottleSync::bytes).toArray(byte[][]::new);
+            stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+                connection.hashCommands().hDel(sketchKey, fields);
+                connection.hashCommands().hDel(versionKey, fields);
+                return null;
+            });
+            expired.forEach(field -> pushedVersions.remove(scope + field));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,172 @@
+package com.matching.user.throttle;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Count-Min Sketch - 固定内存的近似计数，只会高估不会低估
+ * <p>
+ * 采用保守更新（只抬高各行中最小的计数），显著降低热点键对其他键的高估。
+ * 宽度取 2 的幂，行下标由 64 位哈希的高低两半按 h1 + r * h2 派生。
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final int[] counts;
+
+    public CountMinSketch(int depth, int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Sketch width must be a power of two: " + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.mask = width - 1;
+        this.counts = new int[depth * width];
+    }
+
+    /**
+     * 计数 +n（保守更新）
+     */
+    public synchronized void add(long keyHash, int n) {
+        int min = Integer.MAX_VALUE;
+        for (int r = 0; r < depth; r++) {
+            min = Math.min(min, counts[index(r, keyHash)]);
+        }
+        int target = min + n;
+        for (int r = 0; r < depth; r++) {
+            int i = index(r, keyHash);
+            if (counts[i] < target) {
+                counts[i] = target;
+            }
+        }
+    }
+
+    /**
+     * 某一行上该键对应的计数（int 读取本身是原子的，不加锁）
+     */
+    public int cell(int row, long keyHash) {
+        return counts[index(row, keyHash)];
+    }
+
+    /**
+     * 累加另一个同尺寸 sketch（跨节点合并）
+     */
+    public synchronized void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Sketch dimensions differ");
+        }
+        int[] source = other.snapshotCounts();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += source[i];
+        }
+    }
+
+    public synchronized void clear() {
+        java.util.Arrays.fill(counts, 0);
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    /**
+     * 折叠到更窄的宽度（2 的幂）：下标相差 targetWidth 整数倍的计数相加。
+     * 行下标取哈希的低位，折叠后的下标正是原下标的低位，查询方式不变，仍只会高估
+     */
+    public synchronized CountMinSketch fold(int targetWidth) {
+        if (targetWidth >= width) {
+            CountMinSketch copy = new CountMinSketch(depth, width);
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            return copy;
+        }
+        CountMinSketch folded = new CountMinSketch(depth, targetWidth);
+        for (int r = 0; r < depth; r++) {
+            for (int i = 0; i < width; i++) {
+                folded.counts[r * targetWidth + (i & folded.mask)] += counts[r * width + i];
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * 稀疏编码：depth、width 之后是每个非零计数的 (与上一个非零下标的间隔, 计数)，均为 varint。
+     * 一个桶内的键远少于计数器个数，体积与非零计数个数成正比
+     */
+    public synchronized byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeVarint(out, depth);
+        writeVarint(out, width);
+        int previous = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                writeVarint(out, i - previous);
+                writeVarint(out, counts[i]);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static CountMinSketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CountMinSketch sketch = new CountMinSketch(readVarint(buffer), readVarint(buffer));
+        int index = -1;
+        while (buffer.hasRemaining()) {
+            index += readVarint(buffer);
+            sketch.counts[index] = readVarint(buffer);
+        }
+        return sketch;
+    }
+
+    /**
+     * 字符串键的 64 位哈希（FNV-1a + fmix64），不分配对象
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private synchronized int[] snapshotCounts() {
+        return counts.clone();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private int index(int row, long keyHash) {
+        int h1 = (int) keyHash;
+        int h2 = (int) (keyHash >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & mask);
+    }
+}
@@ -0,0 +1,116 @@
+package com.matching.user.throttle;
+
+/**
+ * 滑动时间窗口计数 - 窗口按时间切成若干桶，每桶一个本地 sketch 与一个其他节点合并来的 sketch
+ * <p>
+ * 估计值按行把窗口内所有桶的计数相加后取各行最小值；桶过期时原地清空复用，内存固定。
+ */
+public class SlidingWindowSketch {
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final int depth;
+    private final CountMinSketch[] local;
+    private final long[] epochs;
+    private final long[] versions;
+    private final CountMinSketch[] remote;
+    private final long[] remoteEpochs;
+
+    public SlidingWindowSketch(int buckets, long windowMillis, int depth, int width) {
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.depth = depth;
+        this.local = new CountMinSketch[buckets];
+        this.remote = new CountMinSketch[buckets];
+        this.epochs = new long[buckets];
+        this.versions = new long[buckets];
+        this.remoteEpochs = new long[buckets];
+        for (int i = 0; i < buckets; i++) {
+            local[i] = new CountMinSketch(depth, width);
+            epochs[i] = -1;
+            remoteEpochs[i] = -1;
+        }
+    }
+
+    public long epochOf(long nowMillis) {
+        return nowMillis / bucketMillis;
+    }
+
+    /**
+     * 窗口内（本地 + 其他节点）的估计计数
+     */
+    public long estimate(long keyHash, long nowMillis) {
+        long current = epochOf(nowMillis);
+        long min = Long.MAX_VALUE;
+        for (int r = 0; r < depth; r++) {
+            long sum = 0;
+            for (int i = 0; i < buckets; i++) {
+                if (inWindow(epochs[i], current)) {
+                    sum += local[i].cell(r, keyHash);
+                }
+                CountMinSketch other = remote[i];
+                if (other != null && inWindow(remoteEpochs[i], current)) {
+                    sum += other.cell(r, keyHash);
+                }
+            }
+            min = Math.min(min, sum);
+        }
+        return min;
+    }
+
+    public void add(long keyHash, long nowMillis) {
+        long epoch = epochOf(nowMillis);
+        int slot = slotFor(epoch);
+        if (epochs[slot] != epoch) {
+            rotate(slot, epoch);
+        }
+        local[slot].add(keyHash, 1);
+        versions[slot]++;
+    }
+
+    public boolean inWindow(long epoch, long currentEpoch) {
+        return epoch >= 0 && currentEpoch - epoch < buckets && epoch <= currentEpoch;
+    }
+
+    public int slotFor(long epoch) {
+        return (int) (epoch % buckets);
+    }
+
+    /**
+     * 本地桶的 epoch 与修改版本，供同步判断是否需要推送
+     */
+    public long localEpoch(int slot) {
+        return epochs[slot];
+    }
+
+    public long localVersion(int slot) {
+        return versions[slot];
+    }
+
+    /**
+     * 本地桶折叠到 sharedWidth 后的编码，用于跨节点共享
+     */
+    public byte[] localBytes(int slot, int sharedWidth) {
+        return local[slot].fold(sharedWidth).toBytes();
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    /**
+     * 替换某个桶的其他节点合并结果
+     */
+    public void applyRemote(long epoch, CountMinSketch merged) {
+        int slot = slotFor(epoch);
+        remote[slot] = merged;
+        remoteEpochs[slot] = epoch;
+    }
+
+    private synchronized void rotate(int slot, long epoch) {
+        if (epochs[slot] != epoch) {
+            local[slot].clear();
+            epochs[slot] = epoch;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.matching.user.throttle;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 注册与验证码发送的防刷限流配置（rate-limit.*）
+ */
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class ThrottleProperties {
+
+    /**
+     * 统计窗口
+     */
+    private int windowMinutes = 60;
+
+    /**
+     * 是否信任 X-Forwarded-For 的第一跳（仅在可信反向代理之后开启）
+     */
+    private boolean trustForwardedFor = false;
+
+    private Register register = new Register();
+
+    private VerifySend verifySend = new VerifySend();
+
+    private Sketch sketch = new Sketch();
+
+    @Data
+    public static class Register {
+        private int perIp = 3;
+        private int perSubnet = 20;
+        private int perEmail = 5;
+    }
+
+    @Data
+    public static class VerifySend {
+        private int perIp = 10;
+        private int perSubnet = 50;
+    }
+
+    @Data
+    public static class Sketch {
+
+        /**
+         * 每行计数器个数（2 的幂）；窗口内总请求数 / width 应远小于限额
+         */
+        private int width = 8192;
+
+        /**
+         * 跨节点共享副本的宽度（2 的幂，不大于 width）：本地桶折叠到该宽度后写入 Redis。
+         * 其他节点窗口内的总请求数 / shared-width 同样应远小于限额
+         */
+        private int sharedWidth = 2048;
+
+        private int depth = 4;
+
+        /**
+         * 窗口切分的桶数
+         */
+        private int buckets = 6;
+
+        /**
+         * 与其他节点交换 sketch 的间隔
+         */
+        private long syncIntervalMs = 10000;
+    }
+}
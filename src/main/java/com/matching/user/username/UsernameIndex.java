@@ -0,0 +1,180 @@
+package com.matching.user.username;
+
+import com.matching.user.event.UserRegisteredEvent;
+import com.matching.user.repository.UserStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 用户名可用性索引 - 内存基数树，注册页逐键检查用户名不再访问数据库
+ * <p>
+ * 启动时分批扫描全部用户名构建（完成前回退到数据库查询），本节点注册成功后写入并通过
+ * Redis 频道 user:username:changes 通知其他节点；通知可能丢失，按 resync-interval-ms 定期全量重建兜底。
+ * 索引只用于提示，注册时仍以数据库唯一约束为准。
+ */
+@Slf4j
+@Service
+@Profile("!test")
+public class UsernameIndex {
+
+    static final String CHANGE_CHANNEL = "user:username:changes";
+
+    private static final int MAX_LENGTH = 32;
+    private static final int SEQUENTIAL_PROBES = 100;
+    private static final int RANDOM_ATTEMPTS_PER_SUGGESTION = 10;
+
+    @Autowired
+    private UserStore userStore;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${username.index.load-batch-size:5000}")
+    private int loadBatchSize;
+
+    private volatile UsernameTrie trie;
+
+    /**
+     * 重建期间收到的变更，重建完成后补入新索引（受 this 保护）
+     */
+    private List<String> pending;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("user.username.index.size", this, index -> {
+            UsernameTrie current = index.trie;
+            return current != null ? current.size() : 0;
+        }).register(meterRegistry);
+    }
+
+    /**
+     * 就绪前构建索引（ApplicationReadyEvent 监听器全部返回后才接入流量）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${username.index.resync-interval-ms:3600000}",
+            fixedDelayString = "${username.index.resync-interval-ms:3600000}")
+    public void resync() {
+        rebuild();
+    }
+
+    /**
+     * 全量重建：新索引在旧索引之外构建，期间旧索引照常服务，完成后原子替换
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+        UsernameTrie fresh = new UsernameTrie();
+        try {
+            userStore.forEachUsername(loadBatchSize, fresh::bulkAdd);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            log.error("Username index rebuild failed, keeping previous index", e);
+            return;
+        }
+        synchronized (this) {
+            pending.forEach(fresh::bulkAdd);
+            pending = null;
+            trie = fresh;
+        }
+        log.info("Username index built: usernames={}, nodes={}, took={}ms",
+                fresh.size(), fresh.nodeCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 用户名是否已被占用；索引尚未构建时查询数据库
+     */
+    public boolean isTaken(String username) {
+        UsernameTrie current = trie;
+        return current != null ? current.contains(username) : userStore.existsByUsername(username);
+    }
+
+    /**
+     * 生成最多 count 个未被占用的候选用户名：先给最小可用数字后缀，其余随机数字后缀
+     */
+    public List<String> suggest(String username, int count) {
+        UsernameTrie current = trie;
+        if (current == null || count <= 0) {
+            return List.of();
+        }
+        Set<String> result = new LinkedHashSet<>();
+        String base = username.length() > MAX_LENGTH - 5 ? username.substring(0, MAX_LENGTH - 5) : username;
+
+        for (int n = 1; n <= SEQUENTIAL_PROBES; n++) {
+            String candidate = base + n;
+            if (!current.contains(candidate)) {
+                result.add(candidate);
+                break;
+            }
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int attempts = count * RANDOM_ATTEMPTS_PER_SUGGESTION;
+        for (int i = 0; i < attempts && result.size() < count; i++) {
+            // 尝试越多后缀越长，2 位到 4 位
+            int digits = 2 + Math.min(2, i / count);
+            int bound = (int) Math.pow(10, digits);
+            String suffix = String.valueOf(random.nextInt(bound / 10, bound));
+            String candidate = (i % 2 == 0 ? base : base + "_") + suffix;
+            if (candidate.length() <= MAX_LENGTH && !current.contains(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * 注册事务提交后写入本地索引并通知其他节点
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        onChange(event.username());
+        try {
+            stringRedisTemplate.convertAndSend(CHANGE_CHANNEL, event.username());
+        } catch (Exception e) {
+            // 其他节点在下次全量重建时补齐
+            log.warn("Failed to publish username change: {}", event.username(), e);
+        }
+    }
+
+    /**
+     * 应用一条用户名变更（本节点注册或其他节点的通知）
+     */
+    public synchronized void onChange(String username) {
+        if (pending != null) {
+            pending.add(username);
+        }
+        UsernameTrie current = trie;
+        if (current != null) {
+            current.add(username);
+        }
+    }
+}
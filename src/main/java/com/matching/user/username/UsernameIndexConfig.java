@@ -0,0 +1,29 @@
+package com.matching.user.username;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订阅其他节点的用户名变更通知
+ */
+@Configuration
+@Profile("!test")
+public class UsernameIndexConfig {
+
+    @Bean
+    public RedisMessageListenerContainer usernameChangeListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                         UsernameIndex usernameIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> usernameIndex.onChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(UsernameIndex.CHANGE_CHANNEL));
+        return container;
+    }
+}
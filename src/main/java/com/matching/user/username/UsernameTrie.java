@@ -0,0 +1,204 @@
+package com.matching.user.username;
+
+import java.util.Arrays;
+
+/**
+ * 用户名基数树（路径压缩前缀树）
+ * <p>
+ * 每个节点保存入边的字符片段，子节点按首字符排序存放在两个数组中（二分查找），
+ * 不使用 HashMap，节点开销小。用户名在写入前统一转小写，与 MySQL 默认排序规则的唯一约束一致。
+ * <p>
+ * 并发：发布后的写入对路径上的节点做写时复制，最后替换根引用，读取无锁且总能看到一致的快照；
+ * 发布前的批量构建用 {@link #bulkAdd} 原地修改，避免复制开销。
+ */
+public class UsernameTrie {
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private volatile Node root = new Node(NO_CHARS);
+    private volatile int size;
+
+    /**
+     * 是否已存在（忽略大小写）
+     */
+    public boolean contains(String username) {
+        String key = normalize(username);
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int index = Arrays.binarySearch(node.keys, key.charAt(pos));
+            if (index < 0) {
+                return false;
+            }
+            node = node.children[index];
+            char[] label = node.label;
+            if (key.length() - pos < label.length) {
+                return false;
+            }
+            for (int i = 0; i < label.length; i++) {
+                if (key.charAt(pos + i) != label[i]) {
+                    return false;
+                }
+            }
+            pos += label.length;
+        }
+        return node.terminal;
+    }
+
+    /**
+     * 写入用户名（写时复制），已存在时返回 false
+     */
+    public synchronized boolean add(String username) {
+        String key = normalize(username);
+        if (contains(key)) {
+            return false;
+        }
+        root = insert(root, key, 0, true);
+        size++;
+        return true;
+    }
+
+    /**
+     * 发布前的单线程批量写入，原地修改节点
+     */
+    public boolean bulkAdd(String username) {
+        String key = normalize(username);
+        if (contains(key)) {
+            return false;
+        }
+        root = insert(root, key, 0, false);
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 节点数（用于估算内存）
+     */
+    public int nodeCount() {
+        return count(root);
+    }
+
+    /**
+     * 在 node 的入边已完全匹配、剩余 key[pos..] 时插入；copy 为 true 时不修改原节点
+     */
+    private static Node insert(Node node, String key, int pos, boolean copy) {
+        Node target = copy ? node.copy() : node;
+        if (pos == key.length()) {
+            target.terminal = true;
+            return target;
+        }
+        char first = key.charAt(pos);
+        int index = Arrays.binarySearch(target.keys, first);
+        if (index < 0) {
+            Node leaf = new Node(key.substring(pos).toCharArray());
+            leaf.terminal = true;
+            target.insertChild(-index - 1, first, leaf);
+            return target;
+        }
+
+        Node child = target.children[index];
+        int common = commonPrefix(child.label, key, pos);
+        Node replacement;
+        if (common == child.label.length) {
+            replacement = insert(child, key, pos + common, copy);
+        } else {
+            // 在公共前缀处拆分入边（非复制模式下 tail 与 child 是同一节点，先取出原标签）
+            char[] label = child.label;
+            Node tail = copy ? child.copy() : child;
+            tail.label = Arrays.copyOfRange(label, common, label.length);
+            replacement = new Node(Arrays.copyOf(label, common));
+            replacement.keys = new char[]{tail.label[0]};
+            replacement.children = new Node[]{tail};
+            int rest = pos + common;
+            if (rest == key.length()) {
+                replacement.terminal = true;
+            } else {
+                Node leaf = new Node(key.substring(rest).toCharArray());
+                leaf.terminal = true;
+                char c = key.charAt(rest);
+                replacement.insertChild(c < tail.label[0] ? 0 : 1, c, leaf);
+            }
+        }
+        if (copy) {
+            target.children = target.children.clone();
+        }
+        target.children[index] = replacement;
+        return target;
+    }
+
+    private static int commonPrefix(char[] label, String key, int pos) {
+        int max = Math.min(label.length, key.length() - pos);
+        int i = 0;
+        while (i < max && label[i] == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int count(Node node) {
+        int total = 1;
+        for (Node child : node.children) {
+            total += count(child);
+        }
+        return total;
+    }
+
+    /**
+     * 用户名只允许字母、数字、下划线，按 ASCII 转小写即可
+     */
+    static String normalize(String username) {
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] chars = username.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') {
+                        chars[j] += 'a' - 'A';
+                    }
+                }
+                return new String(chars);
+            }
+        }
+        return username;
+    }
+
+    private static final class Node {
+        char[] label;
+        boolean terminal;
+        char[] keys = NO_CHARS;
+        Node[] children = NO_NODES;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        Node copy() {
+            Node node = new Node(label);
+            node.terminal = terminal;
+            node.keys = keys;
+            node.children = children;
+            return node;
+        }
+
+        /**
+         * 插入子节点，总是分配新数组（与写时复制共用）
+         */
+        void insertChild(int at, char key, Node child) {
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = key;
+            newChildren[at] = child;
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.matching.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 进程内 Redis Cluster 替身 - N 个 {@link EmbeddedRedisServer} 节点均分 16384 个 slot，仅用于压测与本地验证
+ * <p>
+ * 只有主节点、没有副本与故障转移；实现客户端发现拓扑所需的 CLUSTER NODES / SLOTS / INFO / MYID / KEYSLOT，
+ * 访问其他节点的 Key 回复 MOVED，因此客户端的 slot 路由、重定向与 CROSSSLOT 都能在本地暴露出来。
+ */
+@Slf4j
+public final class EmbeddedRedisCluster implements AutoCloseable {
+
+    private static final int SLOT_COUNT = ClusterSlotHashUtil.SLOT_COUNT;
+
+    private final List<EmbeddedRedisServer> nodes = new ArrayList<>();
+
+    public EmbeddedRedisCluster(int nodeCount) throws IOException {
+        if (nodeCount < 1) {
+            throw new IllegalArgumentException("nodeCount must be positive");
+        }
+        try {
+            for (int i = 0; i < nodeCount; i++) {
+                nodes.add(new EmbeddedRedisServer(0, this, i, nodes.isEmpty() ? null : nodes.get(0)));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        log.info("Embedded Redis Cluster started: nodes={}", getNodes());
+    }
+
+    /**
+     * 种子节点列表，对应 spring.data.redis.cluster.nodes
+     */
+    public String getNodes() {
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            addresses.add(addressOf(i));
+        }
+        return String.join(",", addresses);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (EmbeddedRedisServer node : nodes) {
+            node.close();
+        }
+    }
+
+    static int slot(byte[] key) {
+        return ClusterSlotHashUtil.calculateSlot(key);
+    }
+
+    int ownerOf(int slot) {
+        return (int) ((long) slot * nodes.size() / SLOT_COUNT);
+    }
+
+    String addressOf(int node) {
+        return "127.0.0.1:" + nodes.get(node).getPort();
+    }
+
+    private int firstSlot(int node) {
+        return (int) (((long) node * SLOT_COUNT + nodes.size() - 1) / nodes.size());
+    }
+
+    private int lastSlot(int node) {
+        return firstSlot(node + 1) - 1;
+    }
+
+    private static String nodeId(int node) {
+        return String.format("%040x", node + 1);
+    }
+
+    /**
+     * CLUSTER 子命令
+     */
+    Object clusterCommand(int self, String subcommand, List<byte[]> args) {
+        return switch (subcommand) {
+            case "NODES" -> bytes(nodesDescription(self));
+            case "MYID" -> bytes(nodeId(self));
+            case "KEYSLOT" -> (long) slot(args.get(2));
+            case "INFO" -> bytes("cluster_enabled:1\r\ncluster_state:ok\r\ncluster_slots_assigned:" + SLOT_COUNT
+                    + "\r\ncluster_slots_ok:" + SLOT_COUNT + "\r\ncluster_known_nodes:" + nodes.size()
+                    + "\r\ncluster_size:" + nodes.size() + "\r\ncluster_current_epoch:" + nodes.size()
+                    + "\r\ncluster_my_epoch:" + (self + 1) + "\r\n");
+            case "SLOTS" -> {
+                List<Object> ranges = new ArrayList<>();
+                for (int i = 0; i < nodes.size(); i++) {
+                    ranges.add(List.of((long) firstSlot(i), (long) lastSlot(i),
+                            List.of(bytes("127.0.0.1"), (long) nodes.get(i).getPort(), bytes(nodeId(i)))));
+                }
+                yield ranges;
+            }
+            default -> new EmbeddedRedisServer.ErrorReply("ERR Unknown subcommand '" + subcommand + "'");
+        };
+    }
+
+    /**
+     * CLUSTER NODES 格式：id host:port@cport flags master ping-sent pong-recv epoch link-state slots
+     */
+    private String nodesDescription(int self) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < nodes.size(); i++) {
+            description.append(nodeId(i)).append(' ').append(addressOf(i)).append('@')
+                    .append(nodes.get(i).getPort() + 10000).append(' ')
+                    .append(i == self ? "myself,master" : "master").append(" - 0 0 ").append(i + 1)
+                    .append(" connected ").append(firstSlot(i)).append('-').append(lastSlot(i)).append('\n');
+        }
+        return description.toString();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,956 @@
+package com.matching.loadtest;
+
+import com.matching.user.service.ReferralService;
+import com.matching.user.service.TokenService;
+import com.matching.user.service.VerificationCodeStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 进程内 Redis 替身 - 实现 RESP2 协议与用户服务用到的命令子集，仅用于压测
+ * <p>
+ * 所有命令在同一把锁内串行执行，与 Redis 单线程语义一致；过期采用访问时惰性删除。
+ * 支持 SUBSCRIBE / UNSUBSCRIBE / PUBLISH（不支持模式订阅）；PF* 使用与 Redis 相同参数的稠密 HyperLogLog（16384 个寄存器）。
+ * 作为 {@link EmbeddedRedisCluster} 的节点时只接受本节点 slot 的 Key，其余回复 MOVED，多 Key 跨 slot 回复 CROSSSLOT。
+ * 没有 Lua 解释器：EVAL / EVALSHA 只接受服务自身的脚本，按脚本 SHA1 找到等价的 Java 实现执行。
+ */
+@Slf4j
+public final class EmbeddedRedisServer implements AutoCloseable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * 脚本 SHA1 -> 等价实现（与脚本一样在命令锁内执行，保持原子性）
+     */
+    private static final Map<String, ScriptEmulation> SCRIPTS = Map.of(
+            sha1(VerificationCodeStore.ISSUE_SCRIPT), EmbeddedRedisServer::issueVerificationCode,
+            sha1(VerificationCodeStore.CONSUME_SCRIPT), EmbeddedRedisServer::consumeVerificationCode,
+            sha1(TokenService.INDEX_SESSION_SCRIPT), EmbeddedRedisServer::indexSession,
+            sha1(ReferralService.RECORD_SCRIPT), EmbeddedRedisServer::recordReferral);
+
+    private final Map<String, Object> data = new HashMap<>();
+    private final Map<String, Long> expires = new HashMap<>();
+    private final Map<String, Set<Connection>> subscriptions;
+    private final EmbeddedRedisCluster cluster;
+    private final int nodeIndex;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final ServerSocket serverSocket;
+    private volatile boolean running = true;
+
+    public EmbeddedRedisServer(int port) throws IOException {
+        this(port, null, 0, null);
+    }
+
+    /**
+     * 集群节点：订阅关系与 pubSubHub 共享（Cluster 中 PUBLISH 广播到全部节点）
+     */
+    EmbeddedRedisServer(int port, EmbeddedRedisCluster cluster, int nodeIndex, EmbeddedRedisServer pubSubHub)
+            throws IOException {
+        this.cluster = cluster;
+        this.nodeIndex = nodeIndex;
+        this.subscriptions = pubSubHub == null ? new HashMap<>() : pubSubHub.subscriptions;
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "embedded-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Embedded Redis listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.submit(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Embedded Redis accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Connection connection = null;
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            connection = new Connection(out);
+            while (running) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                String name = str(command.get(0)).toUpperCase(Locale.ROOT);
+                ErrorReply redirect = cluster == null ? null : redirect(name, command);
+                if (redirect != null) {
+                    connection.write(Collections.singletonList(redirect), in.available() == 0);
+                    continue;
+                }
+                if (name.equals("SUBSCRIBE") || name.equals("UNSUBSCRIBE")) {
+                    connection.write(subscribe(connection, name, command), true);
+                    continue;
+                }
+                if (name.equals("PUBLISH") && command.size() == 3) {
+                    connection.write(Collections.singletonList(publish(str(command.get(1)), command.get(2))), in.available() == 0);
+                    continue;
+                }
+                Object reply;
+                synchronized (this) {
+                    reply = execute(command);
+                }
+                // 管道中还有命令时合并写出
+                connection.write(Collections.singletonList(reply), in.available() == 0);
+            }
+        } catch (EOFException e) {
+            // 客户端断开
+        } catch (IOException e) {
+            if (running) {
+                log.debug("Embedded Redis connection closed: {}", e.getMessage());
+            }
+        } finally {
+            if (connection != null) {
+                synchronized (subscriptions) {
+                    for (String channel : connection.channels) {
+                        Set<Connection> subscribers = subscriptions.get(channel);
+                        if (subscribers != null) {
+                            subscribers.remove(connection);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // ==================== 集群路由 ====================
+
+    /**
+     * Key 不属于本节点时回复 MOVED，多个 Key 不在同一 slot 时回复 CROSSSLOT，否则返回 null
+     */
+    private ErrorReply redirect(String name, List<byte[]> args) {
+        int slot = -1;
+        for (byte[] key : keysOf(name, args)) {
+            int keySlot = EmbeddedRedisCluster.slot(key);
+            if (slot >= 0 && keySlot != slot) {
+                return new ErrorReply("CROSSSLOT Keys in request don't hash to the same slot");
+            }
+            slot = keySlot;
+        }
+        if (slot < 0 || cluster.ownerOf(slot) == nodeIndex) {
+            return null;
+        }
+        return new ErrorReply("MOVED " + slot + " " + cluster.addressOf(cluster.ownerOf(slot)));
+    }
+
+    /**
+     * 命令中的 Key 参数位置
+     */
+    private static List<byte[]> keysOf(String name, List<byte[]> args) {
+        return switch (name) {
+            case "PING", "ECHO", "SELECT", "AUTH", "CLIENT", "READONLY", "READWRITE", "QUIT", "INFO", "HELLO",
+                 "COMMAND", "FLUSHDB", "FLUSHALL", "DBSIZE", "CLUSTER", "SUBSCRIBE", "UNSUBSCRIBE", "PUBLISH" -> List.of();
+            case "DEL", "UNLINK", "EXISTS", "PFCOUNT", "PFMERGE" -> args.subList(1, args.size());
+            case "EVAL", "EVALSHA" -> args.subList(3, 3 + Integer.parseInt(str(args.get(2))));
+            case "SCRIPT" -> List.of();
+            default -> args.size() > 1 ? args.subList(1, 2) : List.of();
+        };
+    }
+
+    // ==================== 发布订阅 ====================
+
+    /**
+     * 每个频道回复一条 [subscribe|unsubscribe, channel, 当前订阅数]
+     */
+    private List<Object> subscribe(Connection connection, String name, List<byte[]> args) {
+        boolean add = name.equals("SUBSCRIBE");
+        List<String> channels = new ArrayList<>();
+        for (int i = 1; i < args.size(); i++) {
+            channels.add(str(args.get(i)));
+        }
+        if (!add && channels.isEmpty()) {
+            channels.addAll(connection.channels);
+        }
+        List<Object> replies = new ArrayList<>();
+        synchronized (subscriptions) {
+            for (String channel : channels) {
+                if (add) {
+                    connection.channels.add(channel);
+                    subscriptions.computeIfAbsent(channel, k -> new LinkedHashSet<>()).add(connection);
+                } else {
+                    connection.channels.remove(channel);
+                    Set<Connection> subscribers = subscriptions.get(channel);
+                    if (subscribers != null) {
+                        subscribers.remove(connection);
+                    }
+                }
+                replies.add(List.of(name.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII),
+                        channel.getBytes(StandardCharsets.ISO_8859_1), (long) connection.channels.size()));
+            }
+        }
+        if (replies.isEmpty()) {
+            replies.add(Arrays.asList("unsubscribe".getBytes(StandardCharsets.US_ASCII), null, 0L));
+        }
+        return replies;
+    }
+
+    /**
+     * 推送 [message, channel, payload] 给订阅者，返回接收数
+     */
+    private long publish(String channel, byte[] payload) {
+        List<Connection> receivers;
+        synchronized (subscriptions) {
+            Set<Connection> subscribers = subscriptions.get(channel);
+            receivers = subscribers == null ? List.of() : new ArrayList<>(subscribers);
+        }
+        List<Object> message = List.of("message".getBytes(StandardCharsets.US_ASCII),
+                channel.getBytes(StandardCharsets.ISO_8859_1), payload);
+        long delivered = 0;
+        for (Connection receiver : receivers) {
+            try {
+                receiver.write(Collections.singletonList(message), true);
+                delivered++;
+            } catch (IOException e) {
+                log.debug("Embedded Redis publish to closed connection: {}", e.getMessage());
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * 客户端连接 - 写出加锁，订阅连接会同时收到本连接的回复与其他连接发布的消息
+     */
+    private static final class Connection {
+        private final OutputStream out;
+        private final Set<String> channels = new LinkedHashSet<>();
+
+        Connection(OutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void write(List<Object> replies, boolean flush) throws IOException {
+            for (Object reply : replies) {
+                writeReply(out, reply);
+            }
+            if (flush) {
+                out.flush();
+            }
+        }
+    }
+
+    // ==================== 命令执行 ====================
+
+    private Object execute(List<byte[]> args) {
+        String name = str(args.get(0)).toUpperCase(Locale.ROOT);
+        try {
+            return switch (name) {
+                case "PING" -> args.size() > 1 ? args.get(1) : new Status("PONG");
+                case "ECHO" -> args.get(1);
+                case "SELECT", "AUTH", "CLIENT", "READONLY", "READWRITE" -> Status.OK;
+                case "QUIT" -> Status.OK;
+                case "INFO" -> ("# Server\r\nredis_version:7.2.0\r\nredis_mode:"
+                        + (cluster == null ? "standalone" : "cluster")
+                        + "\r\n# Clients\r\nconnected_clients:1\r\n# Replication\r\nrole:master\r\nmaster_repl_offset:0\r\n")
+                        .getBytes(StandardCharsets.US_ASCII);
+                case "CLUSTER" -> cluster == null
+                        ? new ErrorReply("ERR This instance has cluster support disabled")
+                        : cluster.clusterCommand(nodeIndex, str(args.get(1)).toUpperCase(Locale.ROOT), args);
+                case "FLUSHDB", "FLUSHALL" -> {
+                    data.clear();
+                    expires.clear();
+                    yield Status.OK;
+                }
+                case "DBSIZE" -> {
+                    purgeExpired();
+                    yield (long) data.size();
+                }
+                case "GET" -> stringValue(str(args.get(1)));
+                case "SET" -> set(args);
+                case "SETEX" -> {
+                    String key = str(args.get(1));
+                    data.put(key, args.get(3));
+                    expires.put(key, System.currentTimeMillis() + Long.parseLong(str(args.get(2))) * 1000);
+                    yield Status.OK;
+                }
+                case "DEL", "UNLINK" -> {
+                    long removed = 0;
+                    for (int i = 1; i < args.size(); i++) {
+                        String key = str(args.get(i));
+                        if (live(key) != null) {
+                            removed++;
+                        }
+                        remove(key);
+                    }
+                    yield removed;
+                }
+                case "EXISTS" -> {
+                    long count = 0;
+                    for (int i = 1; i < args.size(); i++) {
+                        if (live(str(args.get(i))) != null) {
+                            count++;
+                        }
+                    }
+                    yield count;
+                }
+                case "EXPIRE" -> expire(str(args.get(1)), Long.parseLong(str(args.get(2))) * 1000);
+                case "PEXPIRE" -> expire(str(args.get(1)), Long.parseLong(str(args.get(2))));
+                case "TTL" -> ttl(str(args.get(1)), 1000);
+                case "PTTL" -> ttl(str(args.get(1)), 1);
+                case "INCR" -> incrBy(str(args.get(1)), 1);
+                case "INCRBY" -> incrBy(str(args.get(1)), Long.parseLong(str(args.get(2))));
+                case "DECR" -> incrBy(str(args.get(1)), -1);
+                case "HSET", "HMSET" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), true);
+                    long added = 0;
+                    for (int i = 2; i + 1 < args.size(); i += 2) {
+                        if (hash.put(str(args.get(i)), args.get(i + 1)) == null) {
+                            added++;
+                        }
+                    }
+                    yield "HMSET".equals(name) ? Status.OK : added;
+                }
+                case "HGET" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), false);
+                    yield hash == null ? null : hash.get(str(args.get(2)));
+                }
+                case "HMGET" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), false);
+                    List<Object> reply = new ArrayList<>();
+                    for (int i = 2; i < args.size(); i++) {
+                        reply.add(hash == null ? null : hash.get(str(args.get(i))));
+                    }
+                    yield reply;
+                }
+                case "HGETALL" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), false);
+                    List<Object> reply = new ArrayList<>();
+                    if (hash != null) {
+                        hash.forEach((field, value) -> {
+                            reply.add(field.getBytes(StandardCharsets.ISO_8859_1));
+                            reply.add(value);
+                        });
+                    }
+                    yield reply;
+                }
+                case "HDEL" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), false);
+                    long removed = 0;
+                    if (hash != null) {
+                        for (int i = 2; i < args.size(); i++) {
+                            if (hash.remove(str(args.get(i))) != null) {
+                                removed++;
+                            }
+                        }
+                        if (hash.isEmpty()) {
+                            remove(str(args.get(1)));
+                        }
+                    }
+                    yield removed;
+                }
+                case "HEXISTS" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), false);
+                    yield hash != null && hash.containsKey(str(args.get(2))) ? 1L : 0L;
+                }
+                case "HLEN" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), false);
+                    yield hash == null ? 0L : (long) hash.size();
+                }
+                case "HINCRBY" -> {
+                    Map<String, byte[]> hash = hash(str(args.get(1)), true);
+                    byte[] current = hash.get(str(args.get(2)));
+                    long value = (current == null ? 0 : Long.parseLong(str(current))) + Long.parseLong(str(args.get(3)));
+                    hash.put(str(args.get(2)), Long.toString(value).getBytes(StandardCharsets.ISO_8859_1));
+                    yield value;
+                }
+                case "ZINCRBY" -> {
+                    Map<String, Double> zset = zset(str(args.get(1)), true);
+                    double score = zset.getOrDefault(str(args.get(3)), 0.0) + Double.parseDouble(str(args.get(2)));
+                    zset.put(str(args.get(3)), score);
+                    yield formatScore(score);
+                }
+                case "ZADD" -> {
+                    Map<String, Double> zset = zset(str(args.get(1)), true);
+                    long added = 0;
+                    for (int i = 2; i + 1 < args.size(); i += 2) {
+                        if (zset.put(str(args.get(i + 1)), Double.parseDouble(str(args.get(i)))) == null) {
+                            added++;
+                        }
+                    }
+                    yield added;
+                }
+                case "ZSCORE" -> {
+                    Map<String, Double> zset = zset(str(args.get(1)), false);
+                    Double score = zset == null ? null : zset.get(str(args.get(2)));
+                    yield score == null ? null : formatScore(score);
+                }
+                case "ZCARD" -> {
+                    Map<String, Double> zset = zset(str(args.get(1)), false);
+                    yield zset == null ? 0L : (long) zset.size();
+                }
+                case "ZREVRANGE" -> zrevrange(args);
+                case "PFADD" -> {
+                    String key = str(args.get(1));
+                    boolean created = live(key) == null;
+                    HyperLogLog hll = hyperLogLog(key, true);
+                    boolean changed = created;
+                    for (int i = 2; i < args.size(); i++) {
+                        changed |= hll.add(args.get(i));
+                    }
+                    yield changed ? 1L : 0L;
+                }
+                case "PFCOUNT" -> {
+                    HyperLogLog union = new HyperLogLog();
+                    for (int i = 1; i < args.size(); i++) {
+                        HyperLogLog hll = hyperLogLog(str(args.get(i)), false);
+                        if (hll != null) {
+                            union.merge(hll);
+                        }
+                    }
+                    yield union.count();
+                }
+                case "PFMERGE" -> {
+                    HyperLogLog target = hyperLogLog(str(args.get(1)), true);
+                    for (int i = 2; i < args.size(); i++) {
+                        HyperLogLog hll = hyperLogLog(str(args.get(i)), false);
+                        if (hll != null) {
+                            target.merge(hll);
+                        }
+                    }
+                    yield Status.OK;
+                }
+                case "EVAL" -> eval(sha1(str(args.get(1))), args);
+                case "EVALSHA" -> eval(str(args.get(1)).toLowerCase(Locale.ROOT), args);
+                case "SCRIPT" -> script(args);
+                default -> new ErrorReply("ERR unknown command '" + name + "'");
+            };
+        } catch (WrongTypeException e) {
+            return new ErrorReply("WRONGTYPE Operation against a key holding the wrong kind of value");
+        } catch (NumberFormatException e) {
+            return new ErrorReply("ERR value is not an integer or out of range");
+        } catch (IndexOutOfBoundsException e) {
+            return new ErrorReply("ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command");
+        }
+    }
+
+    // ==================== 脚本 ====================
+
+    @FunctionalInterface
+    private interface ScriptEmulation {
+        Object run(EmbeddedRedisServer server, List<byte[]> keys, List<byte[]> argv);
+    }
+
+    private Object eval(String sha, List<byte[]> args) {
+        ScriptEmulation script = SCRIPTS.get(sha);
+        if (script == null) {
+            return new ErrorReply("NOSCRIPT No matching script. Please use EVAL.");
+        }
+        int numKeys = Integer.parseInt(str(args.get(2)));
+        return script.run(this, args.subList(3, 3 + numKeys), args.subList(3 + numKeys, args.size()));
+    }
+
+    private Object script(List<byte[]> args) {
+        return switch (str(args.get(1)).toUpperCase(Locale.ROOT)) {
+            case "LOAD" -> {
+                String sha = sha1(str(args.get(2)));
+                yield SCRIPTS.containsKey(sha)
+                        ? sha.getBytes(StandardCharsets.US_ASCII)
+                        : new ErrorReply("ERR script not supported by embedded Redis");
+            }
+            case "EXISTS" -> {
+                List<Object> reply = new ArrayList<>();
+                for (int i = 2; i < args.size(); i++) {
+                    reply.add(SCRIPTS.containsKey(str(args.get(i)).toLowerCase(Locale.ROOT)) ? 1L : 0L);
+                }
+                yield reply;
+            }
+            case "FLUSH" -> Status.OK;
+            default -> new ErrorReply("ERR unknown SCRIPT subcommand");
+        };
+    }
+
+    /**
+     * {@link VerificationCodeStore#ISSUE_SCRIPT}
+     */
+    private Object issueVerificationCode(List<byte[]> keys, List<byte[]> argv) {
+        String codeKey = str(keys.get(0));
+        String countKey = str(keys.get(1));
+        byte[] sent = stringValue(countKey);
+        if (sent != null && Long.parseLong(str(sent)) >= Long.parseLong(str(argv.get(2)))) {
+            return 0L;
+        }
+        if (incrBy(countKey, 1) == 1) {
+            expire(countKey, Long.parseLong(str(argv.get(3))));
+        }
+        remove(codeKey);
+        Map<String, byte[]> hash = hash(codeKey, true);
+        hash.put("code", argv.get(0));
+        hash.put("attempts", "0".getBytes(StandardCharsets.ISO_8859_1));
+        expire(codeKey, Long.parseLong(str(argv.get(1))));
+        return 1L;
+    }
+
+    /**
+     * {@link VerificationCodeStore#CONSUME_SCRIPT}
+     */
+    private Object consumeVerificationCode(List<byte[]> keys, List<byte[]> argv) {
+        String codeKey = str(keys.get(0));
+        Map<String, byte[]> hash = hash(codeKey, false);
+        byte[] code = hash == null ? null : hash.get("code");
+        if (code == null) {
+            return -1L;
+        }
+        if (Arrays.equals(code, argv.get(0))) {
+            remove(codeKey);
+            return 1L;
+        }
+        byte[] previous = hash.get("attempts");
+        long attempts = (previous == null ? 0 : Long.parseLong(str(previous))) + 1;
+        hash.put("attempts", Long.toString(attempts).getBytes(StandardCharsets.ISO_8859_1));
+        if (attempts >= Long.parseLong(str(argv.get(1)))) {
+            remove(codeKey);
+            return -2L;
+        }
+        return 0L;
+    }
+
+    /**
+     * {@link TokenService#INDEX_SESSION_SCRIPT}
+     */
+    private Object indexSession(List<byte[]> keys, List<byte[]> argv) {
+        String key = str(keys.get(0));
+        Map<String, byte[]> hash = hash(key, true);
+        hash.put(str(argv.get(0)), argv.get(1));
+        expire(key, Long.parseLong(str(argv.get(2))) * 1000);
+        if (hash.size() <= Long.parseLong(str(argv.get(3)))) {
+            return 0L;
+        }
+        long now = Long.parseLong(str(argv.get(4)));
+        int before = hash.size();
+        hash.values().removeIf(expireAt -> Long.parseLong(str(expireAt)) <= now);
+        return (long) (before - hash.size());
+    }
+
+    /**
+     * {@link ReferralService#RECORD_SCRIPT}
+     */
+    private Object recordReferral(List<byte[]> keys, List<byte[]> argv) {
+        Map<String, byte[]> parents = hash(str(keys.get(0)), true);
+        if (parents.putIfAbsent(str(argv.get(0)), argv.get(1)) != null) {
+            return 0L;
+        }
+        String ancestor = str(argv.get(1));
+        int depth = Integer.parseInt(str(argv.get(2)));
+        int keep = Integer.parseInt(str(argv.get(3)));
+        for (int level = 1; level <= depth; level++) {
+            Map<String, byte[]> counts = hash("referral:{referral}:count:" + ancestor, true);
+            long count = hashIncrBy(counts, "l" + level);
+            long total = hashIncrBy(counts, "total");
+            if (level == 1) {
+                addAndTrim(str(keys.get(1)), ancestor, count, keep);
+            }
+            addAndTrim(str(keys.get(2)), ancestor, total, keep);
+            Map<String, byte[]> bucket = hash("referral:{referral}:parent:"
+                    + ancestor.substring(Math.max(0, ancestor.length() - 2)), false);
+            byte[] parent = bucket == null ? null : bucket.get(ancestor);
+            if (parent == null) {
+                break;
+            }
+            ancestor = str(parent);
+        }
+        return 1L;
+    }
+
+    private static long hashIncrBy(Map<String, byte[]> hash, String field) {
+        byte[] previous = hash.get(field);
+        long value = (previous == null ? 0 : Long.parseLong(str(previous))) + 1;
+        hash.put(field, Long.toString(value).getBytes(StandardCharsets.ISO_8859_1));
+        return value;
+    }
+
+    /**
+     * ZADD 后按 ZREMRANGEBYRANK 0 -(keep+1) 只保留分数最高的 keep 个成员
+     */
+    private void addAndTrim(String key, String member, double score, int keep) {
+        Map<String, Double> zset = zset(key, true);
+        zset.put(member, score);
+        if (zset.size() > keep) {
+            List<Map.Entry<String, Double>> entries = new ArrayList<>(zset.entrySet());
+            entries.sort(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+            for (int i = 0; i < entries.size() - keep; i++) {
+                zset.remove(entries.get(i).getKey());
+            }
+        }
+    }
+
+    private static String sha1(String script) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object set(List<byte[]> args) {
+        String key = str(args.get(1));
+        Long expireMillis = null;
+        boolean nx = false;
+        boolean xx = false;
+        for (int i = 3; i < args.size(); i++) {
+            String option = str(args.get(i)).toUpperCase(Locale.ROOT);
+            switch (option) {
+                case "EX" -> expireMillis = Long.parseLong(str(args.get(++i))) * 1000;
+                case "PX" -> expireMillis = Long.parseLong(str(args.get(++i)));
+                case "NX" -> nx = true;
+                case "XX" -> xx = true;
+                default -> {
+                    return new ErrorReply("ERR syntax error");
+                }
+            }
+        }
+        boolean exists = live(key) != null;
+        if ((nx && exists) || (xx && !exists)) {
+            return null;
+        }
+        data.put(key, args.get(2));
+        if (expireMillis != null) {
+            expires.put(key, System.currentTimeMillis() + expireMillis);
+        } else {
+            expires.remove(key);
+        }
+        return Status.OK;
+    }
+
+    private byte[] stringValue(String key) {
+        Object value = live(key);
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof byte[] bytes)) {
+            throw new WrongTypeException();
+        }
+        return bytes;
+    }
+
+    private long incrBy(String key, long delta) {
+        byte[] current = stringValue(key);
+        long value = (current == null ? 0 : Long.parseLong(str(current))) + delta;
+        data.put(key, Long.toString(value).getBytes(StandardCharsets.ISO_8859_1));
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> hash(String key, boolean create) {
+        Object value = live(key);
+        if (value == null) {
+            if (!create) {
+                return null;
+            }
+            Map<String, byte[]> hash = new LinkedHashMap<>();
+            data.put(key, hash);
+            return hash;
+        }
+        if (!(value instanceof Map)) {
+            throw new WrongTypeException();
+        }
+        return (Map<String, byte[]>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> zset(String key, boolean create) {
+        Object value = live(key);
+        if (value == null) {
+            if (!create) {
+                return null;
+            }
+            Map<String, Double> zset = new HashMap<>();
+            data.put(key, new ZSet(zset));
+            return zset;
+        }
+        if (!(value instanceof ZSet zset)) {
+            throw new WrongTypeException();
+        }
+        return zset.scores();
+    }
+
+    private HyperLogLog hyperLogLog(String key, boolean create) {
+        Object value = live(key);
+        if (value == null) {
+            if (!create) {
+                return null;
+            }
+            HyperLogLog hll = new HyperLogLog();
+            data.put(key, hll);
+            return hll;
+        }
+        if (!(value instanceof HyperLogLog hll)) {
+            throw new WrongTypeException();
+        }
+        return hll;
+    }
+
+    private List<Object> zrevrange(List<byte[]> args) {
+        Map<String, Double> zset = zset(str(args.get(1)), false);
+        List<Object> reply = new ArrayList<>();
+        if (zset == null) {
+            return reply;
+        }
+        boolean withScores = args.size() > 4 && "WITHSCORES".equalsIgnoreCase(str(args.get(4)));
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(zset.entrySet());
+        entries.sort(Map.Entry.<String, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<String, Double>comparingByKey().reversed()));
+        int size = entries.size();
+        int start = normalizeIndex(Integer.parseInt(str(args.get(2))), size);
+        int stop = Math.min(normalizeIndex(Integer.parseInt(str(args.get(3))), size), size - 1);
+        for (int i = start; i <= stop; i++) {
+            reply.add(entries.get(i).getKey().getBytes(StandardCharsets.ISO_8859_1));
+            if (withScores) {
+                reply.add(formatScore(entries.get(i).getValue()));
+            }
+        }
+        return reply;
+    }
+
+    private static int normalizeIndex(int index, int size) {
+        return index < 0 ? Math.max(0, size + index) : index;
+    }
+
+    private static byte[] formatScore(double score) {
+        String text = score == Math.rint(score) ? Long.toString((long) score) : Double.toString(score);
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private long expire(String key, long millis) {
+        if (live(key) == null) {
+            return 0L;
+        }
+        expires.put(key, System.currentTimeMillis() + millis);
+        return 1L;
+    }
+
+    private long ttl(String key, long unit) {
+        if (live(key) == null) {
+            return -2L;
+        }
+        Long expireAt = expires.get(key);
+        if (expireAt == null) {
+            return -1L;
+        }
+        return Math.max(0, expireAt - System.currentTimeMillis()) / unit;
+    }
+
+    private Object live(String key) {
+        Long expireAt = expires.get(key);
+        if (expireAt != null && expireAt <= System.currentTimeMillis()) {
+            remove(key);
+            return null;
+        }
+        return data.get(key);
+    }
+
+    private void remove(String key) {
+        data.remove(key);
+        expires.remove(key);
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Long>> it = expires.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getValue() <= now) {
+                data.remove(entry.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    // ==================== RESP 编解码 ====================
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Inline commands are not supported");
+        }
+        int count = (int) readLong(in);
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Expected bulk string");
+            }
+            int length = (int) readLong(in);
+            byte[] arg = in.readNBytes(length);
+            if (arg.length < length) {
+                throw new EOFException();
+            }
+            in.skipNBytes(2);
+            args.add(arg);
+        }
+        return args;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            if (b == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (b - '0');
+            }
+        }
+        in.read(); // '\n'
+        return negative ? -value : value;
+    }
+
+    private static void writeReply(OutputStream out, Object reply) throws IOException {
+        if (reply == null) {
+            out.write("$-1".getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+        } else if (reply instanceof Status status) {
+            out.write(('+' + status.text()).getBytes(StandardCharsets.UTF_8));
+            out.write(CRLF);
+        } else if (reply instanceof ErrorReply error) {
+            out.write(('-' + error.text()).getBytes(StandardCharsets.UTF_8));
+            out.write(CRLF);
+        } else if (reply instanceof Long number) {
+            out.write((":" + number).getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+        } else if (reply instanceof byte[] bytes) {
+            out.write(("$" + bytes.length).getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+            out.write(bytes);
+            out.write(CRLF);
+        } else if (reply instanceof List<?> list) {
+            out.write(("*" + list.size()).getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+            for (Object item : list) {
+                writeReply(out, item);
+            }
+        } else {
+            throw new IllegalStateException("Unsupported reply type: " + reply.getClass());
+        }
+    }
+
+    private static String str(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    record Status(String text) {
+        static final Status OK = new Status("OK");
+    }
+
+    record ErrorReply(String text) {
+    }
+
+    private record ZSet(Map<String, Double> scores) {
+    }
+
+    /**
+     * 稠密 HyperLogLog：2^14 个寄存器，64 位哈希的低 14 位选寄存器，其余 50 位的尾零数 + 1 为秩
+     */
+    private static final class HyperLogLog {
+        private static final int P = 14;
+        private static final int M = 1 << P;
+        private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+        private final byte[] registers = new byte[M];
+
+        boolean add(byte[] element) {
+            long hash = hash(element);
+            int index = (int) (hash & (M - 1));
+            byte rank = (byte) (Long.numberOfTrailingZeros((hash >>> P) | (1L << (64 - P))) + 1);
+            if (rank > registers[index]) {
+                registers[index] = rank;
+                return true;
+            }
+            return false;
+        }
+
+        void merge(HyperLogLog other) {
+            for (int i = 0; i < M; i++) {
+                registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+            }
+        }
+
+        long count() {
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            double estimate = ALPHA * M * M / sum;
+            // 小基数时线性计数更准
+            if (estimate <= 2.5 * M && zeros > 0) {
+                estimate = M * Math.log((double) M / zeros);
+            }
+            return Math.round(estimate);
+        }
+
+        /**
+         * FNV-1a 后接 MurmurHash3 的 fmix64 打散
+         */
+        private static long hash(byte[] element) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : element) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb3fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+
+    private static class WrongTypeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,162 @@
+package com.matching.loadtest;
+
+import com.matching.UserServiceApplication;
+import com.matching.user.internal.InternalRpcProperties;
+import com.matching.user.internal.ProtoReader;
+import com.matching.user.internal.ProtoWriter;
+import org.apache.catalina.connector.Connector;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内部 gRPC 接口与 REST 路径对比 - 在同一进程内启动服务（替身同 LoadTestApplication），
+ * 以相同并发分别调用 GET /user/info（HTTP/1.1 + JSON，Token 校验 + 用户信息）、VerifyToken 一元调用、
+ * VerifyTokenStream 批量流式调用（三者都是一次 Token 校验 + 一次 user:info 缓存读取）
+ * <p>
+ * 参数（key=value）：requests=每种方式的调用数，concurrency=并发线程数，seed-users=已登录用户数，
+ * stream-batch=每个流携带的请求数；其余参数原样传给 Spring。客户端与服务端共用 CPU，"CPU/调用"为整个进程的 CPU 时间。
+ */
+public class InternalRpcBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") && eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        int requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int seedUsers = Integer.parseInt(options.getOrDefault("seed-users", "16"));
+        int streamBatch = Integer.parseInt(options.getOrDefault("stream-batch", "500"));
+
+        try (EmbeddedRedisServer redis = new EmbeddedRedisServer(0); SmtpSinkServer smtp = new SmtpSinkServer(0)) {
+            springArgs.add("--spring.data.redis.port=" + redis.getPort());
+            springArgs.add("--spring.mail.port=" + smtp.getPort());
+            // 压测只读，关闭预热与 Outbox 投递，减少后台 CPU 干扰
+            springArgs.add("--warmup.enabled=false");
+            springArgs.add("--outbox.relay-enabled=false");
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                    .profiles("loadtest")
+                    .run(springArgs.toArray(new String[0]));
+            try {
+                String baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadGenerator generator = new LoadGenerator(baseUrl, smtp);
+                generator.seedUsers(seedUsers);
+                List<String> tokens = generator.tokens();
+                int rpcPort = context.getBean("internalRpcConnector", Connector.class).getLocalPort();
+                String serviceToken = context.getBean(InternalRpcProperties.class).getServiceTokens().get(0);
+                run(baseUrl, rpcPort, serviceToken, tokens, requests, concurrency, streamBatch);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static void run(String baseUrl, int rpcPort, String serviceToken, List<String> tokens, int requests,
+                            int concurrency, int streamBatch) throws Exception {
+        HttpClient restClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        InternalRpcClient rpcClient = new InternalRpcClient("127.0.0.1", rpcPort, serviceToken);
+        AtomicInteger next = new AtomicInteger();
+
+        Callable<Integer> rest = () -> {
+            String token = tokens.get(next.getAndIncrement() % tokens.size());
+            HttpResponse<byte[]> response = restClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/user/info"))
+                    .header("Authorization", "Bearer " + token).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+            return 1;
+        };
+        Callable<Integer> unary = () -> {
+            String token = tokens.get(next.getAndIncrement() % tokens.size());
+            ProtoReader reply = rpcClient.call("VerifyToken", new ProtoWriter().writeString(1, token));
+            if (reply.nextField() != 1 || !reply.readBool()) {
+                throw new IllegalStateException("token rejected");
+            }
+            return 1;
+        };
+        Callable<Integer> stream = () -> {
+            InternalRpcClient.Stream call = rpcClient.openStream("VerifyTokenStream");
+            for (int i = 0; i < streamBatch; i++) {
+                call.send(new ProtoWriter().writeString(1, tokens.get(next.getAndIncrement() % tokens.size())));
+            }
+            call.halfClose();
+            int received = 0;
+            for (ProtoReader reply; (reply = call.receive()) != null; received++) {
+                if (reply.nextField() != 1 || !reply.readBool()) {
+                    throw new IllegalStateException("token rejected");
+                }
+            }
+            if (received != streamBatch) {
+                throw new IllegalStateException("expected " + streamBatch + " replies, got " + received);
+            }
+            return received;
+        };
+
+        System.out.printf("requests=%,d concurrency=%d tokens=%d stream-batch=%d%n",
+                requests, concurrency, tokens.size(), streamBatch);
+        // 预热：JIT、连接与缓存
+        measure("warmup", requests / 5, concurrency, rest, 1);
+        measure("warmup", requests / 5, concurrency, unary, 1);
+        measure("warmup", requests / 5, concurrency, stream, streamBatch);
+
+        System.out.println(measure("REST /user/info", requests, concurrency, rest, 1));
+        System.out.println(measure("gRPC VerifyToken", requests, concurrency, unary, 1));
+        System.out.println(measure("gRPC VerifyTokenStream", requests, concurrency, stream, streamBatch));
+    }
+
+    /**
+     * 并发执行直到完成 total 次调用；perTask 为每个任务包含的调用数，延迟按任务统计
+     */
+    private static String measure(String name, int total, int concurrency, Callable<Integer> task, int perTask)
+            throws InterruptedException {
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        LatencyRecorder recorder = new LatencyRecorder(name);
+        AtomicInteger remaining = new AtomicInteger(Math.max(1, total / perTask));
+        AtomicInteger calls = new AtomicInteger();
+        long cpuStart = os.getProcessCpuTime();
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[concurrency];
+        for (int t = 0; t < concurrency; t++) {
+            workers[t] = Thread.ofPlatform().name("rpc-bench-" + t).start(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    long begin = System.nanoTime();
+                    try {
+                        calls.addAndGet(task.call());
+                        recorder.record(System.nanoTime() - begin, true);
+                    } catch (Exception e) {
+                        recorder.record(System.nanoTime() - begin, false);
+                    }
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long cpuNanos = os.getProcessCpuTime() - cpuStart;
+        LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+        return String.format("%-24s %,9.0f calls/s  p50=%.2fms p99=%.2fms  CPU/call=%.1fus  errors=%d",
+                name, calls.get() / seconds, snapshot.percentileMillis(50), snapshot.percentileMillis(99),
+                cpuNanos / 1_000.0 / Math.max(1, calls.get()), snapshot.errors());
+    }
+}
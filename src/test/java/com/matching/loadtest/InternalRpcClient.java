@@ -0,0 +1,227 @@
+package com.matching.loadtest;
+
+import com.matching.user.internal.InternalRpcServlet;
+import com.matching.user.internal.ProtoReader;
+import com.matching.user.internal.ProtoWriter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+/**
+ * 内部 gRPC 接口的最小客户端（压测与本地验证用），基于 JDK HttpClient 的 HTTP/2
+ * <p>
+ * JDK 客户端只能经 Upgrade 建立 h2c，构造时先发一个无请求体的请求完成升级，之后的调用都在这条 HTTP/2 连接上多路复用。
+ * JDK 客户端读不到 trailers，只能识别 Trailers-Only 形式（响应头中带 grpc-status）的错误。
+ */
+public class InternalRpcClient {
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String serviceToken;
+
+    /**
+     * @param serviceToken internal.rpc.service-tokens 中的一个
+     */
+    public InternalRpcClient(String host, int port, String serviceToken) throws IOException, InterruptedException {
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        this.baseUrl = "http://" + host + ":" + port + "/" + InternalRpcServlet.SERVICE + "/";
+        this.serviceToken = serviceToken;
+        HttpResponse<Void> upgrade = client.send(HttpRequest.newBuilder(URI.create(baseUrl)).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (upgrade.version() != HttpClient.Version.HTTP_2) {
+            throw new IOException("h2c upgrade refused by " + host + ":" + port);
+        }
+    }
+
+    /**
+     * 一元调用，返回响应消息
+     */
+    public ProtoReader call(String method, ProtoWriter request) throws IOException, InterruptedException {
+        try {
+            return callAsync(method, request).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    public CompletableFuture<ProtoReader> callAsync(String method, ProtoWriter request) {
+        HttpRequest httpRequest = newRequest(method)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(request.toGrpcFrame()))
+                .build();
+        return client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            checkStatus(response);
+            byte[] body = response.body();
+            if (body.length < 5) {
+                throw new IllegalStateException("Empty gRPC response from " + method);
+            }
+            byte[] message = new byte[body.length - 5];
+            System.arraycopy(body, 5, message, 0, message.length);
+            return new ProtoReader(message);
+        });
+    }
+
+    /**
+     * 建立双向流；JDK 客户端在请求体发送完（halfClose）之前不交付响应，receive 会一直等到那时
+     */
+    public Stream openStream(String method) {
+        FramePublisher publisher = new FramePublisher();
+        HttpRequest httpRequest = newRequest(method)
+                .POST(HttpRequest.BodyPublishers.fromPublisher(publisher))
+                .build();
+        return new Stream(publisher, client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream()));
+    }
+
+    private HttpRequest.Builder newRequest(String method) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + method))
+                .header("Content-Type", "application/grpc")
+                .header("TE", "trailers")
+                .header("Authorization", "Bearer " + serviceToken);
+    }
+
+    private static void checkStatus(HttpResponse<?> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        String status = response.headers().firstValue("grpc-status").orElse(null);
+        if (status != null && !"0".equals(status)) {
+            throw new IllegalStateException("grpc-status " + status + ": "
+                    + response.headers().firstValue("grpc-message").orElse(""));
+        }
+    }
+
+    /**
+     * 双向流：send 与 receive 可在不同线程中调用
+     */
+    public static final class Stream implements AutoCloseable {
+
+        private final FramePublisher publisher;
+        private final CompletableFuture<HttpResponse<InputStream>> response;
+        private InputStream responses;
+
+        private Stream(FramePublisher publisher, CompletableFuture<HttpResponse<InputStream>> response) {
+            this.publisher = publisher;
+            this.response = response;
+        }
+
+        public void send(ProtoWriter message) {
+            publisher.submit(message.toGrpcFrame());
+        }
+
+        /**
+         * 读取下一条响应，服务端结束流时返回 null
+         */
+        public ProtoReader receive() throws IOException {
+            if (responses == null) {
+                try {
+                    HttpResponse<InputStream> headers = response.join();
+                    checkStatus(headers);
+                    responses = headers.body();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            }
+            byte[] prefix = responses.readNBytes(5);
+            if (prefix.length == 0) {
+                return null;
+            }
+            if (prefix.length < 5) {
+                throw new EOFException();
+            }
+            int length = ((prefix[1] & 0xFF) << 24) | ((prefix[2] & 0xFF) << 16) | ((prefix[3] & 0xFF) << 8) | (prefix[4] & 0xFF);
+            byte[] message = responses.readNBytes(length);
+            if (message.length < length) {
+                throw new EOFException();
+            }
+            return new ProtoReader(message);
+        }
+
+        /**
+         * 结束请求方向（half-close），之后仍可读完剩余响应
+         */
+        public void halfClose() {
+            publisher.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            publisher.close();
+            if (responses != null) {
+                responses.close();
+            }
+        }
+    }
+
+    /**
+     * 请求体发布者：HttpClient 订阅之前提交的帧先缓存（SubmissionPublisher 会丢弃无订阅者时提交的数据）
+     */
+    private static final class FramePublisher implements Flow.Publisher<ByteBuffer> {
+
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private Flow.Subscriber<? super ByteBuffer> subscriber;
+        private long demand;
+        private boolean closed;
+        private boolean completed;
+
+        @Override
+        public synchronized void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    synchronized (FramePublisher.this) {
+                        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                        drain();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    synchronized (FramePublisher.this) {
+                        closed = true;
+                        completed = true;
+                        pending.clear();
+                    }
+                }
+            });
+            drain();
+        }
+
+        synchronized void submit(byte[] frame) {
+            if (closed) {
+                throw new IllegalStateException("Stream already half-closed");
+            }
+            pending.add(ByteBuffer.wrap(frame));
+            drain();
+        }
+
+        synchronized void close() {
+            closed = true;
+            drain();
+        }
+
+        private void drain() {
+            if (subscriber == null || completed) {
+                return;
+            }
+            while (demand > 0 && !pending.isEmpty()) {
+                demand--;
+                subscriber.onNext(pending.poll());
+            }
+            if (closed && pending.isEmpty()) {
+                completed = true;
+                subscriber.onComplete();
+            }
+        }
+    }
+}
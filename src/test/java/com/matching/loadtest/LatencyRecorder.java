@@ -0,0 +1,68 @@
+package com.matching.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * 延迟记录器 - 保存每次请求耗时（纳秒），结束时排序计算分位数
+ */
+public class LatencyRecorder {
+
+    private final String name;
+    private long[] samples = new long[1024];
+    private int size;
+    private long errors;
+    private long shed;
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized void record(long nanos, boolean success) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    /**
+     * 被服务端快速拒绝（503）的请求，计入错误但单独统计
+     */
+    public synchronized void recordShed(long nanos) {
+        record(nanos, false);
+        shed++;
+    }
+
+    public synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return new Snapshot(name, sorted, errors, shed);
+    }
+
+    /**
+     * 统计快照
+     */
+    public record Snapshot(String name, long[] sorted, long errors, long shed) {
+
+        public long count() {
+            return sorted.length;
+        }
+
+        /**
+         * 分位数（毫秒）
+         */
+        public double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+    }
+}
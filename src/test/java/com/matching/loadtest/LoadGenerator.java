@@ -0,0 +1,283 @@
+package com.matching.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测负载生成器 - 按目标速率（开环）驱动注册/登录/验证/登出混合请求
+ * <p>
+ * 延迟从计划发送时间开始计算，避免协调遗漏（coordinated omission）低估尾延迟。
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final String PASSWORD = "LoadTest123";
+
+    private final String baseUrl;
+    private final SmtpSinkServer smtpSink;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final List<String> usernames = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<String> tokens = new ConcurrentLinkedQueue<>();
+    private final AtomicLong userSequence = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public LoadGenerator(String baseUrl, SmtpSinkServer smtpSink) {
+        this.baseUrl = baseUrl;
+        this.smtpSink = smtpSink;
+        for (String name : List.of("verify/send", "register", "login", "info", "logout")) {
+            recorders.put(name, new LatencyRecorder(name));
+        }
+    }
+
+    /**
+     * 预先注册用户，供登录使用
+     */
+    public void seedUsers(int count) {
+        for (int i = 0; i < count; i++) {
+            register(false);
+        }
+        for (int i = 0; i < Math.min(count, 16); i++) {
+            login(false);
+        }
+        log.info("Seeded {} users, {} tokens", usernames.size(), tokens.size());
+    }
+
+    /**
+     * 当前持有的已登录 Token（供其他基准复用会话）
+     */
+    public List<String> tokens() {
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * 以目标速率运行指定时长
+     *
+     * @param ratePerSecond 每秒发起的操作数
+     * @param duration      运行时长
+     * @param mix           操作权重，key 为 register/login/info/logout
+     */
+    public Report run(int ratePerSecond, Duration duration, Map<String, Integer> mix) throws InterruptedException {
+        List<String> weighted = new ArrayList<>();
+        mix.forEach((op, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(op);
+            }
+        });
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty");
+        }
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long issued = 0;
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            long next = start;
+            while (next < end) {
+                long now = System.nanoTime();
+                if (now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                final long scheduled = next;
+                String op = weighted.get(ThreadLocalRandom.current().nextInt(weighted.size()));
+                workers.submit(() -> execute(op, scheduled));
+                issued++;
+                next += intervalNanos;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<LatencyRecorder.Snapshot> snapshots = new ArrayList<>();
+        recorders.values().forEach(r -> snapshots.add(r.snapshot()));
+        return new Report(issued, elapsed, snapshots, smtpSink.getReceivedCount());
+    }
+
+    private void execute(String op, long scheduled) {
+        switch (op) {
+            case "register" -> register(true, scheduled);
+            case "login" -> login(true, scheduled);
+            case "info" -> info(scheduled);
+            case "logout" -> logout(scheduled);
+            default -> throw new IllegalArgumentException("Unknown operation: " + op);
+        }
+    }
+
+    // ==================== 操作 ====================
+
+    private void register(boolean measure) {
+        register(measure, System.nanoTime());
+    }
+
+    private void register(boolean measure, long scheduled) {
+        String username = "lt_" + runId + "_" + userSequence.incrementAndGet();
+        String email = username + "@loadtest.local";
+
+        HttpResponse<String> sendResponse = post("/user/verify/send?type=email&destination="
+                + URLEncoder.encode(email, StandardCharsets.UTF_8), null);
+        long afterSend = System.nanoTime();
+        record(measure, "verify/send", afterSend - scheduled, sendResponse);
+        if (sendResponse == null || sendResponse.statusCode() != 200) {
+            log.debug("verify/send failed: status={}, body={}",
+                    sendResponse == null ? -1 : sendResponse.statusCode(), sendResponse == null ? null : sendResponse.body());
+            return;
+        }
+
+        String code = smtpSink.getLastVerificationCode(email);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("username", username);
+        body.put("email", email);
+        body.put("password", PASSWORD);
+        body.put("confirmPassword", PASSWORD);
+        body.put("emailVerificationCode", code);
+        HttpResponse<String> response = post("/user/register", body);
+        record(measure, "register", System.nanoTime() - afterSend, response);
+        if (response != null && response.statusCode() == 200) {
+            usernames.add(username);
+        } else {
+            log.debug("register failed: status={}, body={}",
+                    response == null ? -1 : response.statusCode(), response == null ? null : response.body());
+        }
+    }
+
+    private void login(boolean measure) {
+        login(measure, System.nanoTime());
+    }
+
+    private void login(boolean measure, long scheduled) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        String username = usernames.get(ThreadLocalRandom.current().nextInt(usernames.size()));
+        HttpResponse<String> response = post("/user/login", Map.of("username", username, "password", PASSWORD));
+        record(measure, "login", System.nanoTime() - scheduled, response);
+        if (response != null && response.statusCode() == 200) {
+            try {
+                JsonNode json = objectMapper.readTree(response.body());
+                tokens.add(json.get("token").asText());
+            } catch (Exception e) {
+                log.debug("Unexpected login response: {}", response.body());
+            }
+        }
+    }
+
+    private void info(long scheduled) {
+        String token = tokens.peek();
+        if (token == null) {
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/user/info"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<String> response = send(request);
+        if (response != null && response.statusCode() == 503) {
+            recorders.get("info").recordShed(System.nanoTime() - scheduled);
+            return;
+        }
+        // 令牌可能已被并发登出，401 不计为错误
+        boolean success = response != null && (response.statusCode() == 200 || response.statusCode() == 401);
+        recorders.get("info").record(System.nanoTime() - scheduled, success);
+    }
+
+    private void logout(long scheduled) {
+        String token = tokens.poll();
+        if (token == null) {
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/user/logout"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        record(true, "logout", System.nanoTime() - scheduled, send(request));
+    }
+
+    // ==================== HTTP ====================
+
+    private HttpResponse<String> post(String path, Object body) {
+        try {
+            HttpRequest.BodyPublisher publisher = body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(10))
+                    .POST(publisher)
+                    .build();
+            return send(request);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            log.debug("Request failed: {} {}", request.uri(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void record(boolean measure, String op, long nanos, HttpResponse<String> response) {
+        if (!measure) {
+            return;
+        }
+        if (response != null && response.statusCode() == 503) {
+            recorders.get(op).recordShed(nanos);
+        } else {
+            recorders.get(op).record(nanos, response != null && response.statusCode() == 200);
+        }
+    }
+
+    /**
+     * 压测报告
+     */
+    public record Report(long issued, long elapsedNanos, List<LatencyRecorder.Snapshot> operations, long mailsReceived) {
+
+        public String format() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%nIssued %d operations in %.1fs (%.1f ops/s), mails received: %d%n",
+                    issued, seconds, issued / seconds, mailsReceived));
+            sb.append(String.format("%-12s %9s %9s %9s %9s %10s %10s %10s%n",
+                    "operation", "count", "errors", "shed", "req/s", "p50(ms)", "p99(ms)", "p999(ms)"));
+            for (LatencyRecorder.Snapshot s : operations) {
+                sb.append(String.format("%-12s %9d %9d %9d %9.1f %10.2f %10.2f %10.2f%n",
+                        s.name(), s.count(), s.errors(), s.shed(), s.count() / seconds,
+                        s.percentileMillis(50), s.percentileMillis(99), s.percentileMillis(99.9)));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.matching.loadtest;
+
+import com.matching.UserServiceApplication;
+import com.matching.user.repository.shard.ShardedUserStore;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 离线压测启动类 - 启动内嵌 Redis/SMTP 替身与 H2 数据库，再以目标速率压测 UserController
+ * <p>
+ * 参数（key=value）：rate=每秒操作数，duration=秒，seed-users=预注册用户数，
+ * mix=register:5,login:25,info:60,logout:10，expand-shard=压测中途加入的分片名（需开启分片且该分片已配置、不在初始环中），
+ * redis-nodes=N 时改为启动 N 个节点的 Redis Cluster 替身（默认单机）；
+ * 其余参数原样传给 Spring。
+ */
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") && eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        int rate = Integer.parseInt(options.getOrDefault("rate", "100"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int seedUsers = Integer.parseInt(options.getOrDefault("seed-users", "20"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "register:5,login:25,info:60,logout:10"));
+        int redisNodes = Integer.parseInt(options.getOrDefault("redis-nodes", "0"));
+
+        try (AutoCloseable redis = redisNodes > 0 ? new EmbeddedRedisCluster(redisNodes) : new EmbeddedRedisServer(0);
+             SmtpSinkServer smtp = new SmtpSinkServer(0)) {
+
+            // 以命令行参数传入，优先级高于 application.yml 中的端口
+            if (redis instanceof EmbeddedRedisCluster cluster) {
+                springArgs.add("--spring.data.redis.cluster.nodes=" + cluster.getNodes());
+            } else {
+                springArgs.add("--spring.data.redis.port=" + ((EmbeddedRedisServer) redis).getPort());
+            }
+            springArgs.add("--spring.mail.port=" + smtp.getPort());
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                    .profiles("loadtest")
+                    .run(springArgs.toArray(new String[0]));
+
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadGenerator generator = new LoadGenerator("http://127.0.0.1:" + port, smtp);
+                generator.seedUsers(seedUsers);
+                String expandShard = options.get("expand-shard");
+                if (expandShard != null) {
+                    scheduleShardExpansion(context, expandShard, Duration.ofSeconds(durationSeconds / 2));
+                }
+                LoadGenerator.Report report = generator.run(rate, Duration.ofSeconds(durationSeconds), mix);
+                System.out.println(report.format());
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * 压测进行到一半时把已配置但不在初始环中的分片加入拓扑，观察在线迁移对延迟的影响
+     */
+    private static void scheduleShardExpansion(ConfigurableApplicationContext context, String shardName, Duration delay) {
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(delay.toMillis());
+                long start = System.nanoTime();
+                context.getBean(ShardedUserStore.class).addShard(shardName);
+                System.out.printf("Shard %s added online in %d ms%n", shardName, (System.nanoTime() - start) / 1_000_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                System.out.printf("Shard %s expansion failed: %s%n", shardName, e.getMessage());
+            }
+        }, "shard-expansion");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            mix.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+}
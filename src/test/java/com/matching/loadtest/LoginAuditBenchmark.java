@@ -0,0 +1,129 @@
+package com.matching.loadtest;
+
+import com.matching.user.audit.LoginAuditLog;
+import com.matching.user.audit.LoginAuditProperties;
+import com.matching.user.audit.LoginAuditRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * 登录审计日志基准 - 多线程并发追加，统计吞吐、追加延迟与刷盘合并效果，再重新打开测量恢复耗时与按用户查询延迟
+ * <p>
+ * 会清空 dir 目录。参数（key=value）：dir、records、threads、users、sync（true 时每次追加等待刷盘）、segment-mb。
+ */
+public class LoginAuditBenchmark {
+
+    private static final String[] OUTCOMES = {"SUCCESS", "SUCCESS", "SUCCESS", "BAD_PASSWORD", "NOT_FOUND"};
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        Path dir = Path.of(options.getOrDefault("dir", "target/loadtest/login-audit-bench"));
+        int records = Integer.parseInt(options.getOrDefault("records", "1000000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int users = Integer.parseInt(options.getOrDefault("users", "100000"));
+
+        LoginAuditProperties properties = new LoginAuditProperties();
+        properties.setDirectory(dir.toString());
+        properties.setSyncOnWrite(Boolean.parseBoolean(options.getOrDefault("sync", "true")));
+        properties.setSegmentSizeMb(Integer.parseInt(options.getOrDefault("segment-mb", "64")));
+        properties.setMaxTotalMb(Long.MAX_VALUE >> 20);
+        deleteRecursively(dir);
+
+        System.out.printf("records=%,d threads=%d users=%,d sync-on-write=%s segment=%dMB%n",
+                records, threads, users, properties.isSyncOnWrite(), properties.getSegmentSizeMb());
+
+        long[] latencies = new long[records];
+        long elapsedNanos;
+        long syncs;
+        long bytes;
+        try (LoginAuditLog auditLog = LoginAuditLog.open(properties)) {
+            Thread[] workers = new Thread[threads];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = first; i < records; i += threads) {
+                        int user = random.nextInt(users);
+                        LoginAuditRecord record = new LoginAuditRecord(System.currentTimeMillis(),
+                                200_000_000_000_000_000L + user, "user" + user, OUTCOMES[random.nextInt(OUTCOMES.length)],
+                                "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256),
+                                "device-" + (user % 1000), USER_AGENT);
+                        long begin = System.nanoTime();
+                        try {
+                            auditLog.append(record);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                }, "audit-bench-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            elapsedNanos = System.nanoTime() - start;
+            syncs = auditLog.syncCount();
+            bytes = auditLog.endOffset();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("append: %,.0f records/s  p50=%.1fus p99=%.1fus p99.9=%.1fus  fsyncs=%,d (%.1f records/fsync)  %.1f bytes/record%n",
+                records / (elapsedNanos / 1e9), micros(latencies, 50), micros(latencies, 99), micros(latencies, 99.9),
+                syncs, (double) records / Math.max(1, syncs), (double) bytes / records);
+
+        long start = System.nanoTime();
+        try (LoginAuditLog auditLog = LoginAuditLog.open(properties)) {
+            System.out.printf("recovery: %d ms for %d segments, %,d indexed users%n",
+                    (System.nanoTime() - start) / 1_000_000, auditLog.segmentCount(), auditLog.indexedUsers());
+
+            int queries = 10_000;
+            long[] queryLatencies = new long[queries];
+            long found = 0;
+            for (int i = 0; i < queries; i++) {
+                String username = "user" + ThreadLocalRandom.current().nextInt(users);
+                long begin = System.nanoTime();
+                List<LoginAuditRecord> recent = auditLog.recent(username, 20);
+                queryLatencies[i] = System.nanoTime() - begin;
+                found += recent.size();
+            }
+            Arrays.sort(queryLatencies);
+            System.out.printf("recent(limit=20): p50=%.1fus p99=%.1fus  avg %.1f records/query%n",
+                    micros(queryLatencies, 50), micros(queryLatencies, 99), (double) found / queries);
+        }
+    }
+
+    private static double micros(long[] sorted, double percentile) {
+        int index = Math.max(0, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1);
+        return sorted[index] / 1_000.0;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.matching.loadtest;
+
+import com.matching.config.datasource.DataSourceRoutingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟主从复制 - 本地读写分离验证时，把主库 users 表的变更延迟 lag-ms 后复制到各从库（独立的 H2 内存库）
+ * <p>
+ * 启动时按主库的表结构在从库建表；之后每 poll-ms 按 updated_at 增量复制 updated_at 早于 now - lag-ms 的行，
+ * 窗口回看 2 秒，覆盖 updated_at 早于提交时间的事务。只用于 routing-local，不复制删除。
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@ConditionalOnProperty(prefix = "loadtest.replication", name = "lag-ms")
+public class SimulatedReplication implements DisposableBean {
+
+    private static final String TABLE = "USERS";
+    private static final long LOOKBACK_MS = 2000;
+
+    private final HikariDataSource primary;
+    private final List<DataSourceRoutingProperties.Replica> replicas;
+    private final long lagMs;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "simulated-replication");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private LocalDateTime appliedUntil = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public SimulatedReplication(HikariDataSource primaryDataSource, DataSourceRoutingProperties routingProperties,
+                                @Value("${loadtest.replication.lag-ms}") long lagMs,
+                                @Value("${loadtest.replication.poll-ms:100}") long pollMs) throws SQLException {
+        this.primary = primaryDataSource;
+        this.replicas = routingProperties.getReplicas();
+        this.lagMs = lagMs;
+        createSchema();
+        scheduler.scheduleWithFixedDelay(this::replicate, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        log.info("Simulated replication started: replicas={}, lag={}ms", replicas.size(), lagMs);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * SCRIPT NODATA 导出主库的建表与索引语句，在每个从库执行
+     */
+    private void createSchema() throws SQLException {
+        List<String> ddl = new ArrayList<>();
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SCRIPT NODATA TABLE " + TABLE)) {
+            while (rs.next()) {
+                String sql = rs.getString(1);
+                if (sql.startsWith("CREATE MEMORY TABLE") || sql.startsWith("ALTER TABLE") || sql.startsWith("CREATE UNIQUE")
+                        || sql.startsWith("CREATE INDEX")) {
+                    ddl.add(sql);
+                }
+            }
+        }
+        for (DataSourceRoutingProperties.Replica replica : replicas) {
+            try (Connection connection = open(replica); Statement statement = connection.createStatement()) {
+                for (String sql : ddl) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    private void replicate() {
+        LocalDateTime until = LocalDateTime.now().minusNanos(lagMs * 1_000_000);
+        try (Connection source = primary.getConnection();
+             PreparedStatement select = source.prepareStatement(
+                     "SELECT * FROM " + TABLE + " WHERE updated_at > ? AND updated_at <= ?")) {
+            select.setTimestamp(1, Timestamp.valueOf(appliedUntil.minusNanos(LOOKBACK_MS * 1_000_000)));
+            select.setTimestamp(2, Timestamp.valueOf(until));
+            List<Object[]> rows = new ArrayList<>();
+            String merge;
+            try (ResultSet rs = select.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                StringJoiner columns = new StringJoiner(", ");
+                StringJoiner values = new StringJoiner(", ");
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    columns.add(meta.getColumnName(i));
+                    values.add("?");
+                }
+                merge = "MERGE INTO " + TABLE + " (" + columns + ") KEY (ID) VALUES (" + values + ")";
+                while (rs.next()) {
+                    Object[] row = new Object[meta.getColumnCount()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+            for (DataSourceRoutingProperties.Replica replica : replicas) {
+                apply(replica, merge, rows);
+            }
+            appliedUntil = until;
+        } catch (SQLException e) {
+            log.warn("Simulated replication failed: {}", e.getMessage());
+        }
+    }
+
+    private void apply(DataSourceRoutingProperties.Replica replica, String merge, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (Connection connection = open(replica); PreparedStatement statement = connection.prepareStatement(merge)) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static Connection open(DataSourceRoutingProperties.Replica replica) throws SQLException {
+        return DriverManager.getConnection(replica.getUrl(), replica.getUsername(),
+                replica.getPassword() == null ? "" : replica.getPassword());
+    }
+}
@@ -0,0 +1,160 @@
+package com.matching.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 启动耗时检查 - 以子进程多次冷启动服务，测量从进程创建到 /ready 返回 200 的耗时（含启动预热），
+ * 中位数超过基线时以非零状态退出，可放在发布流水线中
+ * <p>
+ * 子进程连接本进程启动的 Redis/SMTP 替身。参数（key=value）：runs=启动次数，max-ready-ms=基线（必填），
+ * profiles=子进程的 Profile（默认 loadtest），main=启动类（默认 UserServiceApplication，AOT/CDS 模式用 JarLauncher），
+ * classpath=子进程类路径（默认与本进程相同），workdir=子进程工作目录，jvm-args=空格分隔的 JVM 参数，
+ * timeout-ms=单次等待就绪的上限；其余 -- 开头的参数原样传给子进程的 Spring。
+ * 子进程输出写入 target/startup-check/run-N.log。
+ */
+public class StartupCheck {
+
+    private static final Pattern REPORTED = Pattern.compile("timeToReady=(\\d+)ms");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") && eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        if (!options.containsKey("max-ready-ms")) {
+            System.err.println("max-ready-ms is required");
+            System.exit(2);
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        long maxReadyMillis = Long.parseLong(options.get("max-ready-ms"));
+        long timeoutMillis = Long.parseLong(options.getOrDefault("timeout-ms", "120000"));
+        String profiles = options.getOrDefault("profiles", "loadtest");
+        String mainClass = options.getOrDefault("main", "com.matching.UserServiceApplication");
+        String classpath = options.getOrDefault("classpath", System.getProperty("java.class.path"));
+        File workdir = new File(options.getOrDefault("workdir", "."));
+        List<String> jvmArgs = options.containsKey("jvm-args")
+                ? Arrays.asList(options.get("jvm-args").trim().split("\\s+")) : List.of();
+        Path logDir = Path.of("target/startup-check").toAbsolutePath();
+        Files.createDirectories(logDir);
+
+        System.out.printf("runs=%d profiles=%s main=%s jvm-args=%s baseline=%dms%n",
+                runs, profiles, mainClass, jvmArgs, maxReadyMillis);
+
+        long[] readyMillis = new long[runs];
+        try (EmbeddedRedisServer redis = new EmbeddedRedisServer(0);
+             SmtpSinkServer smtp = new SmtpSinkServer(0)) {
+            for (int run = 0; run < runs; run++) {
+                int port = freePort();
+                List<String> command = new ArrayList<>();
+                command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+                command.addAll(jvmArgs);
+                command.add("-cp");
+                command.add(classpath);
+                command.add(mainClass);
+                command.add("--spring.profiles.active=" + profiles);
+                command.add("--server.port=" + port);
+                command.add("--spring.data.redis.port=" + redis.getPort());
+                command.add("--spring.mail.port=" + smtp.getPort());
+                // 输出 StartupTimeReporter 的 INFO 日志，读取进程内记录的就绪耗时
+                command.add("--logging.level.com.matching.config.StartupTimeReporter=INFO");
+                command.addAll(springArgs);
+
+                Path log = logDir.resolve("run-" + (run + 1) + ".log");
+                Process process = new ProcessBuilder(command)
+                        .directory(workdir)
+                        .redirectErrorStream(true)
+                        .redirectOutput(log.toFile())
+                        .start();
+                long start = System.nanoTime();
+                try {
+                    if (!awaitReady(process, port, timeoutMillis)) {
+                        System.out.printf("run %d: not ready within %dms, see %s%n", run + 1, timeoutMillis, log);
+                        System.exit(1);
+                    }
+                    readyMillis[run] = (System.nanoTime() - start) / 1_000_000;
+                } finally {
+                    stop(process);
+                }
+                System.out.printf("run %d: ready=%dms reported=%s%n", run + 1, readyMillis[run], reported(log));
+            }
+        }
+
+        long[] sorted = readyMillis.clone();
+        Arrays.sort(sorted);
+        long median = sorted[sorted.length / 2];
+        System.out.printf("time-to-ready min=%dms median=%dms max=%dms baseline=%dms%n",
+                sorted[0], median, sorted[sorted.length - 1], maxReadyMillis);
+        if (median > maxReadyMillis) {
+            System.out.printf("FAIL: median time-to-ready %dms exceeds baseline %dms%n", median, maxReadyMillis);
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * 每 50ms 轮询一次 /ready，子进程提前退出或超时返回 false
+     */
+    private static boolean awaitReady(Process process, int port, long timeoutMillis) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/ready"))
+                .timeout(Duration.ofSeconds(2))
+                .GET()
+                .build();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                return false;
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return true;
+                }
+            } catch (IOException e) {
+                // 端口尚未监听
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(15, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static String reported(Path log) throws IOException {
+        Matcher matcher = REPORTED.matcher(Files.readString(log));
+        return matcher.find() ? matcher.group(1) + "ms" : "-";
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
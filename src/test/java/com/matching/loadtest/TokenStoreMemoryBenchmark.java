@@ -0,0 +1,101 @@
+package com.matching.loadtest;
+
+import com.matching.user.service.token.BucketedTokenStore;
+import com.matching.user.service.token.KeyPerTokenStore;
+import com.matching.user.service.token.TokenKind;
+import com.matching.user.service.token.TokenStore;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Token 存储布局内存对比 - 对一个真实 Redis 分别写入 N 个会话（Access + Refresh + 一次登出黑名单），
+ * 以 INFO memory 的 used_memory 增量计算每会话字节数
+ * <p>
+ * 会清空目标库，只能对测试实例运行。参数（key=value）：host、port、database、sessions、bucket-hex-chars。
+ */
+public class TokenStoreMemoryBenchmark {
+
+    private static final long ACCESS_TTL = 7200;
+    private static final long REFRESH_TTL = 604800;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                options.getOrDefault("host", "127.0.0.1"), Integer.parseInt(options.getOrDefault("port", "6379")));
+        config.setDatabase(Integer.parseInt(options.getOrDefault("database", "15")));
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "100000"));
+        int bucketHexChars = Integer.parseInt(options.getOrDefault("bucket-hex-chars", "4"));
+
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(config);
+        factory.afterPropertiesSet();
+        try {
+            RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+            redisTemplate.setConnectionFactory(factory);
+            redisTemplate.setKeySerializer(new StringRedisSerializer());
+            redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+            redisTemplate.afterPropertiesSet();
+            StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(factory);
+
+            System.out.printf("Redis %s, sessions=%d, bucket-hex-chars=%d%n",
+                    info(factory, "server").getProperty("redis_version"), sessions, bucketHexChars);
+            measure("keys", new KeyPerTokenStore(redisTemplate), factory, sessions);
+            measure("buckets", new BucketedTokenStore(stringRedisTemplate, bucketHexChars, false,
+                    ACCESS_TTL, REFRESH_TTL), factory, sessions);
+            try (RedisConnection connection = factory.getConnection()) {
+                byte[] sample = BucketedTokenStore.bucketKey('a', "0".repeat(bucketHexChars)).getBytes(StandardCharsets.UTF_8);
+                System.out.println("bucket encoding: " + connection.keyCommands().encodingOf(sample).raw());
+                connection.serverCommands().flushDb();
+            }
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private static void measure(String layout, TokenStore store, LettuceConnectionFactory factory, int sessions) {
+        try (RedisConnection connection = factory.getConnection()) {
+            connection.serverCommands().flushDb();
+        }
+        long before = usedMemory(factory);
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            String access = UUID.randomUUID().toString().replace("-", "");
+            store.put(TokenKind.ACCESS, access, 200_000_000_000_000_000L + i, ACCESS_TTL);
+            store.put(TokenKind.REFRESH, UUID.randomUUID().toString().replace("-", "") + "_refresh",
+                    200_000_000_000_000_000L + i, REFRESH_TTL);
+            if (i % 10 == 0) {
+                store.blacklist(access, ACCESS_TTL);
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long used = usedMemory(factory) - before;
+        System.out.printf("%-8s used=%,d bytes  per-session=%.1f bytes  (%d ms)%n",
+                layout, used, (double) used / sessions, elapsedMs);
+    }
+
+    private static long usedMemory(LettuceConnectionFactory factory) {
+        return Long.parseLong(info(factory, "memory").getProperty("used_memory"));
+    }
+
+    private static Properties info(LettuceConnectionFactory factory, String section) {
+        try (RedisConnection connection = factory.getConnection()) {
+            return connection.serverCommands().info(section);
+        }
+    }
+}